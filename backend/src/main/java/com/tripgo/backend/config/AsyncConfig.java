@@ -1,10 +1,14 @@
 package com.tripgo.backend.config;
 
+import com.tripgo.backend.util.FanOut;
+import io.micrometer.core.instrument.MeterRegistry;
+import org.springframework.beans.factory.annotation.Value;
 import org.springframework.context.annotation.Bean;
 import org.springframework.context.annotation.Configuration;
 import org.springframework.context.annotation.Primary;
 import org.springframework.scheduling.annotation.EnableAsync;
 import org.springframework.scheduling.concurrent.ThreadPoolTaskExecutor;
+import org.springframework.scheduling.concurrent.ThreadPoolTaskScheduler;
 
 import java.util.concurrent.Executor;
 
@@ -23,4 +27,33 @@ public class AsyncConfig {
         executor.initialize();
         return executor;
     }
+
+    // Default scheduler for the short ticks (lock expiry, seat-map flush, cleanups). Declared here
+    // because the poller scheduler below would otherwise replace Spring Boot's
+    @Bean
+    public ThreadPoolTaskScheduler taskScheduler(@Value("${spring.task.scheduling.pool.size:2}") int poolSize) {
+        ThreadPoolTaskScheduler scheduler = new ThreadPoolTaskScheduler();
+        scheduler.setPoolSize(poolSize);
+        scheduler.setThreadNamePrefix("scheduling-");
+        return scheduler;
+    }
+
+    // Outbox and Stripe-event pollers, whose handlers block on email and the payment gateway
+    @Bean
+    public ThreadPoolTaskScheduler pollerScheduler(@Value("${app.scheduling.poller-pool-size:2}") int poolSize) {
+        ThreadPoolTaskScheduler scheduler = new ThreadPoolTaskScheduler();
+        scheduler.setPoolSize(poolSize);
+        scheduler.setThreadNamePrefix("poller-");
+        return scheduler;
+    }
+
+    // Parallel search fan-out on virtual threads; the pool size caps search callers plus tasks,
+    // it does not set connections aside from other requests
+    @Bean(destroyMethod = "close")
+    public FanOut fanOut(@Value("${app.fanout.parallel:false}") boolean parallel,
+                         @Value("${spring.datasource.hikari.maximum-pool-size:10}") int poolSize,
+                         @Value("${app.fanout.max-db-concurrency:6}") int maxDbConcurrency,
+                         MeterRegistry meterRegistry) {
+        return new FanOut(parallel, poolSize, maxDbConcurrency, meterRegistry);
+    }
 }
@@ -1,15 +1,21 @@
 package com.tripgo.backend.config;
 
-import com.tripgo.backend.model.entities.RouteSchedule;
-import com.tripgo.backend.repository.RouteScheduleRepository;
+import com.tripgo.backend.service.impl.IdempotencyService;
+import com.tripgo.backend.service.impl.LockExpiryService;
+import com.tripgo.backend.service.impl.OccupancyService;
+import com.tripgo.backend.service.impl.OutboxDispatcher;
+import com.tripgo.backend.service.impl.PendingBookingService;
+import com.tripgo.backend.service.impl.PriceCalendarService;
+import com.tripgo.backend.service.impl.ScheduleInstanceService;
 import com.tripgo.backend.service.impl.SeatLockService;
+import com.tripgo.backend.service.impl.SeatMapStreamService;
+import com.tripgo.backend.service.impl.StripeWebhookProcessor;
 import lombok.RequiredArgsConstructor;
 import org.springframework.context.annotation.Configuration;
 import org.springframework.scheduling.annotation.EnableScheduling;
 import org.springframework.scheduling.annotation.Scheduled;
 
 import java.time.Instant;
-import java.time.temporal.ChronoUnit;
 
 @Configuration
 @EnableScheduling
@@ -17,34 +23,76 @@ import java.time.temporal.ChronoUnit;
 public class LockScheduler {
 
     private final SeatLockService lockService;
-    private final RouteScheduleRepository scheduleRepository;
+    private final LockExpiryService lockExpiryService;
+    private final OccupancyService occupancyService;
+    private final SeatMapStreamService seatMapStreamService;
+    private final ScheduleInstanceService scheduleInstanceService;
+    private final PriceCalendarService priceCalendarService;
+    private final OutboxDispatcher outboxDispatcher;
+    private final StripeWebhookProcessor stripeWebhookProcessor;
+    private final IdempotencyService idempotencyService;
+    private final PendingBookingService pendingBookingService;
 
+    @Scheduled(fixedDelay = 1_000)
+    public void expireLocks() {
+        lockExpiryService.expireDue();
+    }
+
+    @Scheduled(fixedDelay = 100)
+    public void flushSeatMapDeltas() {
+        seatMapStreamService.flush();
+    }
+
+    // Backstop for locks the expiry queue does not know about
     @Scheduled(fixedRate = 60_000)
     public void cleanup() {
         lockService.cleanupExpired();
     }
 
+    @Scheduled(cron = "0 30 0 * * *")
+    public void evictPastOccupancy() {
+        occupancyService.evictPastDates();
+    }
+
     @Scheduled(fixedRate = 60_000)
     public void autoCompleteSchedules() {
-        scheduleRepository.findPastUncompletedSchedules(Instant.now())
-                .forEach(schedule -> {
-                    schedule.setTripStatus("COMPLETED");
-                    schedule.setActive(false);
-                    scheduleRepository.save(schedule);
-
-                    if ("DAILY".equalsIgnoreCase(schedule.getFrequency())) {
-                        RouteSchedule next = RouteSchedule.builder()
-                                .route(schedule.getRoute())
-                                .bus(schedule.getBus())
-                                .departureTime(schedule.getDepartureTime().plus(1, ChronoUnit.DAYS))
-                                .arrivalTime(schedule.getArrivalTime().plus(1, ChronoUnit.DAYS))
-                                .frequency(schedule.getFrequency())
-                                .active(true)
-                                .tripStatus("SCHEDULED")
-                                .build();
-                        scheduleRepository.save(next);
-                    }
-                });
+        scheduleInstanceService.completePast(Instant.now());
+    }
+
+    // Keeps recurring schedules materialized over the full horizon
+    @Scheduled(cron = "0 15 0 * * *")
+    public void generateScheduleInstances() {
+        scheduleInstanceService.generate();
+    }
+
+    @Scheduled(cron = "0 20 0 * * *")
+    public void advancePriceCalendar() {
+        priceCalendarService.advance();
     }
-}
 
+    @Scheduled(fixedDelay = 5_000)
+    public void refreshPriceCalendar() {
+        priceCalendarService.flush();
+    }
+
+    // Pollers run on their own scheduler: a slow batch must not hold back lock expiry or seat-map frames
+    @Scheduled(fixedDelay = 1_000, scheduler = "pollerScheduler")
+    public void dispatchOutbox() {
+        outboxDispatcher.dispatch();
+    }
+
+    @Scheduled(fixedDelay = 500, scheduler = "pollerScheduler")
+    public void processStripeEvents() {
+        stripeWebhookProcessor.poll();
+    }
+
+    @Scheduled(fixedRate = 60_000)
+    public void expireUnpaidBookings() {
+        pendingBookingService.expireUnpaid();
+    }
+
+    @Scheduled(cron = "0 40 * * * *")
+    public void purgeIdempotencyKeys() {
+        idempotencyService.deleteExpired();
+    }
+}
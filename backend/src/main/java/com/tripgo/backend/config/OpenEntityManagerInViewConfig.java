@@ -0,0 +1,30 @@
+package com.tripgo.backend.config;
+
+import jakarta.persistence.EntityManagerFactory;
+import lombok.RequiredArgsConstructor;
+import org.springframework.context.annotation.Configuration;
+import org.springframework.orm.jpa.support.OpenEntityManagerInViewInterceptor;
+import org.springframework.web.servlet.config.annotation.InterceptorRegistry;
+import org.springframework.web.servlet.config.annotation.WebMvcConfigurer;
+
+/**
+ * Open-in-view for every endpoint except the payment calls that wait on the gateway. Under
+ * open-in-view the request's EntityManager keeps its JDBC connection until the response is
+ * written, which for those endpoints would mean holding a pooled connection for the whole
+ * provider round trip. They do their reads through PaymentCheckoutService instead.
+ * Replaces Spring Boot's own registration, turned off with spring.jpa.open-in-view=false.
+ */
+@Configuration
+@RequiredArgsConstructor
+public class OpenEntityManagerInViewConfig implements WebMvcConfigurer {
+
+    private final EntityManagerFactory entityManagerFactory;
+
+    @Override
+    public void addInterceptors(InterceptorRegistry registry) {
+        OpenEntityManagerInViewInterceptor interceptor = new OpenEntityManagerInViewInterceptor();
+        interceptor.setEntityManagerFactory(entityManagerFactory);
+        registry.addWebRequestInterceptor(interceptor)
+                .excludePathPatterns("/payments/create-intent", "/payments/confirm-booking/**");
+    }
+}
@@ -28,8 +28,8 @@ public class WebSocketConfig implements WebSocketMessageBrokerConfigurer {
 
     @Override
     public void configureMessageBroker(MessageBrokerRegistry registry) {
-        // In-memory broker for user-specific queues
-        registry.enableSimpleBroker("/user");
+        // In-memory broker for user-specific queues and live seat-map topics
+        registry.enableSimpleBroker("/user", "/topic");
         // Prefix for messages FROM client TO server (not needed for notifications but good practice)
         registry.setApplicationDestinationPrefixes("/app");
         // Prefix for user-specific destinations
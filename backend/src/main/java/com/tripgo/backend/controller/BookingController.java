@@ -1,10 +1,13 @@
 package com.tripgo.backend.controller;
 
 import com.tripgo.backend.dto.response.BoardingDroppingPointResponse;
+import com.tripgo.backend.dto.response.SeatLayoutResponse;
+import com.tripgo.backend.dto.response.SeatMapSeat;
 import com.tripgo.backend.model.entities.*;
 import com.tripgo.backend.repository.*;
 import com.tripgo.backend.security.service.CustomUserDetails;
 import com.tripgo.backend.service.impl.SeatLockService;
+import com.tripgo.backend.service.impl.SeatMapService;
 import com.tripgo.backend.service.impl.TicketPdfService;
 import com.tripgo.backend.repository.TicketRepository;
 import lombok.RequiredArgsConstructor;
@@ -12,7 +15,6 @@ import org.springframework.http.ResponseEntity;
 import org.springframework.security.core.Authentication;
 import org.springframework.web.bind.annotation.*;
 
-import java.time.Instant;
 import java.time.LocalDate;
 import java.util.*;
 
@@ -22,13 +24,11 @@ import java.util.*;
 public class BookingController {
 
     private final RouteScheduleRepository scheduleRepo;
-    private final SeatLockRepository lockRepo;
     private final SeatLockService lockService;
-    private final SeatRepository seatRepository;
     private final BoardingDroppingPointRepository pointRepository;
     private final BookingRepository bookingRepository;
     private final BookingSeatRepository bookingSeatRepository;
-    private final RouteSegmentRepository routeSegmentRepository;
+    private final SeatMapService seatMapService;
     private final PaymentRepository paymentRepository;
     private final TicketPdfService ticketPdfService;
     private final TicketRepository ticketRepository;
@@ -40,55 +40,38 @@ public class BookingController {
             @RequestParam(required = false) String travelDate,
             @RequestParam(name = "date", required = false) String date,
             @RequestParam(required = false) String from,
-            @RequestParam(required = false) String to) {
+            @RequestParam(required = false) String to,
+            @RequestParam(required = false) String format) {
         RouteSchedule schedule = scheduleRepo.findById(scheduleId)
                 .orElseThrow(() -> new RuntimeException("Schedule not found"));
 
-        LocalDate resolvedDate = resolveTravelDate(schedule, travelDate, date);
-        List<RouteSegment> segments = routeSegmentRepository.findByRouteOrderBySeq(schedule.getRoute());
-        String resolvedFrom = normalizeFromStop(segments, from);
-        String resolvedTo = normalizeToStop(segments, to);
-        List<SeatLock> activeLocks = lockRepo.findByRouteScheduleIdAndTravelDate(scheduleId, resolvedDate).stream()
-                .filter(lock -> lock.getExpiresAt().isAfter(Instant.now()))
-                .toList();
-        List<BookingSeat> confirmedSeats = bookingSeatRepository.findByRouteSchedule(schedule).stream()
-                .filter(bs -> bs.getBooking().getStatus() == com.tripgo.backend.model.enums.BookingStatus.CONFIRMED)
-                .filter(bs -> resolvedDate.equals(bs.getBooking().getTravelDate()))
-                .toList();
-
-        List<Seat> seats = seatRepository.findByBus(schedule.getBus());
+        SeatMapService.SeatMap seatMap = seatMapService.build(
+                schedule, resolveTravelDate(schedule, travelDate, date), from, to);
 
-        List<Map<String, Object>> seatDTOs = seats.stream().map(seat -> {
-            boolean isLocked = activeLocks.stream()
-                    .filter(lock -> seat.getSeatNumber().equalsIgnoreCase(lock.getSeatNumber()))
-                    .anyMatch(lock -> segmentsOverlap(segments, lock.getFromStop(), lock.getToStop(), resolvedFrom, resolvedTo));
-
-            boolean isBooked = confirmedSeats.stream()
-                    .filter(bs -> seat.getSeatNumber().equalsIgnoreCase(bs.getSeatNumber()))
-                    .anyMatch(bs -> segmentsOverlap(segments, bs.getFromStop(), bs.getToStop(), resolvedFrom, resolvedTo));
-
-            return Map.<String, Object>of(
-                    "id", seat.getId(),
-                    "seatNumber", seat.getSeatNumber(),
-                    "seatType", seat.getSeatType(),
-                    "isLadiesOnly", Boolean.TRUE.equals(seat.getIsLadiesOnly()),
-                    "isWindow", Boolean.TRUE.equals(seat.getIsWindow()),
-                    "isAisle", Boolean.TRUE.equals(seat.getIsAisle()),
-                    "isBlocked", Boolean.TRUE.equals(seat.getIsBlocked()),
-                    "available", !isLocked && !isBooked && !Boolean.TRUE.equals(seat.getIsBlocked())
-            );
-        }).toList();
+        if ("compact".equalsIgnoreCase(format)) {
+            return ResponseEntity.ok(seatMap.compact());
+        }
 
-        boolean isSeater = seats.stream().noneMatch(s -> s.getSeatNumber().startsWith("U"));
+        List<SeatMapSeat> seatDTOs = seatMap.seats();
+        boolean isSeater = seatDTOs.stream().noneMatch(s -> s.seatNumber().startsWith("U"));
 
         if (isSeater) {
             return ResponseEntity.ok(Map.of("deck", "lower", "seats", seatDTOs));
         }
 
-        return ResponseEntity.ok(Map.of(
-                "upperDeck", seatDTOs.stream().filter(s -> s.get("seatNumber").toString().startsWith("U")).toList(),
-                "lowerDeck", seatDTOs.stream().filter(s -> s.get("seatNumber").toString().startsWith("L")).toList()
-        ));
+        List<SeatMapSeat> upperDeck = new ArrayList<>();
+        List<SeatMapSeat> lowerDeck = new ArrayList<>();
+        for (SeatMapSeat seat : seatDTOs) {
+            if (seat.seatNumber().startsWith("U")) upperDeck.add(seat);
+            else if (seat.seatNumber().startsWith("L")) lowerDeck.add(seat);
+        }
+        return ResponseEntity.ok(Map.of("upperDeck", upperDeck, "lowerDeck", lowerDeck));
+    }
+
+    // ─── GET seat layout for compact seat maps ────────────────────────────────
+    @GetMapping("/layouts/{layoutId}")
+    public SeatLayoutResponse getSeatLayout(@PathVariable String layoutId) {
+        return seatMapService.layout(layoutId);
     }
 
     // ─── GET boarding/dropping points ─────────────────────────────────────────
@@ -133,6 +116,14 @@ public class BookingController {
         );
     }
 
+    // ─── DELETE release own seat lock ─────────────────────────────────────────
+    @DeleteMapping("/lock/{lockToken}")
+    public Map<String, Object> unlock(@PathVariable UUID lockToken, Authentication auth) {
+        User user = ((CustomUserDetails) auth.getPrincipal()).getUser();
+        lockService.release(lockToken, user);
+        return Map.of("status", "RELEASED", "lockToken", lockToken);
+    }
+
     private LocalDate resolveTravelDate(RouteSchedule schedule, String travelDate, String fallbackDate) {
         String requestedDate = travelDate != null ? travelDate : fallbackDate;
         if (requestedDate != null && !requestedDate.isBlank()) {
@@ -141,37 +132,6 @@ public class BookingController {
         return java.time.LocalDateTime.ofInstant(schedule.getDepartureTime(), java.time.ZoneOffset.UTC).toLocalDate();
     }
 
-    private String normalizeFromStop(List<RouteSegment> segments, String from) {
-        if (from != null && !from.isBlank()) return from;
-        if (!segments.isEmpty()) return segments.get(0).getFromStop();
-        return "";
-    }
-
-    private String normalizeToStop(List<RouteSegment> segments, String to) {
-        if (to != null && !to.isBlank()) return to;
-        if (!segments.isEmpty()) return segments.get(segments.size() - 1).getToStop();
-        return "";
-    }
-
-    private boolean segmentsOverlap(List<RouteSegment> segments, String bookedFrom, String bookedTo, String reqFrom, String reqTo) {
-        int bookedStart = indexOf(segments, bookedFrom);
-        int bookedEnd = indexOf(segments, bookedTo);
-        int reqStart = indexOf(segments, reqFrom);
-        int reqEnd = indexOf(segments, reqTo);
-        if (bookedStart == -1 || bookedEnd == -1 || reqStart == -1 || reqEnd == -1) return true;
-        return bookedStart < reqEnd && bookedEnd > reqStart;
-    }
-
-    private int indexOf(List<RouteSegment> segments, String stop) {
-        for (int i = 0; i < segments.size(); i++) {
-            if (segments.get(i).getFromStop().equalsIgnoreCase(stop)) return i;
-        }
-        for (int i = 0; i < segments.size(); i++) {
-            if (segments.get(i).getToStop().equalsIgnoreCase(stop)) return i + 1;
-        }
-        return -1;
-    }
-
     // ─── GET ticket PDF ───────────────────────────────────────────────────────
     @GetMapping("/{bookingId}/ticket/download")
     public ResponseEntity<?> downloadTicket(@PathVariable UUID bookingId, Authentication auth) {
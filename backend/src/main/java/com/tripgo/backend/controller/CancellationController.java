@@ -7,6 +7,7 @@ import com.tripgo.backend.model.enums.CancelledBy;
 import com.tripgo.backend.repository.BookingRepository;
 import com.tripgo.backend.security.service.CustomUserDetails;
 import com.tripgo.backend.service.impl.CancellationService;
+import com.tripgo.backend.service.impl.IdempotencyService;
 import lombok.RequiredArgsConstructor;
 import org.springframework.http.ResponseEntity;
 import org.springframework.security.core.Authentication;
@@ -15,6 +16,9 @@ import org.springframework.web.bind.annotation.*;
 import java.math.BigDecimal;
 import java.util.Map;
 import java.util.UUID;
+import java.util.concurrent.CompletableFuture;
+
+import static java.util.concurrent.CompletableFuture.completedFuture;
 
 @RestController
 @RequestMapping("/booking")
@@ -23,15 +27,22 @@ public class CancellationController {
 
     private final BookingRepository bookingRepository;
     private final CancellationService cancellationService;
+    private final IdempotencyService idempotencyService;
 
     // User cancels their own booking
     @PostMapping("/{bookingId}/cancel")
-    public ResponseEntity<?> userCancel(
+    public CompletableFuture<ResponseEntity<?>> userCancel(
             @PathVariable UUID bookingId,
             @RequestBody Map<String, String> body,
+            @RequestHeader(value = IdempotencyService.HEADER, required = false) String idempotencyKey,
             Authentication auth) {
 
         User user = ((CustomUserDetails) auth.getPrincipal()).getUser();
+        return idempotencyService.execute(idempotencyKey, user.getId(), "POST /booking/" + bookingId + "/cancel", body,
+                () -> completedFuture(userCancel(bookingId, body, user)));
+    }
+
+    private ResponseEntity<?> userCancel(UUID bookingId, Map<String, String> body, User user) {
         Booking booking = bookingRepository.findById(bookingId)
                 .orElseThrow(() -> new RuntimeException("Booking not found"));
 
@@ -52,12 +63,18 @@ public class CancellationController {
 
     // Operator cancels a booking on their route
     @PostMapping("/{bookingId}/operator-cancel")
-    public ResponseEntity<?> operatorCancel(
+    public CompletableFuture<ResponseEntity<?>> operatorCancel(
             @PathVariable UUID bookingId,
             @RequestBody Map<String, String> body,
+            @RequestHeader(value = IdempotencyService.HEADER, required = false) String idempotencyKey,
             Authentication auth) {
 
         User user = ((CustomUserDetails) auth.getPrincipal()).getUser();
+        return idempotencyService.execute(idempotencyKey, user.getId(), "POST /booking/" + bookingId + "/operator-cancel", body,
+                () -> completedFuture(operatorCancel(bookingId, body, user)));
+    }
+
+    private ResponseEntity<?> operatorCancel(UUID bookingId, Map<String, String> body, User user) {
         Operator operator = user.getOperator();
 
         if (operator == null) {
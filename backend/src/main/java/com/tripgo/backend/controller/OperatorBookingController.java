@@ -1,5 +1,6 @@
 package com.tripgo.backend.controller;
 
+import com.tripgo.backend.event.BookingCancelledEvent;
 import com.tripgo.backend.model.entities.*;
 import com.tripgo.backend.model.enums.BookingStatus;
 import com.tripgo.backend.repository.BookingRepository;
@@ -7,7 +8,9 @@ import com.tripgo.backend.repository.BookingSeatRepository;
 import com.tripgo.backend.repository.PaymentRepository;
 import com.tripgo.backend.repository.RouteScheduleRepository;
 import com.tripgo.backend.security.service.CustomUserDetails;
+import com.tripgo.backend.service.impl.IdempotencyService;
 import lombok.RequiredArgsConstructor;
+import org.springframework.context.ApplicationEventPublisher;
 import org.springframework.http.ResponseEntity;
 import org.springframework.security.core.Authentication;
 import org.springframework.web.bind.annotation.*;
@@ -17,6 +20,9 @@ import java.util.LinkedHashMap;
 import java.util.Map;
 import java.util.Objects;
 import java.util.UUID;
+import java.util.concurrent.CompletableFuture;
+
+import static java.util.concurrent.CompletableFuture.completedFuture;
 
 @RestController
 @RequestMapping("/operator")
@@ -27,6 +33,8 @@ public class OperatorBookingController {
     private final BookingSeatRepository bookingSeatRepository;
     private final RouteScheduleRepository scheduleRepository;
     private final PaymentRepository paymentRepository;
+    private final ApplicationEventPublisher eventPublisher;
+    private final IdempotencyService idempotencyService;
 
     // GET /operator/bookings - All bookings for operator
     @GetMapping("/bookings")
@@ -73,11 +81,18 @@ public class OperatorBookingController {
 
     // PATCH /operator/bookings/{id}/cancel - Cancel a booking
     @PatchMapping("/bookings/{bookingId}/cancel")
-    public ResponseEntity<?> cancelBooking(
+    public CompletableFuture<ResponseEntity<?>> cancelBooking(
             @PathVariable UUID bookingId,
+            @RequestHeader(value = IdempotencyService.HEADER, required = false) String idempotencyKey,
             Authentication auth) {
 
         Operator operator = getOperator(auth);
+        UUID userId = ((CustomUserDetails) auth.getPrincipal()).getUser().getId();
+        return idempotencyService.execute(idempotencyKey, userId, "PATCH /operator/bookings/" + bookingId + "/cancel", null,
+                () -> completedFuture(cancelBooking(bookingId, operator)));
+    }
+
+    private ResponseEntity<?> cancelBooking(UUID bookingId, Operator operator) {
 
         Booking booking = bookingRepository.findById(bookingId)
                 .orElseThrow(() -> new RuntimeException("Booking not found"));
@@ -92,6 +107,8 @@ public class OperatorBookingController {
 
         booking.setStatus(BookingStatus.CANCELLED);
         bookingRepository.save(booking);
+        eventPublisher.publishEvent(new BookingCancelledEvent(
+                booking.getId(), booking.getRouteSchedule().getId(), booking.getTravelDate()));
 
         return ResponseEntity.ok(Map.of(
                 "message", "Booking cancelled successfully",
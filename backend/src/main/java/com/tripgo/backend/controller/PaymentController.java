@@ -2,21 +2,25 @@ package com.tripgo.backend.controller;
 
 import com.stripe.exception.SignatureVerificationException;
 import com.stripe.model.Event;
-import com.stripe.model.PaymentIntent;
 import com.stripe.net.Webhook;
-import com.stripe.param.PaymentIntentCreateParams;
+import com.tripgo.backend.exception.PaymentGatewayTimeoutException;
+import com.tripgo.backend.exception.PaymentGatewayUnavailableException;
 import com.tripgo.backend.model.entities.*;
-import com.tripgo.backend.model.entities.Ticket;
 import com.tripgo.backend.model.enums.BookingStatus;
 import com.tripgo.backend.model.enums.PaymentStatus;
-import com.tripgo.backend.model.enums.TicketStatus;
 import com.tripgo.backend.repository.*;
 import com.tripgo.backend.security.service.CustomUserDetails;
-import com.tripgo.backend.service.impl.EmailService;
-import com.tripgo.backend.service.impl.NotificationService;
-import com.tripgo.backend.service.impl.SeatLockService;
+import com.tripgo.backend.service.impl.BookingConfirmationService;
+import com.tripgo.backend.service.impl.IdempotencyService;
+import com.tripgo.backend.service.impl.PaymentGateway;
+import com.tripgo.backend.service.impl.PaymentCheckoutService;
+import com.tripgo.backend.service.impl.PaymentGatewayClient;
+import com.tripgo.backend.service.impl.PendingBookingService;
+import com.tripgo.backend.service.impl.StopService;
+import com.tripgo.backend.service.impl.StripeWebhookService;
 import lombok.RequiredArgsConstructor;
 import org.springframework.beans.factory.annotation.Value;
+import org.springframework.http.HttpStatus;
 import org.springframework.http.ResponseEntity;
 import org.springframework.security.core.Authentication;
 import org.springframework.web.bind.annotation.*;
@@ -24,8 +28,14 @@ import org.springframework.web.bind.annotation.*;
 import java.math.BigDecimal;
 import java.time.Instant;
 import java.util.*;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.atomic.AtomicReference;
+import java.util.function.Supplier;
 import java.util.stream.Collectors;
 
+import static java.util.concurrent.CompletableFuture.completedFuture;
+
 @RestController
 @RequestMapping("/payments")
 @RequiredArgsConstructor
@@ -33,16 +43,14 @@ public class PaymentController {
 
     private final BookingRepository bookingRepository;
     private final PaymentRepository paymentRepository;
-    private final TicketRepository ticketRepository;
     private final SeatLockRepository lockRepo;
-    private final SeatLockService lockService;
-    private final RouteScheduleRepository scheduleRepo;
-    private final SeatRepository seatRepository;
-    private final BookingSeatRepository bookingSeatRepository;
-    private final PassengerRepository passengerRepository;
-    private final EmailService emailService;
-    private final NotificationService notificationService;
-    private final com.tripgo.backend.repository.UserRepository userRepository;
+    private final StopService stopService;
+    private final BookingConfirmationService bookingConfirmationService;
+    private final StripeWebhookService stripeWebhookService;
+    private final PendingBookingService pendingBookingService;
+    private final PaymentGatewayClient paymentGatewayClient;
+    private final IdempotencyService idempotencyService;
+    private final PaymentCheckoutService paymentCheckoutService;
 
     @Value("${stripe.webhook-secret}")
     private String webhookSecret;
@@ -67,43 +75,46 @@ public class PaymentController {
      * }
      */
     @PostMapping("/create-intent")
-    public ResponseEntity<?> createIntent(
+    public CompletableFuture<ResponseEntity<?>> createIntent(
             @RequestBody Map<String, Object> body,
+            @RequestHeader(value = IdempotencyService.HEADER, required = false) String idempotencyKey,
             Authentication auth) {
 
-        try {
-            User user = ((CustomUserDetails) auth.getPrincipal()).getUser();
+        User user = ((CustomUserDetails) auth.getPrincipal()).getUser();
+        return idempotencyService.execute(idempotencyKey, user.getId(), "POST /payments/create-intent", body,
+                () -> createIntent(body, user));
+    }
 
+    private CompletableFuture<ResponseEntity<?>> createIntent(Map<String, Object> body, User user) {
+        try {
             UUID scheduleId = UUID.fromString((String) body.get("scheduleId"));
             UUID lockToken = UUID.fromString((String) body.get("lockToken"));
             String from = (String) body.get("from");
             String to = (String) body.get("to");
+            Integer fromStopId = stopService.resolve(from);
+            Integer toStopId = stopService.resolve(to);
             BigDecimal totalAmount = new BigDecimal(body.get("totalAmount").toString());
             BigDecimal gstAmount = new BigDecimal(body.get("gstAmount").toString());
             BigDecimal payableAmount = new BigDecimal(body.get("payableAmount").toString());
 
-            RouteSchedule schedule = scheduleRepo.findById(scheduleId)
-                    .orElseThrow(() -> new RuntimeException("Schedule not found"));
+            PaymentCheckoutService.Trip trip = paymentCheckoutService.trip(scheduleId);
+            RouteSchedule schedule = trip.schedule();
 
             // Verify lock is still valid
-            List<SeatLock> locks = lockRepo.findAll().stream()
-                    .filter(l -> l.getLockToken().equals(lockToken)
-                            && l.getExpiresAt().isAfter(Instant.now())
-                            && l.getLockedBy().getId().equals(user.getId()))
-                    .toList();
+            List<SeatLock> locks = lockRepo.findActiveByLockTokenAndUser(lockToken, user.getId(), Instant.now());
 
             if (locks.isEmpty()) {
-                return ResponseEntity.badRequest()
-                        .body(Map.of("error", "Lock token expired or invalid. Please select seats again."));
+                return completedFuture(ResponseEntity.badRequest()
+                        .body(Map.of("error", "Lock token expired or invalid. Please select seats again.")));
             }
 
             boolean segmentMismatch = locks.stream().anyMatch(lock ->
-                    (lock.getFromStop() != null && from != null && !lock.getFromStop().equalsIgnoreCase(from))
-                    || (lock.getToStop() != null && to != null && !lock.getToStop().equalsIgnoreCase(to))
+                    (lock.getFromStopId() != null && from != null && !lock.getFromStopId().equals(fromStopId))
+                    || (lock.getToStopId() != null && to != null && !lock.getToStopId().equals(toStopId))
             );
             if (segmentMismatch) {
-                return ResponseEntity.badRequest()
-                        .body(Map.of("error", "Selected segment does not match the locked seats. Please select seats again."));
+                return completedFuture(ResponseEntity.badRequest()
+                        .body(Map.of("error", "Selected segment does not match the locked seats. Please select seats again.")));
             }
 
             // Parse passengers before idempotency check
@@ -113,24 +124,24 @@ public class PaymentController {
                     .toList();
 
             // Derive travelDate from the adjusted departure time passed in body, or fall back to schedule date
-            java.time.LocalDate travelDate = null;
-            if (body.get("travelDate") != null) {
-                travelDate = java.time.LocalDate.parse((String) body.get("travelDate"));
-            } else {
-                travelDate = java.time.LocalDateTime
-                        .ofInstant(schedule.getDepartureTime(), java.time.ZoneOffset.UTC)
-                        .toLocalDate();
-            }
+            java.time.LocalDate travelDate = body.get("travelDate") != null
+                    ? java.time.LocalDate.parse((String) body.get("travelDate"))
+                    : java.time.LocalDateTime
+                            .ofInstant(schedule.getDepartureTime(), java.time.ZoneOffset.UTC)
+                            .toLocalDate();
+            // Resolved up front: the booking may be created after a gateway call, off this thread
+            Operator operator = trip.operator();
 
             Set<String> requestedSeatNumbers = passengers.stream()
                     .map(p -> String.valueOf(p.get("seatNumber")))
                     .collect(Collectors.toCollection(LinkedHashSet::new));
 
             // Idempotency: reuse existing PENDING booking + PaymentIntent if still usable
-            List<Booking> existingPending = bookingRepository.findPendingByUserAndScheduleAndTravelDate(user, scheduleId, travelDate)
-                    .stream()
+            List<Booking> pending = bookingRepository.findPendingByUserAndScheduleAndTravelDate(user, scheduleId, travelDate);
+            Map<UUID, List<BookingSeat>> pendingSeats = pendingBookingService.seatsOf(pending);
+            List<Booking> existingPending = pending.stream()
                     .filter(existing -> {
-                        List<BookingSeat> existingSeats = bookingSeatRepository.findByBookingId(existing.getId());
+                        List<BookingSeat> existingSeats = pendingSeats.getOrDefault(existing.getId(), List.of());
                         if (existingSeats.isEmpty()) return false;
 
                         Set<String> existingSeatNumbers = existingSeats.stream()
@@ -138,123 +149,99 @@ public class PaymentController {
                                 .collect(Collectors.toCollection(LinkedHashSet::new));
 
                         boolean sameSegment = existingSeats.stream().allMatch(seat ->
-                                Objects.equals(normalizeValue(seat.getFromStop()), normalizeValue(from))
-                                && Objects.equals(normalizeValue(seat.getToStop()), normalizeValue(to))
+                                Objects.equals(seat.getFromStopId(), fromStopId)
+                                && Objects.equals(seat.getToStopId(), toStopId)
                         );
 
                         return sameSegment && existingSeatNumbers.equals(requestedSeatNumbers);
                     })
                     .toList();
-            if (!existingPending.isEmpty()) {
-                Booking existing = existingPending.get(0);
-                Payment existingPayment = paymentRepository.findByBooking(existing).stream()
-                        .filter(p -> p.getStatus() == PaymentStatus.INITIATED)
-                        .findFirst().orElse(null);
-                if (existingPayment != null) {
-                    PaymentIntent existingIntent = PaymentIntent.retrieve(existingPayment.getProviderTransactionId());
-                    String intentStatus = existingIntent.getStatus();
-                    // Only reuse if the intent is still awaiting payment
-                    if ("requires_payment_method".equals(intentStatus) || "requires_confirmation".equals(intentStatus)) {
-                        return ResponseEntity.ok(Map.of(
-                                "clientSecret", existingIntent.getClientSecret(),
-                                "bookingId", existing.getId(),
-                                "bookingCode", existing.getBookingCode(),
-                                "paymentIntentId", existingIntent.getId()
-                        ));
-                    }
-                    // Intent is in a terminal/unusable state — mark old booking as FAILED and fall through to create new
-                    existingPayment.setStatus(PaymentStatus.FAILED);
-                    paymentRepository.save(existingPayment);
-                    existing.setStatus(BookingStatus.FAILED);
-                    bookingRepository.save(existing);
-                }
+            // Create PENDING booking and its PaymentIntent; the booking is only written once the
+            // gateway has a free slot, so a busy provider leaves nothing behind
+            Supplier<CompletableFuture<ResponseEntity<?>>> createBooking = () -> {
+                AtomicReference<Booking> created = new AtomicReference<>();
+                return paymentGatewayClient.createIntent(() -> {
+                            String bookingCode = "TG" + UUID.randomUUID().toString().replace("-", "").substring(0, 8).toUpperCase();
+
+                            Booking booking = Booking.builder()
+                                    .user(user)
+                                    .routeSchedule(schedule)
+                                    .operator(operator)
+                                    .totalAmount(totalAmount)
+                                    .gstAmount(gstAmount)
+                                    .discountAmount(BigDecimal.ZERO)
+                                    .payableAmount(payableAmount)
+                                    .status(BookingStatus.PENDING)
+                                    .bookingCode(bookingCode)
+                                    .travelDate(travelDate)
+                                    .build();
+
+                            List<Passenger> passengerEntities = passengers.stream()
+                                    .map(p -> Passenger.builder()
+                                            .user(user)
+                                            .firstName((String) p.get("firstName"))
+                                            .lastName((String) p.getOrDefault("lastName", ""))
+                                            .age(p.get("age") != null ? (Integer) p.get("age") : null)
+                                            .gender((String) p.getOrDefault("gender", ""))
+                                            .phone((String) p.getOrDefault("phone", ""))
+                                            .build())
+                                    .toList();
+                            List<String> seatNumbers = passengers.stream()
+                                    .map(p -> (String) p.get("seatNumber"))
+                                    .toList();
+                            pendingBookingService.create(booking, passengerEntities, seatNumbers, from, to, fromStopId, toStopId);
+                            created.set(booking);
+                            return intentRequest(booking, payableAmount, lockToken, user);
+                        })
+                        .<ResponseEntity<?>>thenApply(intent -> intentCreated(created.get(), intent, payableAmount))
+                        .whenComplete((response, error) -> abandonIfFailed(created.get(), error));
+            };
+
+            if (existingPending.isEmpty()) {
+                return createBooking.get().exceptionally(PaymentController::gatewayError);
             }
 
-            // Create PENDING booking
-            String bookingCode = "TG" + UUID.randomUUID().toString().replace("-", "").substring(0, 8).toUpperCase();
-
-            Booking booking = Booking.builder()
-                    .user(user)
-                    .routeSchedule(schedule)
-                    .operator(schedule.getRoute().getOperator())
-                    .totalAmount(totalAmount)
-                    .gstAmount(gstAmount)
-                    .discountAmount(BigDecimal.ZERO)
-                    .payableAmount(payableAmount)
-                    .status(BookingStatus.PENDING)
-                    .bookingCode(bookingCode)
-                    .travelDate(travelDate)
-                    .build();
-            bookingRepository.save(booking);
-
-            for (Map<String, Object> p : passengers) {
-                String seatNumber = (String) p.get("seatNumber");
-                Passenger passenger = Passenger.builder()
-                        .user(user)
-                        .firstName((String) p.get("firstName"))
-                        .lastName((String) p.getOrDefault("lastName", ""))
-                        .age(p.get("age") != null ? (Integer) p.get("age") : null)
-                        .gender((String) p.getOrDefault("gender", ""))
-                        .phone((String) p.getOrDefault("phone", ""))
-                        .build();
-                passengerRepository.save(passenger);
-
-                Seat seat = seatRepository.findByBus(schedule.getBus()).stream()
-                        .filter(s -> s.getSeatNumber().equals(seatNumber))
-                        .findFirst().orElse(null);
-
-                BigDecimal seatFare = payableAmount.divide(
-                        BigDecimal.valueOf(passengers.size()), 2, java.math.RoundingMode.HALF_UP);
-
-                bookingSeatRepository.save(BookingSeat.builder()
-                        .booking(booking)
-                        .seat(seat)
-                        .seatNumber(seatNumber)
-                        .fare(seatFare)
-                        .passenger(passenger)
-                        .fromStop(from)
-                        .toStop(to)
-                        .build());
+            Booking existing = existingPending.get(0);
+            List<Payment> existingPayments = paymentRepository.findByBooking(existing);
+            if (existingPayments.isEmpty()) {
+                // An earlier attempt timed out before the intent was recorded. The same booking and
+                // gateway key make the provider return that intent instead of opening a second one
+                return paymentGatewayClient.createIntent(intentRequest(existing, payableAmount, lockToken, user))
+                        .<ResponseEntity<?>>thenApply(intent -> intentCreated(existing, intent, payableAmount))
+                        .whenComplete((response, error) -> abandonIfFailed(existing, error))
+                        .exceptionally(PaymentController::gatewayError);
             }
 
-            // Create Stripe PaymentIntent (amount in paise — multiply by 100)
-            long amountInPaise = payableAmount.multiply(BigDecimal.valueOf(100)).longValue();
-
-            PaymentIntentCreateParams params = PaymentIntentCreateParams.builder()
-                    .setAmount(amountInPaise)
-                    .setCurrency("inr")
-                    .setAutomaticPaymentMethods(
-                            PaymentIntentCreateParams.AutomaticPaymentMethods.builder()
-                                    .setEnabled(true)
-                                    .build()
-                    )
-                    .putMetadata("bookingId", booking.getId().toString())
-                    .putMetadata("bookingCode", booking.getBookingCode())
-                    .putMetadata("lockToken", lockToken.toString())
-                    .putMetadata("userId", user.getId().toString())
-                    .build();
-
-            PaymentIntent intent = PaymentIntent.create(params);
-
-            // Save INITIATED payment record
-            paymentRepository.save(Payment.builder()
-                    .booking(booking)
-                    .provider("STRIPE")
-                    .providerTransactionId(intent.getId())
-                    .amount(payableAmount)
-                    .status(PaymentStatus.INITIATED)
-                    .build());
+            Payment existingPayment = existingPayments.stream()
+                    .filter(p -> p.getStatus() == PaymentStatus.INITIATED)
+                    .findFirst().orElse(null);
+            if (existingPayment == null) {
+                return createBooking.get().exceptionally(PaymentController::gatewayError);
+            }
 
-            return ResponseEntity.ok(Map.of(
-                    "clientSecret", intent.getClientSecret(),
-                    "bookingId", booking.getId(),
-                    "bookingCode", booking.getBookingCode(),
-                    "paymentIntentId", intent.getId()
-            ));
+            return paymentGatewayClient.retrieveIntent(existingPayment.getProviderTransactionId())
+                    .<ResponseEntity<?>>thenCompose(existingIntent -> {
+                        // Only reuse if the intent is still awaiting payment
+                        if (existingIntent.awaitingPayment()) {
+                            return completedFuture(ResponseEntity.ok(Map.of(
+                                    "clientSecret", existingIntent.clientSecret(),
+                                    "bookingId", existing.getId(),
+                                    "bookingCode", existing.getBookingCode(),
+                                    "paymentIntentId", existingIntent.id()
+                            )));
+                        }
+                        // Intent is in a terminal/unusable state — mark old booking as FAILED and create a new one
+                        existingPayment.setStatus(PaymentStatus.FAILED);
+                        paymentRepository.save(existingPayment);
+                        existing.setStatus(BookingStatus.FAILED);
+                        bookingRepository.save(existing);
+                        return createBooking.get();
+                    })
+                    .exceptionally(PaymentController::gatewayError);
 
         } catch (Exception e) {
-            return ResponseEntity.internalServerError()
-                    .body(Map.of("error", e.getMessage()));
+            return completedFuture(ResponseEntity.internalServerError()
+                    .body(Map.of("error", e.getMessage())));
         }
     }
 
@@ -263,126 +250,46 @@ public class PaymentController {
      * Acts as a fallback in case webhook is delayed.
      */
     @PostMapping("/confirm-booking/{bookingId}")
-    public ResponseEntity<?> confirmBookingAfterPayment(
+    public CompletableFuture<ResponseEntity<?>> confirmBookingAfterPayment(
             @PathVariable UUID bookingId,
             @RequestParam String paymentIntentId,
+            @RequestHeader(value = IdempotencyService.HEADER, required = false) String idempotencyKey,
             Authentication auth) {
 
         User user = ((CustomUserDetails) auth.getPrincipal()).getUser();
+        return idempotencyService.execute(idempotencyKey, user.getId(), "POST /payments/confirm-booking/" + bookingId,
+                paymentIntentId, () -> confirmBookingAfterPayment(bookingId, paymentIntentId, user));
+    }
 
-        Booking booking = bookingRepository.findById(bookingId)
-                .orElseThrow(() -> new RuntimeException("Booking not found"));
+    private CompletableFuture<ResponseEntity<?>> confirmBookingAfterPayment(UUID bookingId, String paymentIntentId, User user) {
+        // Read before the gateway call, which completes off this thread
+        PaymentCheckoutService.Confirmation confirmation = paymentCheckoutService.confirmation(bookingId);
 
-        if (!booking.getUser().getId().equals(user.getId())) {
-            return ResponseEntity.status(403).body(Map.of("error", "Unauthorized"));
+        if (!confirmation.userId().equals(user.getId())) {
+            return completedFuture(ResponseEntity.status(403).body(Map.of("error", "Unauthorized")));
         }
 
-        if (booking.getStatus() == BookingStatus.CANCELLED) {
-            return ResponseEntity.badRequest().body(Map.of("error", "Booking has been cancelled"));
-        }
-
-        try {
-            PaymentIntent intent = PaymentIntent.retrieve(paymentIntentId);
-            if (!"succeeded".equals(intent.getStatus())) {
-                return ResponseEntity.badRequest().body(Map.of("error", "Payment is not completed yet"));
-            }
-
-            String intentBookingId = intent.getMetadata().get("bookingId");
-            if (intentBookingId != null && !intentBookingId.equals(String.valueOf(bookingId))) {
-                return ResponseEntity.badRequest().body(Map.of("error", "Payment does not belong to this booking"));
-            }
-
-            paymentRepository.findByProviderTransactionId(paymentIntentId).ifPresentOrElse(p -> {
-                if (p.getStatus() != PaymentStatus.SUCCESS) {
-                    p.setStatus(PaymentStatus.SUCCESS);
-                    paymentRepository.save(p);
-                }
-            }, () -> paymentRepository.save(Payment.builder()
-                    .booking(booking)
-                    .provider("STRIPE")
-                    .providerTransactionId(paymentIntentId)
-                    .amount(booking.getPayableAmount())
-                    .status(PaymentStatus.SUCCESS)
-                    .build()));
-        } catch (Exception e) {
-            return ResponseEntity.badRequest().body(Map.of("error", "Unable to verify payment with Stripe"));
+        if (confirmation.status() == BookingStatus.CANCELLED) {
+            return completedFuture(ResponseEntity.badRequest().body(Map.of("error", "Booking has been cancelled")));
         }
 
-        if (booking.getStatus() != BookingStatus.CONFIRMED) {
-            booking.setStatus(BookingStatus.CONFIRMED);
-            bookingRepository.save(booking);
-            createTicketIfAbsent(booking);
-
-            notificationService.send(booking.getUser(),
-                    "BOOKING_CONFIRMED",
-                    "Booking Confirmed! 🎉",
-                    "Your booking " + booking.getBookingCode() + " is confirmed. Have a great trip!",
-                    "/bookings");
-
-            User opUser = userRepository.findByOperator(booking.getOperator()).orElse(null);
-            if (opUser != null) {
-                notificationService.send(opUser,
-                        "NEW_BOOKING",
-                        "New Booking Received",
-                        "Booking " + booking.getBookingCode() + " confirmed on " + booking.getRouteSchedule().getBus().getName(),
-                        "/operator/bookings?bookingCode=" + booking.getBookingCode());
-            }
-
-            // Send emails
-            List<BookingSeat> seats = bookingSeatRepository.findByBookingId(booking.getId());
-            Map<String, Object> emailDetails = new LinkedHashMap<>();
-            emailDetails.put("bookingCode", booking.getBookingCode());
-            emailDetails.put("from", seats.isEmpty() ? "-" : seats.get(0).getFromStop());
-            emailDetails.put("to", seats.isEmpty() ? "-" : seats.get(0).getToStop());
-            emailDetails.put("busName", booking.getRouteSchedule().getBus().getName());
-            emailDetails.put("operatorName", booking.getOperator().getName());
-            emailDetails.put("departureTime", booking.getRouteSchedule().getDepartureTime().toString());
-            emailDetails.put("arrivalTime", booking.getRouteSchedule().getArrivalTime().toString());
-            emailDetails.put("totalAmount", booking.getTotalAmount());
-            emailDetails.put("gstAmount", booking.getGstAmount());
-            emailDetails.put("payableAmount", booking.getPayableAmount());
-            emailDetails.put("passengers", seats.stream().map(s -> {
-                Map<String, Object> p = new LinkedHashMap<>();
-                p.put("seatNumber", s.getSeatNumber());
-                if (s.getPassenger() != null) {
-                    p.put("firstName", s.getPassenger().getFirstName());
-                    p.put("lastName", s.getPassenger().getLastName() != null ? s.getPassenger().getLastName() : "");
-                    p.put("age", s.getPassenger().getAge());
-                    p.put("gender", s.getPassenger().getGender());
-                }
-                return p;
-            }).toList());
-            emailService.sendBookingConfirmation(booking.getUser(), emailDetails);
-            emailService.notifyOperatorNewBooking(booking, seats);
-        }
+        return paymentGatewayClient.retrieveIntent(paymentIntentId)
+                .<ResponseEntity<?>>thenApply(intent -> {
+                    if (!intent.succeeded()) {
+                        return ResponseEntity.badRequest().body(Map.of("error", "Payment is not completed yet"));
+                    }
 
-        List<BookingSeat> bookingSeats = bookingSeatRepository.findByBookingId(booking.getId());
-        Map<String, Object> response = new LinkedHashMap<>();
-        response.put("status", "CONFIRMED");
-        response.put("bookingId", booking.getId());
-        response.put("bookingCode", booking.getBookingCode());
-        response.put("from", booking.getRouteSchedule().getRoute().getOrigin());
-        response.put("to", booking.getRouteSchedule().getRoute().getDestination());
-        response.put("busName", booking.getRouteSchedule().getBus().getName());
-        response.put("totalAmount", booking.getTotalAmount());
-        response.put("payableAmount", booking.getPayableAmount());
-        response.put("passengers", bookingSeats.stream().map(s -> {
-            Map<String, Object> p = new LinkedHashMap<>();
-            p.put("seatNumber", s.getSeatNumber());
-            if (s.getPassenger() != null) {
-                p.put("firstName", s.getPassenger().getFirstName());
-                p.put("lastName", s.getPassenger().getLastName() != null ? s.getPassenger().getLastName() : "");
-                p.put("age", s.getPassenger().getAge());
-                p.put("gender", s.getPassenger().getGender());
-                p.put("phone", s.getPassenger().getPhone());
-            }
-            return p;
-        }).toList());
-        return ResponseEntity.ok(response);
-    }
+                    String intentBookingId = intent.metadata().get("bookingId");
+                    if (intentBookingId != null && !intentBookingId.equals(String.valueOf(bookingId))) {
+                        return ResponseEntity.badRequest().body(Map.of("error", "Payment does not belong to this booking"));
+                    }
 
-    private String normalizeValue(String value) {
-        return value == null ? "" : value.trim().toLowerCase();
+                    bookingConfirmationService.confirm(bookingId, paymentIntentId, intent.metadata().get("lockToken"));
+                    return ResponseEntity.ok(confirmation.response());
+                })
+                .exceptionally(e -> unwrap(e) instanceof PaymentGatewayUnavailableException
+                        ? gatewayError(e)
+                        : ResponseEntity.badRequest().body(Map.of("error", "Unable to verify payment with Stripe")));
     }
 
     /**
@@ -402,128 +309,60 @@ public class PaymentController {
             return ResponseEntity.badRequest().body("Invalid signature");
         }
 
-        switch (event.getType()) {
-
-            case "payment_intent.succeeded" -> {
-                if (!(event.getDataObjectDeserializer().getObject().orElse(null) instanceof PaymentIntent intent))
-                    break;
-
-                String bookingId = intent.getMetadata().get("bookingId");
-                String lockToken = intent.getMetadata().get("lockToken");
-
-                Booking booking = bookingRepository.findById(UUID.fromString(bookingId))
-                        .orElseThrow();
-
-                // Idempotency check — don't confirm if already confirmed or cancelled
-                if (booking.getStatus() == BookingStatus.CONFIRMED
-                        || booking.getStatus() == BookingStatus.CANCELLED) break;
-
-                booking.setStatus(BookingStatus.CONFIRMED);
-                bookingRepository.save(booking);
-                createTicketIfAbsent(booking);
-
-                // Update payment record
-                paymentRepository.findByProviderTransactionId(intent.getId())
-                        .ifPresent(p -> {
-                            p.setStatus(PaymentStatus.SUCCESS);
-                            paymentRepository.save(p);
-                        });
-
-                // Release seat locks
-                lockService.release(UUID.fromString(lockToken));
-
-                // Notify user
-                notificationService.send(booking.getUser(),
-                        "BOOKING_CONFIRMED",
-                        "Booking Confirmed! 🎉",
-                        "Your booking " + booking.getBookingCode() + " is confirmed. Have a great trip!",
-                        "/bookings");
-
-                // Notify operator
-                User opUser = userRepository.findByOperator(booking.getOperator()).orElse(null);
-                if (opUser != null) {
-                    notificationService.send(opUser,
-                            "NEW_BOOKING",
-                            "New Booking Received",
-                            "Booking " + booking.getBookingCode() + " confirmed on " + booking.getRouteSchedule().getBus().getName(),
-                            "/operator/bookings?bookingCode=" + booking.getBookingCode());
-                }
-
-                // Send confirmation email to user
-                List<BookingSeat> seats = bookingSeatRepository.findByBookingId(booking.getId());
-                Map<String, Object> emailDetails = new LinkedHashMap<>();
-                emailDetails.put("bookingCode", booking.getBookingCode());
-                emailDetails.put("from", seats.isEmpty() ? "-" : seats.get(0).getFromStop());
-                emailDetails.put("to", seats.isEmpty() ? "-" : seats.get(0).getToStop());
-                emailDetails.put("busName", booking.getRouteSchedule().getBus().getName());
-                emailDetails.put("operatorName", booking.getOperator().getName());
-                emailDetails.put("departureTime", booking.getRouteSchedule().getDepartureTime().toString());
-                emailDetails.put("arrivalTime", booking.getRouteSchedule().getArrivalTime().toString());
-                emailDetails.put("totalAmount", booking.getTotalAmount());
-                emailDetails.put("gstAmount", booking.getGstAmount());
-                emailDetails.put("payableAmount", booking.getPayableAmount());
-                emailDetails.put("passengers", seats.stream().map(s -> {
-                    Map<String, Object> p = new LinkedHashMap<>();
-                    p.put("seatNumber", s.getSeatNumber());
-                    if (s.getPassenger() != null) {
-                        p.put("firstName", s.getPassenger().getFirstName());
-                        p.put("lastName", s.getPassenger().getLastName() != null ? s.getPassenger().getLastName() : "");
-                        p.put("age", s.getPassenger().getAge());
-                        p.put("gender", s.getPassenger().getGender());
-                    }
-                    return p;
-                }).toList());
-                emailService.sendBookingConfirmation(booking.getUser(), emailDetails);
-
-                // Notify operator of new booking
-                emailService.notifyOperatorNewBooking(booking, seats);
-            }
-
-            case "payment_intent.payment_failed" -> {
-                if (!(event.getDataObjectDeserializer().getObject().orElse(null) instanceof PaymentIntent intent))
-                    break;
+        // Stored for StripeWebhookProcessor; a redelivery is dropped by the primary key
+        stripeWebhookService.ingest(event, payload);
 
-                String bookingId = intent.getMetadata().get("bookingId");
-
-                Booking booking = bookingRepository.findById(UUID.fromString(bookingId))
-                        .orElseThrow();
+        return ResponseEntity.ok("received");
+    }
 
-                booking.setStatus(BookingStatus.FAILED);
-                bookingRepository.save(booking);
+    // Amount in paise; the gateway key is tied to the booking, so a retry for it gets the same intent
+    private static PaymentGateway.CreateIntent intentRequest(Booking booking, BigDecimal payableAmount,
+                                                             UUID lockToken, User user) {
+        long amountInPaise = payableAmount.multiply(BigDecimal.valueOf(100)).longValue();
+        return new PaymentGateway.CreateIntent(amountInPaise, "inr", Map.of(
+                "bookingId", booking.getId().toString(),
+                "bookingCode", booking.getBookingCode(),
+                "lockToken", lockToken.toString(),
+                "userId", user.getId().toString()
+        ), "booking-" + booking.getId());
+    }
 
-                paymentRepository.findByProviderTransactionId(intent.getId())
-                        .ifPresent(p -> {
-                            p.setStatus(PaymentStatus.FAILED);
-                            paymentRepository.save(p);
-                        });
+    private ResponseEntity<?> intentCreated(Booking booking, PaymentGateway.Intent intent, BigDecimal payableAmount) {
+        // Save INITIATED payment record, once: a retry for the same booking gets the same intent back
+        if (paymentRepository.findByProviderTransactionId(intent.id()).isEmpty()) {
+            paymentRepository.save(Payment.builder()
+                    .booking(booking)
+                    .provider("STRIPE")
+                    .providerTransactionId(intent.id())
+                    .amount(payableAmount)
+                    .status(PaymentStatus.INITIATED)
+                    .build());
+        }
 
-                // Notify user of payment failure
-                notificationService.send(booking.getUser(),
-                        "PAYMENT_FAILED",
-                        "Payment Failed",
-                        "Your payment for the trip could not be processed. Please try again.",
-                        "/search-results");
+        return ResponseEntity.ok(Map.of(
+                "clientSecret", intent.clientSecret(),
+                "bookingId", booking.getId(),
+                "bookingCode", booking.getBookingCode(),
+                "paymentIntentId", intent.id()
+        ));
+    }
 
-                List<BookingSeat> failedSeats = bookingSeatRepository.findByBookingId(booking.getId());
-                String from = failedSeats.isEmpty() ? "-" : failedSeats.get(0).getFromStop();
-                String to = failedSeats.isEmpty() ? "-" : failedSeats.get(0).getToStop();
-                emailService.sendPaymentFailed(booking.getUser(), from, to,
-                        booking.getRouteSchedule().getBus().getName(), booking.getPayableAmount());
-            }
+    // After a timeout the provider may hold an intent for the booking, so it stays PENDING for the
+    // retry to pick up; PendingBookingService expires it if none comes
+    private void abandonIfFailed(Booking booking, Throwable error) {
+        if (booking == null || error == null || unwrap(error) instanceof PaymentGatewayTimeoutException) return;
+        pendingBookingService.abandon(booking.getId());
+    }
 
-            default -> { /* ignore other events like charge.succeeded */ }
+    private static ResponseEntity<?> gatewayError(Throwable e) {
+        Throwable cause = unwrap(e);
+        if (cause instanceof PaymentGatewayUnavailableException) {
+            return ResponseEntity.status(HttpStatus.SERVICE_UNAVAILABLE).body(Map.of("error", cause.getMessage()));
         }
-
-        return ResponseEntity.ok("received");
+        return ResponseEntity.internalServerError().body(Map.of("error", String.valueOf(cause.getMessage())));
     }
 
-    private void createTicketIfAbsent(Booking booking) {
-        if (ticketRepository.findByBooking(booking).isPresent()) return;
-        String ticketNo = "TKT" + UUID.randomUUID().toString().replace("-", "").substring(0, 10).toUpperCase();
-        ticketRepository.save(Ticket.builder()
-                .booking(booking)
-                .ticketNo(ticketNo)
-                .status(TicketStatus.ACTIVE)
-                .build());
+    private static Throwable unwrap(Throwable e) {
+        return e instanceof CompletionException && e.getCause() != null ? e.getCause() : e;
     }
 }
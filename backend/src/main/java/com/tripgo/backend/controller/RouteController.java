@@ -8,14 +8,17 @@ import com.tripgo.backend.dto.response.RouteResponse;
 import com.tripgo.backend.dto.response.FareResponse;
 import com.tripgo.backend.dto.response.RouteScheduleResponse;
 import com.tripgo.backend.dto.response.SegmentResponse;
+import com.tripgo.backend.event.RouteChangedEvent;
 import com.tripgo.backend.model.entities.*;
 import com.tripgo.backend.model.entities.Fare;
 import com.tripgo.backend.repository.FareRepository;
 import com.tripgo.backend.repository.RouteRepository;
 import com.tripgo.backend.repository.RouteSegmentRepository;
 import com.tripgo.backend.security.service.CustomUserDetails;
+import com.tripgo.backend.service.impl.FareMatrixService;
 import com.tripgo.backend.service.impl.RouteService;
 import lombok.RequiredArgsConstructor;
+import org.springframework.context.ApplicationEventPublisher;
 import org.springframework.http.ResponseEntity;
 import org.springframework.security.core.Authentication;
 import org.springframework.web.bind.annotation.*;
@@ -34,6 +37,8 @@ public class RouteController {
     private final RouteRepository routeRepository;
     private final RouteSegmentRepository segmentRepository;
     private final FareRepository fareRepository;
+    private final FareMatrixService fareMatrixService;
+    private final ApplicationEventPublisher eventPublisher;
 
     @PostMapping
     public RouteResponse createRoute(@RequestBody CreateRouteRequest req, Authentication auth) {
@@ -124,6 +129,8 @@ public class RouteController {
                 .filter(f -> f.getRoute().getId().equals(routeId))
                 .orElseThrow(() -> new RuntimeException("Fare not found"));
         fareRepository.delete(fare);
+        fareMatrixService.invalidateRoute(routeId);
+        eventPublisher.publishEvent(new RouteChangedEvent(routeId));
         return ResponseEntity.ok().build();
     }
 
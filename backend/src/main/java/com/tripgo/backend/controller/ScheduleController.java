@@ -1,9 +1,11 @@
 package com.tripgo.backend.controller;
 
 import com.tripgo.backend.dto.request.BoardingDroppingPointRequest;
+import com.tripgo.backend.dto.request.CalendarExceptionRequest;
 import com.tripgo.backend.dto.request.CreateScheduleRequest;
 import com.tripgo.backend.dto.response.BoardingDroppingPointResponse;
 import com.tripgo.backend.dto.response.RouteScheduleResponse;
+import com.tripgo.backend.dto.response.ScheduleCalendarResponse;
 import com.tripgo.backend.model.entities.BoardingDroppingPoint;
 import com.tripgo.backend.model.entities.RouteSchedule;
 import com.tripgo.backend.model.entities.User;
@@ -17,6 +19,7 @@ import org.springframework.http.ResponseEntity;
 import org.springframework.security.core.Authentication;
 import org.springframework.web.bind.annotation.*;
 
+import java.time.LocalDate;
 import java.time.LocalTime;
 import java.time.format.DateTimeFormatter;
 import java.util.List;
@@ -58,6 +61,28 @@ public class ScheduleController {
         routeService.deleteSchedule(scheduleId, user);
     }
 
+    @GetMapping("/{scheduleId}/calendar")
+    public ScheduleCalendarResponse getCalendar(@PathVariable UUID scheduleId, Authentication auth) {
+        User user = ((CustomUserDetails) auth.getPrincipal()).getUser();
+        return routeService.getCalendar(scheduleId, user);
+    }
+
+    @PutMapping("/{scheduleId}/calendar/exceptions")
+    public ScheduleCalendarResponse putCalendarException(@PathVariable UUID scheduleId,
+                                                         @Valid @RequestBody CalendarExceptionRequest req,
+                                                         Authentication auth) {
+        User user = ((CustomUserDetails) auth.getPrincipal()).getUser();
+        return routeService.putCalendarException(scheduleId, req, user);
+    }
+
+    @DeleteMapping("/{scheduleId}/calendar/exceptions/{date}")
+    public ScheduleCalendarResponse deleteCalendarException(@PathVariable UUID scheduleId,
+                                                            @PathVariable LocalDate date,
+                                                            Authentication auth) {
+        User user = ((CustomUserDetails) auth.getPrincipal()).getUser();
+        return routeService.deleteCalendarException(scheduleId, date, user);
+    }
+
     @GetMapping("/{scheduleId}/points")
     public ResponseEntity<?> getPoints(@PathVariable UUID scheduleId, Authentication auth) {
         RouteSchedule schedule = getScheduleOwnedBy(scheduleId, auth);
@@ -1,21 +1,49 @@
 package com.tripgo.backend.controller;
 
+import com.tripgo.backend.dto.request.SearchQuery;
+import com.tripgo.backend.dto.response.ConnectionResponse;
+import com.tripgo.backend.dto.response.FlexDay;
+import com.tripgo.backend.dto.response.SearchPage;
 import com.tripgo.backend.dto.response.SearchResponse;
-import com.tripgo.backend.dto.response.SeatAvailability;
+import com.tripgo.backend.dto.response.SearchSummary;
+import com.tripgo.backend.exception.BadRequestException;
+import com.tripgo.backend.model.entities.AmenityMaster;
 import com.tripgo.backend.model.entities.RouteSchedule;
-import com.tripgo.backend.repository.RouteRepository;
+import com.tripgo.backend.model.entities.ScheduleInstance;
+import com.tripgo.backend.model.enums.BusType;
+import com.tripgo.backend.repository.AmenityMasterRepository;
 import com.tripgo.backend.repository.RouteScheduleRepository;
 import com.tripgo.backend.repository.RouteSegmentRepository;
+import com.tripgo.backend.repository.ScheduleInstanceRepository;
 import com.tripgo.backend.service.impl.AvailabilityService;
+import com.tripgo.backend.service.impl.BusService;
+import com.tripgo.backend.service.impl.CityIndexService;
+import com.tripgo.backend.service.impl.ConnectionSearchService;
+import com.tripgo.backend.service.impl.FlexSearchService;
+import com.tripgo.backend.service.impl.PriceCalendarService;
+import com.tripgo.backend.service.impl.RouteIndexService;
+import com.tripgo.backend.service.impl.SearchCacheService;
+import com.tripgo.backend.service.impl.StopService;
 import lombok.RequiredArgsConstructor;
+import org.springframework.format.annotation.DateTimeFormat;
+import org.springframework.http.ResponseEntity;
 import org.springframework.web.bind.annotation.GetMapping;
 import org.springframework.web.bind.annotation.RequestMapping;
 import org.springframework.web.bind.annotation.RequestParam;
 import org.springframework.web.bind.annotation.RestController;
 
-import java.time.Instant;
+import java.math.BigDecimal;
+import java.time.Duration;
 import java.time.LocalDate;
+import java.time.LocalTime;
+import java.time.YearMonth;
+import java.time.ZoneOffset;
 import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.UUID;
+import java.util.function.Function;
+import java.util.stream.Collectors;
 
 @RestController
 @RequestMapping("/search")
@@ -23,87 +51,227 @@ import java.util.List;
 public class SearchController {
 
     private final RouteScheduleRepository scheduleRepo;
+    private final ScheduleInstanceRepository instanceRepo;
     private final AvailabilityService availabilityService;
     private final RouteSegmentRepository segmentRepo;
-    private final RouteRepository routeRepository;
+    private final CityIndexService cityIndexService;
+    private final RouteIndexService routeIndexService;
+    private final StopService stopService;
+    private final SearchCacheService searchCacheService;
+    private final AmenityMasterRepository amenityRepository;
+    private final FlexSearchService flexSearchService;
+    private final PriceCalendarService priceCalendarService;
+    private final ConnectionSearchService connectionSearchService;
+
+    private static final Set<String> SORTS = Set.of("price", "departure", "duration", "rating");
+    private static final int MAX_PAGE_SIZE = 100;
+    private static final int MAX_FLEX_WINDOW = 7;
+    private static final int MAX_LAYOVER_MINUTES = 24 * 60;
 
     @GetMapping("/cities")
     public List<String> getCities() {
-        return routeRepository.findAllDistinctCities();
+        return cityIndexService.all();
+    }
+
+    /**
+     * Top matches for a partly typed city name, tolerant of small typos.
+     */
+    @GetMapping("/cities/suggest")
+    public List<String> suggestCities(@RequestParam String q,
+                                      @RequestParam(defaultValue = "10") int limit) {
+        if (limit < 1 || limit > MAX_PAGE_SIZE) {
+            throw new RuntimeException("limit must be between 1 and " + MAX_PAGE_SIZE);
+        }
+        return cityIndexService.suggest(q, limit);
     }
+    /**
+     * Without paging, sorting or filter params this returns every trip as a plain list.
+     * With any of them it returns one page of trips, optionally as compact summaries.
+     */
     @GetMapping
-    public List<SearchResponse> search(
+    public ResponseEntity<?> search(
             @RequestParam String from,
             @RequestParam String to,
-            @RequestParam LocalDate date
+            @RequestParam LocalDate date,
+            @RequestParam(required = false) Integer page,
+            @RequestParam(required = false) Integer size,
+            @RequestParam(required = false) String sort,
+            @RequestParam(required = false) Set<BusType> busType,
+            @RequestParam(required = false) @DateTimeFormat(pattern = "HH:mm") LocalTime departAfter,
+            @RequestParam(required = false) @DateTimeFormat(pattern = "HH:mm") LocalTime departBefore,
+            @RequestParam(required = false) BigDecimal maxPrice,
+            @RequestParam(required = false) Set<String> amenities,
+            @RequestParam(required = false) String view
     ) {
-        // Normalize input - trim and capitalize first letter
-        String normalizedFrom = normalizeStopName(from);
-        String normalizedTo = normalizeStopName(to);
-        
-        System.out.println("🔍 Search request: " + from + " -> " + to + " (normalized: " + normalizedFrom + " -> " + normalizedTo + ")");
-        
-        List<RouteSchedule> schedules = scheduleRepo.findByFromAndToAndDate(
-                normalizedFrom, normalizedTo,
-                date.atStartOfDay(java.time.ZoneOffset.UTC).toInstant(),
-                date.plusDays(1).atStartOfDay(java.time.ZoneOffset.UTC).toInstant()
-        );
-        
-        return schedules.stream()
-                .filter(schedule -> matchesFrequency(schedule.getFrequency(), date))
-                .filter(schedule -> {
-                    if (schedule.getFrequency() != null) return true;
-                    return !"COMPLETED".equals(schedule.getTripStatus());
-                })
-                .map(schedule -> {
-                    Instant adjustedDeparture = adjustToDate(schedule.getDepartureTime(), date);
-                    Instant adjustedArrival = adjustToDate(schedule.getArrivalTime(), date);
-
-                    RouteSchedule adjustedSchedule = new RouteSchedule();
-                    adjustedSchedule.setId(schedule.getId());
-                    adjustedSchedule.setRoute(schedule.getRoute());
-                    adjustedSchedule.setBus(schedule.getBus());
-                    adjustedSchedule.setDepartureTime(adjustedDeparture);
-                    adjustedSchedule.setArrivalTime(adjustedArrival);
-                    adjustedSchedule.setFrequency(schedule.getFrequency());
-                    adjustedSchedule.setActive(schedule.getActive());
-                    adjustedSchedule.setTripStatus(schedule.getTripStatus());
-                    adjustedSchedule.setDelayMinutes(schedule.getDelayMinutes());
-                    adjustedSchedule.setDelayReason(schedule.getDelayReason());
-                    adjustedSchedule.setActualDepartureTime(schedule.getActualDepartureTime());
-                    adjustedSchedule.setActualArrivalTime(schedule.getActualArrivalTime());
-
-                    return availabilityService.search(adjustedSchedule, normalizedFrom, normalizedTo, null);
-                })
-                .filter(r -> r != null)
+        boolean paged = page != null || size != null || sort != null || busType != null || departAfter != null
+                || departBefore != null || maxPrice != null || amenities != null || view != null;
+        SearchQuery query = null;
+        if (paged) {
+            query = new SearchQuery(
+                    page != null ? page : 0,
+                    size != null ? size : 20,
+                    sort != null ? sort : "departure",
+                    busType != null ? Set.copyOf(busType) : null,
+                    departAfter,
+                    departBefore,
+                    maxPrice,
+                    amenities != null
+                            ? amenities.stream().map(String::trim).map(String::toUpperCase).collect(Collectors.toUnmodifiableSet())
+                            : null,
+                    "summary".equals(view));
+            validate(query, view);
+        }
+
+        // Any known spelling of a stop resolves to its canonical id
+        Integer fromStopId = stopService.resolve(from);
+        Integer toStopId = stopService.resolve(to);
+        List<UUID> routeIds = fromStopId == null || toStopId == null ? List.of()
+                : routeIndexService.findRoutes(fromStopId, toStopId).stream()
+                        .map(RouteIndexService.RouteMatch::routeId)
+                        .toList();
+
+        if (query == null) {
+            if (routeIds.isEmpty()) return ResponseEntity.ok(List.of());
+            return ResponseEntity.ok(searchCacheService.get(
+                    new SearchCacheService.SearchKey(fromStopId, toStopId, date, null),
+                    routeIds,
+                    () -> searchSchedules(routeIds, fromStopId, toStopId, date)));
+        }
+
+        SearchQuery q = query;
+        SearchPage<SearchResponse> result = routeIds.isEmpty()
+                ? new SearchPage<>(List.of(), q.page(), q.size(), 0, 0)
+                : searchCacheService.getPage(
+                        new SearchCacheService.SearchKey(fromStopId, toStopId, date, q),
+                        routeIds,
+                        () -> searchPage(routeIds, fromStopId, toStopId, date, q));
+        if (!q.summary()) return ResponseEntity.ok(result);
+        return ResponseEntity.ok(new SearchPage<>(
+                result.content().stream().map(SearchSummary::from).toList(),
+                result.page(), result.size(), result.totalElements(), result.totalPages()));
+    }
+
+    /**
+     * Cheapest fare and open seats for each day from date - window to date + window.
+     */
+    @GetMapping("/flex")
+    public List<FlexDay> flex(
+            @RequestParam String from,
+            @RequestParam String to,
+            @RequestParam LocalDate date,
+            @RequestParam(defaultValue = "3") int window
+    ) {
+        if (window < 0 || window > MAX_FLEX_WINDOW) {
+            throw new RuntimeException("window must be between 0 and " + MAX_FLEX_WINDOW);
+        }
+        Integer fromStopId = stopService.resolve(from);
+        Integer toStopId = stopService.resolve(to);
+        if (fromStopId == null || toStopId == null) {
+            return flexSearchService.search(List.of(), 0, 0, date, window);
+        }
+        List<UUID> routeIds = routeIndexService.findRoutes(fromStopId, toStopId).stream()
+                .map(RouteIndexService.RouteMatch::routeId)
                 .toList();
+        return flexSearchService.search(routeIds, fromStopId, toStopId, date, window);
     }
-    
-    private boolean matchesFrequency(String frequency, LocalDate date) {
-        if (frequency == null || frequency.equals("ONCE")) return true;
-        java.time.DayOfWeek day = date.getDayOfWeek();
-        return switch (frequency) {
-            case "DAILY" -> true;
-            case "WEEKDAYS" -> day != java.time.DayOfWeek.SATURDAY && day != java.time.DayOfWeek.SUNDAY;
-            case "WEEKENDS" -> day == java.time.DayOfWeek.SATURDAY || day == java.time.DayOfWeek.SUNDAY;
-            default -> true;
-        };
+
+    /**
+     * Cheapest open fare for each day of a month, read from the precomputed price calendar.
+     */
+    @GetMapping("/price-calendar")
+    public List<FlexDay> priceCalendar(
+            @RequestParam String from,
+            @RequestParam String to,
+            @RequestParam @DateTimeFormat(pattern = "yyyy-MM") YearMonth month
+    ) {
+        Integer fromStopId = stopService.resolve(from);
+        Integer toStopId = stopService.resolve(to);
+        if (fromStopId == null || toStopId == null) {
+            return priceCalendarService.month(0, 0, month);
+        }
+        return priceCalendarService.month(fromStopId, toStopId, month);
     }
 
-    private String normalizeStopName(String stop) {
-        if (stop == null || stop.isEmpty()) return stop;
-        // Title-case each word: "new delhi" -> "New Delhi"
-        return java.util.Arrays.stream(stop.trim().split("\\s+"))
-                .map(w -> w.substring(0, 1).toUpperCase() + w.substring(1).toLowerCase())
-                .collect(java.util.stream.Collectors.joining(" "));
+    /**
+     * Two-leg journeys with one change of bus, earliest arrival first.
+     */
+    @GetMapping("/connections")
+    public List<ConnectionResponse> connections(
+            @RequestParam String from,
+            @RequestParam String to,
+            @RequestParam LocalDate date,
+            @RequestParam(defaultValue = "30") int minLayover,
+            @RequestParam(defaultValue = "360") int maxLayover,
+            @RequestParam(defaultValue = "20") int limit
+    ) {
+        if (minLayover < 0 || maxLayover < minLayover || maxLayover > MAX_LAYOVER_MINUTES) {
+            throw new RuntimeException("Layover must satisfy 0 <= minLayover <= maxLayover <= " + MAX_LAYOVER_MINUTES);
+        }
+        if (limit < 1 || limit > MAX_PAGE_SIZE) {
+            throw new RuntimeException("limit must be between 1 and " + MAX_PAGE_SIZE);
+        }
+        Integer fromStopId = stopService.resolve(from);
+        Integer toStopId = stopService.resolve(to);
+        if (fromStopId == null || toStopId == null || fromStopId.equals(toStopId)) return List.of();
+
+        return connectionSearchService.search(fromStopId, toStopId, date,
+                Duration.ofMinutes(minLayover), Duration.ofMinutes(maxLayover), limit);
     }
-    
-    private Instant adjustToDate(Instant originalTime, LocalDate targetDate) {
-        java.time.LocalDateTime originalDateTime = java.time.LocalDateTime.ofInstant(originalTime, java.time.ZoneOffset.UTC);
-        java.time.LocalTime timeOfDay = originalDateTime.toLocalTime();
-        return targetDate.atTime(timeOfDay).toInstant(java.time.ZoneOffset.UTC);
+
+    private List<SearchResponse> searchSchedules(List<UUID> routeIds, int fromStopId, int toStopId, LocalDate date) {
+        List<ScheduleInstance> instances = instanceRepo.findBookable(routeIds, date);
+        return availabilityService.search(instances, fromStopId, toStopId, date);
     }
-    
+
+    private SearchPage<SearchResponse> searchPage(List<UUID> routeIds, int fromStopId, int toStopId,
+                                                  LocalDate date, SearchQuery query) {
+        SearchPage<SearchResponse> empty = new SearchPage<>(List.of(), query.page(), query.size(), 0, 0);
+
+        long amenityMask = 0;
+        if (query.amenities() != null && !query.amenities().isEmpty()) {
+            List<AmenityMaster> found = amenityRepository.findByCodeIn(query.amenities());
+            Set<String> usable = found.stream()
+                    .filter(a -> a.getBitIndex() != null)
+                    .map(AmenityMaster::getCode)
+                    .collect(Collectors.toSet());
+            List<String> unknown = query.amenities().stream().filter(code -> !usable.contains(code)).sorted().toList();
+            if (!unknown.isEmpty()) {
+                throw new BadRequestException("Unknown amenities: " + String.join(", ", unknown));
+            }
+            amenityMask = BusService.amenityMask(found);
+        }
+        String busTypes = query.busTypes() == null || query.busTypes().isEmpty() ? null
+                : query.busTypes().stream().map(Enum::name).collect(Collectors.joining(",", "{", "}"));
+        LocalTime after = query.departAfter() != null ? query.departAfter() : LocalTime.MIN;
+        LocalTime before = query.departBefore() != null ? query.departBefore() : LocalTime.MAX;
+
+        List<UUID> ids = instanceRepo.findBookableIds(routeIds, date,
+                date.atTime(after).toInstant(ZoneOffset.UTC),
+                date.atTime(before).toInstant(ZoneOffset.UTC),
+                amenityMask, busTypes);
+        if (ids.isEmpty()) return empty;
+
+        Map<UUID, ScheduleInstance> byId = instanceRepo.findWithScheduleByIdIn(ids).stream()
+                .collect(Collectors.toMap(ScheduleInstance::getId, Function.identity()));
+        List<ScheduleInstance> instances = ids.stream().map(byId::get).toList();
+        return availabilityService.searchPage(instances, fromStopId, toStopId, date, query);
+    }
+
+    private static void validate(SearchQuery query, String view) {
+        if (query.page() < 0) throw new RuntimeException("page must not be negative");
+        if (query.size() < 1 || query.size() > MAX_PAGE_SIZE) {
+            throw new RuntimeException("size must be between 1 and " + MAX_PAGE_SIZE);
+        }
+        if (!SORTS.contains(query.sort())) throw new RuntimeException("Unknown sort: " + query.sort());
+        if (view != null && !view.equals("summary") && !view.equals("full")) {
+            throw new RuntimeException("Unknown view: " + view);
+        }
+        if (query.departAfter() != null && query.departBefore() != null
+                && query.departAfter().isAfter(query.departBefore())) {
+            throw new RuntimeException("departAfter must not be later than departBefore");
+        }
+    }
+
     @GetMapping("/debug")
     public List<String> debugSchedules() {
         return scheduleRepo.findAll().stream()
@@ -0,0 +1,28 @@
+package com.tripgo.backend.controller;
+
+import com.tripgo.backend.dto.response.SeatMapSnapshot;
+import com.tripgo.backend.service.impl.SeatMapStreamService;
+import lombok.RequiredArgsConstructor;
+import org.springframework.messaging.handler.annotation.DestinationVariable;
+import org.springframework.messaging.simp.annotation.SubscribeMapping;
+import org.springframework.stereotype.Controller;
+
+import java.time.LocalDate;
+import java.util.UUID;
+
+/**
+ * Live seat map. Clients subscribe to /topic/seats/{scheduleId}/{travelDate} for deltas first,
+ * then to /app/seats/{scheduleId}/{travelDate}, which answers once with the current snapshot.
+ */
+@Controller
+@RequiredArgsConstructor
+public class SeatMapSocketController {
+
+    private final SeatMapStreamService seatMapStreamService;
+
+    @SubscribeMapping("/seats/{scheduleId}/{travelDate}")
+    public SeatMapSnapshot snapshot(@DestinationVariable UUID scheduleId,
+                                    @DestinationVariable String travelDate) {
+        return seatMapStreamService.snapshot(scheduleId, LocalDate.parse(travelDate));
+    }
+}
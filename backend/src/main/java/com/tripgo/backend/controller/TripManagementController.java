@@ -1,21 +1,27 @@
 package com.tripgo.backend.controller;
 
+import com.tripgo.backend.event.ScheduleChangedEvent;
 import com.tripgo.backend.model.entities.Operator;
 import com.tripgo.backend.model.entities.RouteSchedule;
+import com.tripgo.backend.model.entities.ScheduleInstance;
 import com.tripgo.backend.model.entities.User;
 import com.tripgo.backend.repository.BookingRepository;
 import com.tripgo.backend.repository.BookingSeatRepository;
 import com.tripgo.backend.repository.RouteScheduleRepository;
+import com.tripgo.backend.repository.ScheduleInstanceRepository;
 import com.tripgo.backend.security.service.CustomUserDetails;
 import com.tripgo.backend.service.impl.EmailService;
 import com.tripgo.backend.service.impl.NotificationService;
+import com.tripgo.backend.service.impl.ScheduleInstanceService;
 import com.tripgo.backend.model.enums.BookingStatus;
 import lombok.RequiredArgsConstructor;
+import org.springframework.context.ApplicationEventPublisher;
 import org.springframework.http.ResponseEntity;
 import org.springframework.security.core.Authentication;
 import org.springframework.web.bind.annotation.*;
 
 import java.time.Instant;
+import java.time.LocalDate;
 import java.util.Map;
 import java.util.UUID;
 
@@ -29,42 +35,56 @@ public class TripManagementController {
     private final BookingSeatRepository bookingSeatRepository;
     private final EmailService emailService;
     private final NotificationService notificationService;
+    private final ScheduleInstanceRepository instanceRepository;
+    private final ScheduleInstanceService scheduleInstanceService;
+    private final ApplicationEventPublisher eventPublisher;
 
     // POST /operator/schedules/{id}/start
     @PostMapping("/{scheduleId}/start")
-    public ResponseEntity<?> startTrip(@PathVariable UUID scheduleId, Authentication auth) {
+    public ResponseEntity<?> startTrip(@PathVariable UUID scheduleId,
+                                       @RequestParam(required = false) LocalDate travelDate,
+                                       Authentication auth) {
         RouteSchedule schedule = getOwnedSchedule(scheduleId, auth);
+        ScheduleInstance instance = getInstance(schedule, travelDate);
 
-        if (!"SCHEDULED".equals(schedule.getTripStatus()) && !"DELAYED".equals(schedule.getTripStatus())) {
+        if (!"SCHEDULED".equals(instance.getStatus()) && !"DELAYED".equals(instance.getStatus())) {
             return ResponseEntity.badRequest().body(Map.of("message", "Trip already started or completed"));
         }
 
-        schedule.setTripStatus("STARTED");
-        schedule.setActualDepartureTime(Instant.now());
-        scheduleRepository.save(schedule);
+        instance.setStatus("STARTED");
+        instance.setActualDepartureTime(Instant.now());
+        save(schedule, instance);
+        eventPublisher.publishEvent(new ScheduleChangedEvent(scheduleId, schedule.getRoute().getId()));
 
         return ResponseEntity.ok(Map.of(
                 "scheduleId", scheduleId,
+                "travelDate", instance.getTravelDate(),
                 "tripStatus", "STARTED",
-                "actualDepartureTime", schedule.getActualDepartureTime()
+                "actualDepartureTime", instance.getActualDepartureTime()
         ));
     }
 
     // POST /operator/schedules/{id}/complete
     @PostMapping("/{scheduleId}/complete")
-    public ResponseEntity<?> completeTrip(@PathVariable UUID scheduleId, Authentication auth) {
+    public ResponseEntity<?> completeTrip(@PathVariable UUID scheduleId,
+                                          @RequestParam(required = false) LocalDate travelDate,
+                                          Authentication auth) {
         RouteSchedule schedule = getOwnedSchedule(scheduleId, auth);
+        ScheduleInstance instance = getInstance(schedule, travelDate);
 
-        if (!"STARTED".equals(schedule.getTripStatus())) {
+        if (!"STARTED".equals(instance.getStatus())) {
             return ResponseEntity.badRequest().body(Map.of("message", "Trip must be started before completing"));
         }
 
-        schedule.setTripStatus("COMPLETED");
-        schedule.setActualArrivalTime(Instant.now());
-        scheduleRepository.save(schedule);
+        instance.setStatus("COMPLETED");
+        instance.setActualArrivalTime(Instant.now());
+        save(schedule, instance);
+        eventPublisher.publishEvent(new ScheduleChangedEvent(scheduleId, schedule.getRoute().getId()));
 
         // Send review prompt to all confirmed passengers
-        bookingRepository.findByRouteScheduleAndStatus(schedule, BookingStatus.CONFIRMED)
+        bookingRepository.findByRouteScheduleAndStatus(schedule, BookingStatus.CONFIRMED).stream()
+                .filter(booking -> booking.getTravelDate() == null
+                        || booking.getTravelDate().equals(instance.getTravelDate()))
                 .forEach(booking -> {
                     var seats = bookingSeatRepository.findByBookingId(booking.getId());
                     String from = seats.isEmpty() ? schedule.getRoute().getOrigin() : seats.get(0).getFromStop();
@@ -87,8 +107,9 @@ public class TripManagementController {
 
         return ResponseEntity.ok(Map.of(
                 "scheduleId", scheduleId,
+                "travelDate", instance.getTravelDate(),
                 "tripStatus", "COMPLETED",
-                "actualArrivalTime", schedule.getActualArrivalTime()
+                "actualArrivalTime", instance.getActualArrivalTime()
         ));
     }
 
@@ -96,31 +117,51 @@ public class TripManagementController {
     @PatchMapping("/{scheduleId}/delay")
     public ResponseEntity<?> markDelay(
             @PathVariable UUID scheduleId,
+            @RequestParam(required = false) LocalDate travelDate,
             @RequestBody Map<String, Object> body,
             Authentication auth) {
 
         RouteSchedule schedule = getOwnedSchedule(scheduleId, auth);
+        ScheduleInstance instance = getInstance(schedule, travelDate);
 
-        if ("COMPLETED".equals(schedule.getTripStatus())) {
+        if ("COMPLETED".equals(instance.getStatus())) {
             return ResponseEntity.badRequest().body(Map.of("message", "Cannot delay a completed trip"));
         }
 
         Integer delayMinutes = (Integer) body.get("delayMinutes");
         String delayReason = (String) body.getOrDefault("delayReason", "Unspecified");
 
-        schedule.setTripStatus("DELAYED");
-        schedule.setDelayMinutes(delayMinutes);
-        schedule.setDelayReason(delayReason);
-        scheduleRepository.save(schedule);
+        instance.setStatus("DELAYED");
+        instance.setDelayMinutes(delayMinutes);
+        instance.setDelayReason(delayReason);
+        save(schedule, instance);
+        eventPublisher.publishEvent(new ScheduleChangedEvent(scheduleId, schedule.getRoute().getId()));
 
         return ResponseEntity.ok(Map.of(
                 "scheduleId", scheduleId,
+                "travelDate", instance.getTravelDate(),
                 "tripStatus", "DELAYED",
                 "delayMinutes", delayMinutes,
                 "delayReason", delayReason
         ));
     }
 
+    private ScheduleInstance getInstance(RouteSchedule schedule, LocalDate travelDate) {
+        return scheduleInstanceService.instance(schedule,
+                travelDate != null ? travelDate : scheduleInstanceService.defaultTravelDate(schedule));
+    }
+
+    // Status lives on the instance; the schedule row mirrors its latest trip for existing readers
+    private void save(RouteSchedule schedule, ScheduleInstance instance) {
+        instanceRepository.save(instance);
+        schedule.setTripStatus(instance.getStatus());
+        schedule.setDelayMinutes(instance.getDelayMinutes());
+        schedule.setDelayReason(instance.getDelayReason());
+        schedule.setActualDepartureTime(instance.getActualDepartureTime());
+        schedule.setActualArrivalTime(instance.getActualArrivalTime());
+        scheduleRepository.save(schedule);
+    }
+
     private RouteSchedule getOwnedSchedule(UUID scheduleId, Authentication auth) {
         User user = ((CustomUserDetails) auth.getPrincipal()).getUser();
         Operator operator = user.getOperator();
@@ -0,0 +1,12 @@
+package com.tripgo.backend.dto.request;
+
+import jakarta.validation.constraints.NotNull;
+
+import java.time.LocalDate;
+
+public record CalendarExceptionRequest(
+        @NotNull LocalDate date,
+        // false = no service that day, true = extra run
+        @NotNull Boolean runs,
+        String note
+) {}
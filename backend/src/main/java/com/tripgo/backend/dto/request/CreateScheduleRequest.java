@@ -1,12 +1,18 @@
 package com.tripgo.backend.dto.request;
 
+import java.time.DayOfWeek;
 import java.time.Instant;
+import java.time.LocalDate;
+import java.util.List;
 import java.util.UUID;
 
 public record CreateScheduleRequest(
         UUID busId,
         Instant departureTime,
         Instant arrivalTime,
-        String frequency
+        String frequency,
+        // Service calendar of recurring schedules; weekdays default to the frequency
+        List<DayOfWeek> weekdays,
+        LocalDate validFrom,
+        LocalDate validTo
 ) {}
-
@@ -0,0 +1,23 @@
+package com.tripgo.backend.dto.request;
+
+import com.tripgo.backend.model.enums.BusType;
+
+import java.math.BigDecimal;
+import java.time.LocalTime;
+import java.util.Set;
+
+/**
+ * Paging, ordering and filters of a search. Departure bounds are UTC times of day on the
+ * travel date, both inclusive.
+ */
+public record SearchQuery(
+        int page,
+        int size,
+        String sort,
+        Set<BusType> busTypes,
+        LocalTime departAfter,
+        LocalTime departBefore,
+        BigDecimal maxPrice,
+        Set<String> amenities,
+        boolean summary
+) {}
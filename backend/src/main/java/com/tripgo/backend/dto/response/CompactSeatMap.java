@@ -0,0 +1,8 @@
+package com.tripgo.backend.dto.response;
+
+// available: base64 of a little-endian bitset (bit i = byte i/8, bit i%8), set when seat i of the layout can be booked
+public record CompactSeatMap(
+        String layoutId,
+        int seatCount,
+        String available
+) {}
@@ -0,0 +1,20 @@
+package com.tripgo.backend.dto.response;
+
+import java.math.BigDecimal;
+import java.time.Instant;
+import java.time.LocalDate;
+import java.util.UUID;
+
+public record ConnectionLeg(
+        UUID scheduleId,
+        LocalDate travelDate,
+        String busName,
+        String busType,
+        String operatorName,
+        String from,
+        String to,
+        Instant departureTime,
+        Instant arrivalTime,
+        BigDecimal fare,
+        int availableSeats
+) {}
@@ -0,0 +1,16 @@
+package com.tripgo.backend.dto.response;
+
+import java.math.BigDecimal;
+import java.time.Instant;
+
+public record ConnectionResponse(
+        ConnectionLeg firstLeg,
+        ConnectionLeg secondLeg,
+        String transferStop,
+        long layoverMinutes,
+        Instant departureTime,
+        Instant arrivalTime,
+        long totalMinutes,
+        BigDecimal totalFare,
+        int availableSeats
+) {}
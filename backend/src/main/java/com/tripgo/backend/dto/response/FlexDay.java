@@ -0,0 +1,11 @@
+package com.tripgo.backend.dto.response;
+
+import java.math.BigDecimal;
+import java.time.LocalDate;
+
+public record FlexDay(
+        LocalDate date,
+        BigDecimal cheapestFare,
+        int availableSeats,
+        int trips
+) {}
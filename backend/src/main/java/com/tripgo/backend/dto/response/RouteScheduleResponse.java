@@ -1,6 +1,9 @@
 package com.tripgo.backend.dto.response;
 
+import java.time.DayOfWeek;
 import java.time.Instant;
+import java.time.LocalDate;
+import java.util.Set;
 import java.util.UUID;
 
 public record RouteScheduleResponse(
@@ -10,6 +13,9 @@ public record RouteScheduleResponse(
         Instant departureTime,
         Instant arrivalTime,
         String frequency,
+        Set<DayOfWeek> weekdays,
+        LocalDate validFrom,
+        LocalDate validTo,
         boolean active,
         // Driver
         UUID driverId,
@@ -0,0 +1,17 @@
+package com.tripgo.backend.dto.response;
+
+import java.time.DayOfWeek;
+import java.time.LocalDate;
+import java.util.List;
+import java.util.Set;
+import java.util.UUID;
+
+public record ScheduleCalendarResponse(
+        UUID scheduleId,
+        Set<DayOfWeek> weekdays,
+        LocalDate validFrom,
+        LocalDate validTo,
+        List<CalendarException> exceptions
+) {
+    public record CalendarException(LocalDate date, boolean runs, String note) {}
+}
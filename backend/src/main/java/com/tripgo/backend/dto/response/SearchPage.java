@@ -0,0 +1,11 @@
+package com.tripgo.backend.dto.response;
+
+import java.util.List;
+
+public record SearchPage<T>(
+        List<T> content,
+        int page,
+        int size,
+        long totalElements,
+        int totalPages
+) {}
@@ -0,0 +1,42 @@
+package com.tripgo.backend.dto.response;
+
+import java.math.BigDecimal;
+import java.time.Instant;
+import java.util.List;
+import java.util.Map;
+import java.util.TreeMap;
+import java.util.UUID;
+
+public record SearchSummary(
+        UUID scheduleId,
+        String busName,
+        String busCode,
+        String busType,
+        String operatorName,
+        Instant departureTime,
+        Instant arrivalTime,
+        List<String> amenities,
+        Map<String, BigDecimal> minFareByType,
+        int availableSeats,
+        String tripStatus,
+        Integer delayMinutes
+) {
+    public static SearchSummary from(SearchResponse r) {
+        Map<String, BigDecimal> minFareByType = new TreeMap<>();
+        r.faresByType().forEach((type, fare) -> minFareByType.put(type, fare.totalFare()));
+        return new SearchSummary(
+                r.scheduleId(),
+                r.busName(),
+                r.busCode(),
+                r.busType(),
+                r.operatorName(),
+                r.departureTime(),
+                r.arrivalTime(),
+                r.amenities(),
+                minFareByType,
+                r.availableSeats(),
+                r.tripStatus(),
+                r.delayMinutes()
+        );
+    }
+}
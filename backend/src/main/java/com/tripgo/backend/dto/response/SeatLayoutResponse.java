@@ -0,0 +1,9 @@
+package com.tripgo.backend.dto.response;
+
+import java.util.List;
+
+// Seat order here is the bit order of CompactSeatMap.available
+public record SeatLayoutResponse(
+        String layoutId,
+        List<SeatLayoutSeat> seats
+) {}
@@ -0,0 +1,14 @@
+package com.tripgo.backend.dto.response;
+
+import com.fasterxml.jackson.annotation.JsonProperty;
+
+import java.util.UUID;
+
+public record SeatLayoutSeat(
+        UUID id,
+        String seatNumber,
+        String seatType,
+        @JsonProperty("isLadiesOnly") boolean isLadiesOnly,
+        @JsonProperty("isWindow") boolean isWindow,
+        @JsonProperty("isAisle") boolean isAisle
+) {}
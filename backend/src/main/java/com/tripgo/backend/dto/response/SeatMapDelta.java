@@ -0,0 +1,9 @@
+package com.tripgo.backend.dto.response;
+
+// state: LOCKED, RELEASED, BOOKED or CANCELLED
+public record SeatMapDelta(
+        String seatNumber,
+        int fromIdx,
+        int toIdx,
+        String state
+) {}
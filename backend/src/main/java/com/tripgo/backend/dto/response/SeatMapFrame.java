@@ -0,0 +1,11 @@
+package com.tripgo.backend.dto.response;
+
+import java.time.LocalDate;
+import java.util.List;
+import java.util.UUID;
+
+public record SeatMapFrame(
+        UUID scheduleId,
+        LocalDate travelDate,
+        List<SeatMapDelta> deltas
+) {}
@@ -0,0 +1,16 @@
+package com.tripgo.backend.dto.response;
+
+import com.fasterxml.jackson.annotation.JsonProperty;
+
+import java.util.UUID;
+
+public record SeatMapSeat(
+        UUID id,
+        String seatNumber,
+        String seatType,
+        @JsonProperty("isLadiesOnly") boolean isLadiesOnly,
+        @JsonProperty("isWindow") boolean isWindow,
+        @JsonProperty("isAisle") boolean isAisle,
+        @JsonProperty("isBlocked") boolean isBlocked,
+        boolean available
+) {}
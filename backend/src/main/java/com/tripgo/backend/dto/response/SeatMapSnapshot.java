@@ -0,0 +1,13 @@
+package com.tripgo.backend.dto.response;
+
+import java.time.LocalDate;
+import java.util.List;
+import java.util.UUID;
+
+public record SeatMapSnapshot(
+        UUID scheduleId,
+        LocalDate travelDate,
+        List<String> stops,        // stop at position i is stops[i]
+        List<SeatRange> booked,
+        List<SeatRange> locked
+) {}
@@ -0,0 +1,8 @@
+package com.tripgo.backend.dto.response;
+
+// A seat taken on segment positions [fromIdx, toIdx) of the route
+public record SeatRange(
+        String seatNumber,
+        int fromIdx,
+        int toIdx
+) {}
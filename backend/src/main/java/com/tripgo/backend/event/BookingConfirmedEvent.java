@@ -0,0 +1,10 @@
+package com.tripgo.backend.event;
+
+import java.time.LocalDate;
+import java.util.UUID;
+
+public record BookingConfirmedEvent(
+        UUID bookingId,
+        UUID scheduleId,
+        LocalDate travelDate
+) {}
@@ -0,0 +1,8 @@
+package com.tripgo.backend.event;
+
+import java.util.UUID;
+
+// Fares, segments or the route itself changed
+public record RouteChangedEvent(
+        UUID routeId
+) {}
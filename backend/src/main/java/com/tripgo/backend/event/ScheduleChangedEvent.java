@@ -0,0 +1,9 @@
+package com.tripgo.backend.event;
+
+import java.util.UUID;
+
+// A schedule was created, edited or deleted, or its trip status changed
+public record ScheduleChangedEvent(
+        UUID scheduleId,
+        UUID routeId
+) {}
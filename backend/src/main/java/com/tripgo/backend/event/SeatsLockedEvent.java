@@ -0,0 +1,16 @@
+package com.tripgo.backend.event;
+
+import java.time.Instant;
+import java.time.LocalDate;
+import java.util.List;
+import java.util.UUID;
+
+public record SeatsLockedEvent(
+        UUID lockToken,
+        UUID scheduleId,
+        LocalDate travelDate,
+        List<String> seatNumbers,
+        int fromIdx,
+        int toIdx,
+        Instant expiresAt
+) {}
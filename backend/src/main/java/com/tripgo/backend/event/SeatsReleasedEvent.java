@@ -0,0 +1,14 @@
+package com.tripgo.backend.event;
+
+import java.time.LocalDate;
+import java.util.List;
+import java.util.UUID;
+
+public record SeatsReleasedEvent(
+        UUID lockToken,
+        UUID scheduleId,
+        LocalDate travelDate,
+        List<String> seatNumbers,
+        int fromIdx,
+        int toIdx
+) {}
@@ -0,0 +1,9 @@
+package com.tripgo.backend.exception;
+
+// The call may still have gone through at the provider; only a retry with the same key tells
+public class PaymentGatewayTimeoutException extends PaymentGatewayUnavailableException {
+
+    public PaymentGatewayTimeoutException(String message) {
+        super(message);
+    }
+}
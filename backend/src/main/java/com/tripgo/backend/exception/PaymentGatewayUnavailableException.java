@@ -0,0 +1,8 @@
+package com.tripgo.backend.exception;
+
+public class PaymentGatewayUnavailableException extends RuntimeException {
+
+    public PaymentGatewayUnavailableException(String message) {
+        super(message);
+    }
+}
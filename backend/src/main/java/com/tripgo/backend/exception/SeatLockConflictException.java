@@ -0,0 +1,17 @@
+package com.tripgo.backend.exception;
+
+import java.util.List;
+
+public class SeatLockConflictException extends RuntimeException {
+
+    private final List<String> seats;
+
+    public SeatLockConflictException(List<String> seats) {
+        super("Seats already locked: " + String.join(", ", seats));
+        this.seats = List.copyOf(seats);
+    }
+
+    public List<String> getSeats() {
+        return seats;
+    }
+}
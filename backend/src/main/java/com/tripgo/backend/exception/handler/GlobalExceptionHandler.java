@@ -4,6 +4,7 @@ import com.tripgo.backend.dto.response.ApiError;
 import com.tripgo.backend.exception.BadRequestException;
 import com.tripgo.backend.exception.BadRequestException;
 import com.tripgo.backend.exception.ResourceNotFoundException;
+import com.tripgo.backend.exception.SeatLockConflictException;
 import jakarta.servlet.http.HttpServletRequest;
 import org.springframework.http.HttpStatus;
 import org.springframework.http.ResponseEntity;
@@ -14,6 +15,7 @@ import org.springframework.web.bind.annotation.ExceptionHandler;
 import org.springframework.web.bind.annotation.RestControllerAdvice;
 
 import java.time.LocalDateTime;
+import java.util.LinkedHashMap;
 import java.util.Map;
 import java.util.stream.Collectors;
 
@@ -54,6 +56,23 @@ public class GlobalExceptionHandler {
         return ResponseEntity.status(HttpStatus.NOT_FOUND).body(error);
     }
 
+    // 🔴 409 - Seats locked by someone else
+    @ExceptionHandler(SeatLockConflictException.class)
+    public ResponseEntity<Map<String, Object>> handleSeatLockConflict(
+            SeatLockConflictException ex,
+            HttpServletRequest request) {
+
+        Map<String, Object> body = new LinkedHashMap<>();
+        body.put("timestamp", LocalDateTime.now());
+        body.put("status", HttpStatus.CONFLICT.value());
+        body.put("error", "Conflict");
+        body.put("message", ex.getMessage());
+        body.put("path", request.getRequestURI());
+        body.put("seats", ex.getSeats());
+
+        return ResponseEntity.status(HttpStatus.CONFLICT).body(body);
+    }
+
     // 🔴 Validation Errors (DTO @Valid)
     @ExceptionHandler(MethodArgumentNotValidException.class)
     public ResponseEntity<ApiError> handleValidation(
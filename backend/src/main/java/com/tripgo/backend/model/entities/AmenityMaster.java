@@ -24,6 +24,10 @@ public class AmenityMaster {
 
     private String description;
 
+    // Bit of this amenity in Bus.amenityMask
+    @Column(name = "bit_index", unique = true)
+    private Integer bitIndex;
+
     @ManyToMany(mappedBy = "amenities")
     private List<Bus> buses;  // Reverse side
 }
@@ -72,7 +72,7 @@ public class Booking {
     private BigDecimal refundAmount;
 
     @Column(name = "refund_status")
-    private String refundStatus; // PENDING, PROCESSED, NA
+    private String refundStatus; // PENDING, PROCESSED, UNKNOWN, NA
 
     @CreationTimestamp
     @Column(name = "created_at", updatable = false)
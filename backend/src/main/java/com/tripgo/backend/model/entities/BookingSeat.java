@@ -47,4 +47,10 @@ public class BookingSeat {
     @Column(name = "to_stop")
     private String toStop;
 
+    @Column(name = "from_stop_id")
+    private Integer fromStopId;
+
+    @Column(name = "to_stop_id")
+    private Integer toStopId;
+
 }
@@ -56,6 +56,10 @@ public class Bus {
     )
     private List<AmenityMaster> amenities;
 
+    // OR of 1 << AmenityMaster.bitIndex over the amenities above
+    @Column(name = "amenity_mask", nullable = false)
+    private long amenityMask;
+
 
     @Column(name = "active")
     private boolean active = false;
@@ -0,0 +1,50 @@
+package com.tripgo.backend.model.entities;
+
+import jakarta.persistence.*;
+import lombok.*;
+import org.hibernate.annotations.UpdateTimestamp;
+
+import java.math.BigDecimal;
+import java.time.Instant;
+import java.time.LocalDate;
+import java.util.UUID;
+
+// Cheapest open fare between two stops on one travel date
+@Entity
+@Table(name = "price_calendar",
+        uniqueConstraints = {
+                @UniqueConstraint(columnNames = {"from_stop_id", "to_stop_id", "travel_date"})
+        })
+@Getter
+@Setter
+@NoArgsConstructor
+@AllArgsConstructor
+@Builder
+public class PriceCalendarDay {
+
+    @Id
+    @GeneratedValue(strategy = GenerationType.UUID)
+    private UUID id;
+
+    @Column(name = "from_stop_id", nullable = false)
+    private Integer fromStopId;
+
+    @Column(name = "to_stop_id", nullable = false)
+    private Integer toStopId;
+
+    @Column(name = "travel_date", nullable = false)
+    private LocalDate travelDate;
+
+    @Column(name = "min_fare", precision = 10, scale = 2)
+    private BigDecimal minFare;
+
+    @Column(name = "available_seats", nullable = false)
+    private int availableSeats;
+
+    @Column(nullable = false)
+    private int trips;
+
+    @UpdateTimestamp
+    @Column(name = "updated_at")
+    private Instant updatedAt;
+}
@@ -6,6 +6,7 @@ import org.hibernate.annotations.CreationTimestamp;
 import org.hibernate.annotations.UpdateTimestamp;
 
 import java.time.Instant;
+import java.time.LocalDate;
 import java.time.ZonedDateTime;
 import java.util.UUID;
 
@@ -39,6 +40,16 @@ public class RouteSchedule {
     @Column
     private String frequency;
 
+    // Service calendar of recurring schedules: bit 0 = Monday .. bit 6 = Sunday
+    @Column(name = "weekday_mask")
+    private Integer weekdayMask;
+
+    @Column(name = "valid_from")
+    private LocalDate validFrom;
+
+    @Column(name = "valid_to")
+    private LocalDate validTo;
+
     @Column
     private Boolean active = true;
 
@@ -31,6 +31,12 @@ public class RouteSegment {
     @Column(name = "to_stop", nullable = false)
     private String toStop;
 
+    @Column(name = "from_stop_id", nullable = false)
+    private Integer fromStopId;
+
+    @Column(name = "to_stop_id", nullable = false)
+    private Integer toStopId;
+
     @Column(name = "distance_km")
     private BigDecimal distanceKm;
 
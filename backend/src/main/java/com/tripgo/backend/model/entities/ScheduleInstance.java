@@ -0,0 +1,68 @@
+package com.tripgo.backend.model.entities;
+
+import jakarta.persistence.*;
+import lombok.*;
+import org.hibernate.annotations.CreationTimestamp;
+import org.hibernate.annotations.UpdateTimestamp;
+
+import java.time.Instant;
+import java.time.LocalDate;
+import java.util.UUID;
+
+// One concrete trip of a schedule on a travel date
+@Entity
+@Table(name = "schedule_instances",
+        uniqueConstraints = {
+                @UniqueConstraint(columnNames = {"schedule_id", "travel_date"})
+        })
+@Getter
+@Setter
+@NoArgsConstructor
+@AllArgsConstructor
+@Builder
+public class ScheduleInstance {
+
+    @Id
+    @GeneratedValue(strategy = GenerationType.UUID)
+    private UUID id;
+
+    @ManyToOne(fetch = FetchType.LAZY)
+    @JoinColumn(name = "schedule_id", nullable = false)
+    private RouteSchedule schedule;
+
+    @Column(name = "route_id", nullable = false)
+    private UUID routeId;
+
+    @Column(name = "travel_date", nullable = false)
+    private LocalDate travelDate;
+
+    @Column(name = "departure_time", nullable = false)
+    private Instant departureTime;
+
+    @Column(name = "arrival_time", nullable = false)
+    private Instant arrivalTime;
+
+    @Column(nullable = false)
+    @Builder.Default
+    private String status = "SCHEDULED"; // SCHEDULED, STARTED, COMPLETED, DELAYED, CANCELLED
+
+    @Column(name = "delay_minutes")
+    private Integer delayMinutes;
+
+    @Column(name = "delay_reason")
+    private String delayReason;
+
+    @Column(name = "actual_departure_time")
+    private Instant actualDepartureTime;
+
+    @Column(name = "actual_arrival_time")
+    private Instant actualArrivalTime;
+
+    @CreationTimestamp
+    @Column(name = "created_at", updatable = false)
+    private Instant createdAt;
+
+    @UpdateTimestamp
+    @Column(name = "updated_at")
+    private Instant updatedAt;
+}
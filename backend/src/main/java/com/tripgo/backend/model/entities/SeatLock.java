@@ -9,13 +9,8 @@ import java.time.LocalDate;
 import java.util.UUID;
 
 @Entity
-@Table(
-        name = "seat_locks",
-        uniqueConstraints = @UniqueConstraint(
-                name = "uq_route_schedule_seat_lock",
-                columnNames = {"route_schedule_id", "seat_number", "travel_date"}
-        )
-)
+// Overlapping locks of one seat are rejected by the ex_seat_locks_overlap exclusion constraint
+@Table(name = "seat_locks")
 @Getter
 @Setter
 @NoArgsConstructor
@@ -43,6 +38,19 @@ public class SeatLock {
     @Column(name = "to_stop", nullable = false)
     private String toStop;
 
+    @Column(name = "from_stop_id")
+    private Integer fromStopId;
+
+    @Column(name = "to_stop_id")
+    private Integer toStopId;
+
+    // Segment positions covered by the lock: [fromIdx, toIdx)
+    @Column(name = "from_idx", nullable = false)
+    private Integer fromIdx;
+
+    @Column(name = "to_idx", nullable = false)
+    private Integer toIdx;
+
     @Column(name = "lock_token", nullable = false)
     private UUID lockToken;
 
@@ -0,0 +1,28 @@
+package com.tripgo.backend.model.entities;
+
+import jakarta.persistence.*;
+import lombok.*;
+
+@Entity
+@Table(name = "stop_aliases")
+@Getter
+@Setter
+@NoArgsConstructor
+@AllArgsConstructor
+@Builder
+public class StopAlias {
+
+    @Id
+    @GeneratedValue(strategy = GenerationType.IDENTITY)
+    private Integer id;
+
+    @ManyToOne(fetch = FetchType.LAZY)
+    @JoinColumn(name = "stop_id", nullable = false)
+    private Stop stop;
+
+    @Column(nullable = false)
+    private String alias;  // Bangalore, Bengaluru, etc.
+
+    @Column(name = "normalized_alias", nullable = false, unique = true)
+    private String normalizedAlias;
+}
@@ -3,7 +3,11 @@ package com.tripgo.backend.repository;
 import com.tripgo.backend.model.entities.AmenityMaster;
 import org.springframework.data.jpa.repository.JpaRepository;
 
+import java.util.Collection;
+import java.util.List;
 import java.util.UUID;
 
 public interface AmenityMasterRepository extends JpaRepository<AmenityMaster, UUID> {
+
+    List<AmenityMaster> findByCodeIn(Collection<String> codes);
 }
\ No newline at end of file
@@ -22,6 +22,14 @@ public interface BookingRepository extends JpaRepository<Booking, UUID> {
     List<Booking> findByUserAndStatus(User user, BookingStatus status);
     List<Booking> findByUser(User user);
 
+    // Travel dates of a schedule that hold paid or in-payment bookings; null for bookings made before travel dates
+    @Query("SELECT DISTINCT b.travelDate FROM Booking b WHERE b.routeSchedule.id = :scheduleId AND b.status IN ('CONFIRMED', 'PENDING')")
+    List<java.time.LocalDate> findActiveTravelDates(@Param("scheduleId") UUID scheduleId);
+
+    // PENDING bookings no payment intent was ever recorded for, e.g. after a gateway timeout nobody retried
+    @Query("SELECT b FROM Booking b WHERE b.status = 'PENDING' AND b.createdAt < :cutoff AND NOT EXISTS (SELECT p FROM Payment p WHERE p.booking = b)")
+    List<Booking> findPendingWithoutPaymentBefore(@Param("cutoff") java.time.Instant cutoff);
+
     @Query("SELECT b FROM Booking b WHERE b.user = :user AND b.routeSchedule.id = :scheduleId AND b.status = 'CONFIRMED' ORDER BY b.createdAt DESC")
     List<Booking> findConfirmedByUserAndSchedule(@Param("user") User user, @Param("scheduleId") UUID scheduleId);
 
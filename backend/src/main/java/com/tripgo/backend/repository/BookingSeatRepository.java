@@ -6,6 +6,7 @@ import org.springframework.data.jpa.repository.JpaRepository;
 import org.springframework.data.jpa.repository.Query;
 import org.springframework.data.repository.query.Param;
 
+import java.util.Collection;
 import java.util.List;
 import java.util.UUID;
 
@@ -14,8 +15,38 @@ public interface BookingSeatRepository extends JpaRepository<BookingSeat, UUID>
     @Query("SELECT bs FROM BookingSeat bs WHERE bs.booking.routeSchedule = :schedule")
     List<BookingSeat> findByRouteSchedule(@Param("schedule") RouteSchedule schedule);
 
+    // Confirmed seats of several schedules; recurring schedules are narrowed to the given travel date
+    @Query("""
+        SELECT bs FROM BookingSeat bs
+        JOIN FETCH bs.booking b
+        WHERE b.routeSchedule.id IN :scheduleIds
+        AND b.status = 'CONFIRMED'
+        AND (b.routeSchedule.frequency IS NULL OR b.travelDate IS NULL OR b.travelDate = :travelDate)
+        """)
+    List<BookingSeat> findConfirmedByScheduleIds(@Param("scheduleIds") Collection<UUID> scheduleIds,
+                                                 @Param("travelDate") java.time.LocalDate travelDate);
+
     List<BookingSeat> findByBookingId(UUID bookingId);
 
+    @Query("SELECT bs FROM BookingSeat bs JOIN FETCH bs.booking WHERE bs.booking.id IN :bookingIds")
+    List<BookingSeat> findByBookingIdIn(@Param("bookingIds") Collection<UUID> bookingIds);
+
+    // [stop id, confirmed bookings boarding there]
+    @Query("""
+        SELECT bs.fromStopId, COUNT(DISTINCT bs.booking.id) FROM BookingSeat bs
+        WHERE bs.booking.status = 'CONFIRMED' AND bs.fromStopId IS NOT NULL
+        GROUP BY bs.fromStopId
+        """)
+    List<Object[]> countConfirmedBookingsByFromStop();
+
+    // [stop id, confirmed bookings alighting there]
+    @Query("""
+        SELECT bs.toStopId, COUNT(DISTINCT bs.booking.id) FROM BookingSeat bs
+        WHERE bs.booking.status = 'CONFIRMED' AND bs.toStopId IS NOT NULL
+        GROUP BY bs.toStopId
+        """)
+    List<Object[]> countConfirmedBookingsByToStop();
+
     @Query("SELECT COUNT(bs) > 0 FROM BookingSeat bs WHERE bs.booking.routeSchedule.id = :scheduleId AND bs.seatNumber = :seatNumber AND bs.booking.status = 'CONFIRMED' AND bs.booking.travelDate = :travelDate")
     boolean existsByRouteScheduleIdAndSeatNumber(@Param("scheduleId") UUID scheduleId, @Param("seatNumber") String seatNumber, @Param("travelDate") java.time.LocalDate travelDate);
 }
@@ -3,7 +3,10 @@ package com.tripgo.backend.repository;
 import com.tripgo.backend.model.entities.Bus;
 import com.tripgo.backend.model.entities.Operator;
 import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.query.Param;
 
+import java.util.Collection;
 import java.util.List;
 import java.util.UUID;
 
@@ -13,4 +16,7 @@ public interface BusRepository extends JpaRepository<Bus, UUID> {
     List<Bus> findByOperatorAndActiveTrue(Operator operator);
     
     List<Bus> findByOperatorAndActiveFalse(Operator operator);
+
+    @Query("SELECT DISTINCT b FROM Bus b LEFT JOIN FETCH b.operator LEFT JOIN FETCH b.amenities WHERE b.id IN :ids")
+    List<Bus> findWithAmenitiesByIdIn(@Param("ids") Collection<UUID> ids);
 }
\ No newline at end of file
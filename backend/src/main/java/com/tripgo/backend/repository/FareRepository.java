@@ -7,6 +7,7 @@ import org.springframework.data.jpa.repository.JpaRepository;
 import org.springframework.data.jpa.repository.Query;
 import org.springframework.data.repository.query.Param;
 
+import java.util.Collection;
 import java.util.List;
 import java.util.Optional;
 import java.util.UUID;
@@ -30,4 +31,8 @@ public interface FareRepository extends JpaRepository<Fare, UUID> {
     // Legacy - kept for backward compat (returns route-level fare)
     @Query("SELECT f FROM Fare f WHERE f.routeSegment.id = :segmentId AND f.seatType = :seatType AND f.bus IS NULL")
     Optional<Fare> findByRouteSegmentIdAndSeatType(@Param("segmentId") UUID segmentId, @Param("seatType") String seatType);
+
+    // All fares (route-level and per-bus) of several routes in one round trip
+    @Query("SELECT f FROM Fare f WHERE f.routeSegment.route.id IN :routeIds")
+    List<Fare> findByRouteIds(@Param("routeIds") Collection<UUID> routeIds);
 }
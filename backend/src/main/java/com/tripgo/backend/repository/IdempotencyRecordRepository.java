@@ -0,0 +1,51 @@
+package com.tripgo.backend.repository;
+
+import com.tripgo.backend.model.entities.IdempotencyRecord;
+import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Modifying;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.query.Param;
+
+import java.time.Instant;
+import java.util.UUID;
+
+public interface IdempotencyRecordRepository extends JpaRepository<IdempotencyRecord, String> {
+
+    // 1 when the key is new, expired, or left IN_PROGRESS by a request that never finished
+    @Modifying
+    @Query(value = """
+        INSERT INTO idempotency_keys (id, user_id, idempotency_key, request_hash, status, locked_until, expires_at)
+        VALUES (:id, :userId, :key, :requestHash, 'IN_PROGRESS', :lockedUntil, :expiresAt)
+        ON CONFLICT (id) DO UPDATE SET
+          request_hash = EXCLUDED.request_hash,
+          status = 'IN_PROGRESS',
+          response_status = NULL,
+          response_body = NULL,
+          locked_until = EXCLUDED.locked_until,
+          created_at = now(),
+          expires_at = EXCLUDED.expires_at
+        WHERE idempotency_keys.expires_at < :now
+           OR (idempotency_keys.status = 'IN_PROGRESS' AND idempotency_keys.locked_until < :now)
+        """, nativeQuery = true)
+    int claim(
+        @Param("id") String id,
+        @Param("userId") UUID userId,
+        @Param("key") String key,
+        @Param("requestHash") String requestHash,
+        @Param("lockedUntil") Instant lockedUntil,
+        @Param("expiresAt") Instant expiresAt,
+        @Param("now") Instant now
+    );
+
+    @Modifying
+    @Query("UPDATE IdempotencyRecord r SET r.status = 'COMPLETED', r.responseStatus = :status, r.responseBody = :body WHERE r.id = :id")
+    int complete(@Param("id") String id, @Param("status") int status, @Param("body") String body);
+
+    @Modifying
+    @Query("DELETE FROM IdempotencyRecord r WHERE r.id = :id AND r.status = 'IN_PROGRESS'")
+    int release(@Param("id") String id);
+
+    @Modifying
+    @Query("DELETE FROM IdempotencyRecord r WHERE r.expiresAt < :now")
+    int deleteExpired(@Param("now") Instant now);
+}
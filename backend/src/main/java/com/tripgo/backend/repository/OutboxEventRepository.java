@@ -0,0 +1,23 @@
+package com.tripgo.backend.repository;
+
+import com.tripgo.backend.model.entities.OutboxEvent;
+import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.query.Param;
+
+import java.time.Instant;
+import java.util.List;
+import java.util.UUID;
+
+public interface OutboxEventRepository extends JpaRepository<OutboxEvent, UUID> {
+
+    // Due events, row-locked; rows another dispatcher holds are skipped rather than waited on
+    @Query(value = """
+        SELECT * FROM outbox_events
+        WHERE status = 'PENDING' AND next_attempt_at <= :now
+        ORDER BY next_attempt_at
+        LIMIT :limit
+        FOR UPDATE SKIP LOCKED
+        """, nativeQuery = true)
+    List<OutboxEvent> lockDue(@Param("now") Instant now, @Param("limit") int limit);
+}
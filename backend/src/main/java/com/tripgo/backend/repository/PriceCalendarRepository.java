@@ -0,0 +1,51 @@
+package com.tripgo.backend.repository;
+
+import com.tripgo.backend.model.entities.PriceCalendarDay;
+import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Modifying;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.query.Param;
+
+import java.time.LocalDate;
+import java.util.List;
+import java.util.Optional;
+import java.util.UUID;
+
+public interface PriceCalendarRepository extends JpaRepository<PriceCalendarDay, UUID> {
+
+    List<PriceCalendarDay> findByFromStopIdAndToStopIdAndTravelDateBetweenOrderByTravelDate(
+            Integer fromStopId, Integer toStopId, LocalDate from, LocalDate to);
+
+    @Modifying
+    @Query("""
+        DELETE FROM PriceCalendarDay p
+        WHERE p.fromStopId = :fromStopId
+        AND p.toStopId = :toStopId
+        AND p.travelDate BETWEEN :fromDate AND :toDate
+        """)
+    void deleteRange(
+        @Param("fromStopId") Integer fromStopId,
+        @Param("toStopId") Integer toStopId,
+        @Param("fromDate") LocalDate fromDate,
+        @Param("toDate") LocalDate toDate
+    );
+
+    @Modifying
+    @Query("DELETE FROM PriceCalendarDay p WHERE p.travelDate < :date")
+    void deleteBefore(@Param("date") LocalDate date);
+
+    // Stops of a route at its last recomputation, comma-separated
+    @Query(value = "SELECT stop_ids FROM price_calendar_routes WHERE route_id = :routeId", nativeQuery = true)
+    Optional<String> findRouteStops(@Param("routeId") UUID routeId);
+
+    @Modifying
+    @Query(value = """
+        INSERT INTO price_calendar_routes (route_id, stop_ids) VALUES (:routeId, :stopIds)
+        ON CONFLICT (route_id) DO UPDATE SET stop_ids = EXCLUDED.stop_ids, updated_at = now()
+        """, nativeQuery = true)
+    void saveRouteStops(@Param("routeId") UUID routeId, @Param("stopIds") String stopIds);
+
+    @Modifying
+    @Query(value = "DELETE FROM price_calendar_routes WHERE route_id = :routeId", nativeQuery = true)
+    void deleteRouteStops(@Param("routeId") UUID routeId);
+}
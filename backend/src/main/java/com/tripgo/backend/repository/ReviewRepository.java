@@ -8,6 +8,7 @@ import org.springframework.data.jpa.repository.Query;
 import org.springframework.data.repository.query.Param;
 
 import java.time.Instant;
+import java.util.Collection;
 import java.util.List;
 import java.util.UUID;
 
@@ -23,6 +24,15 @@ public interface ReviewRepository extends JpaRepository<Review, UUID> {
     Page<Review> findByRouteScheduleId(UUID scheduleId, Pageable pageable);
 
     List<Review> findByBusId(UUID busId);
+
+    // [busId, average rating] of visible reviews
+    @Query("""
+        SELECT r.bus.id, AVG(r.rating) FROM Review r
+        WHERE r.bus.id IN :busIds
+        AND (r.hidden IS NULL OR r.hidden = false)
+        GROUP BY r.bus.id
+        """)
+    List<Object[]> findAverageRatingsByBusIds(@Param("busIds") Collection<UUID> busIds);
     List<Review> findByUserId(UUID userId);
 
     // Admin query - native SQL to avoid null parameter type issues
@@ -16,26 +16,12 @@ public interface RouteScheduleRepository extends JpaRepository<RouteSchedule, UU
     List<RouteSchedule> findByRoute(Route route);
 
     @Query("""
-        SELECT DISTINCT rs FROM RouteSchedule rs
-        JOIN rs.route r
-        JOIN r.segments seg1
-        JOIN r.segments seg2
-        WHERE LOWER(TRIM(seg1.fromStop)) = LOWER(TRIM(:from))
-        AND LOWER(TRIM(seg2.toStop)) = LOWER(TRIM(:to))
-        AND seg1.seq <= seg2.seq
-        AND rs.active = true
-        AND rs.tripStatus NOT IN ('STARTED', 'COMPLETED', 'CANCELLED')
-        AND (
-            (rs.frequency IS NOT NULL AND rs.frequency != 'ONCE')
-            OR (rs.departureTime >= :startOfDay AND rs.departureTime < :endOfDay)
-        )
+        SELECT rs FROM RouteSchedule rs
+        WHERE rs.active = true
+        AND rs.frequency IS NOT NULL
+        AND rs.frequency <> 'ONCE'
         """)
-    List<RouteSchedule> findByFromAndToAndDate(
-        @Param("from") String from,
-        @Param("to") String to,
-        @Param("startOfDay") Instant startOfDay,
-        @Param("endOfDay") Instant endOfDay
-    );
+    List<RouteSchedule> findActiveRecurring();
 
     @Query("""
         SELECT COUNT(rs) > 0 FROM RouteSchedule rs 
@@ -49,11 +35,4 @@ public interface RouteScheduleRepository extends JpaRepository<RouteSchedule, UU
         @Param("departureTime") Instant departureTime,
         @Param("arrivalTime") Instant arrivalTime
     );
-
-    @Query("""
-        SELECT rs FROM RouteSchedule rs
-        WHERE rs.tripStatus NOT IN ('COMPLETED', 'CANCELLED')
-        AND rs.arrivalTime < :now
-        """)
-    List<RouteSchedule> findPastUncompletedSchedules(@Param("now") Instant now);
 }
@@ -3,11 +3,14 @@ package com.tripgo.backend.repository;
 import com.tripgo.backend.model.entities.Route;
 import com.tripgo.backend.model.entities.RouteSegment;
 import org.springframework.data.jpa.repository.JpaRepository;
+
+import java.util.Collection;
 import java.util.List;
 import java.util.UUID;
 
 public interface RouteSegmentRepository extends JpaRepository<RouteSegment, UUID> {
     List<RouteSegment> findByRouteOrderBySeq(Route route);
 
+    List<RouteSegment> findByRouteIdInOrderBySeqAsc(Collection<UUID> routeIds);
 
 }
\ No newline at end of file
@@ -0,0 +1,19 @@
+package com.tripgo.backend.repository;
+
+import com.tripgo.backend.model.entities.ScheduleCalendarException;
+import org.springframework.data.jpa.repository.JpaRepository;
+
+import java.time.LocalDate;
+import java.util.Collection;
+import java.util.List;
+import java.util.Optional;
+import java.util.UUID;
+
+public interface ScheduleCalendarExceptionRepository extends JpaRepository<ScheduleCalendarException, UUID> {
+
+    List<ScheduleCalendarException> findByScheduleIdOrderByServiceDate(UUID scheduleId);
+
+    List<ScheduleCalendarException> findByScheduleIdIn(Collection<UUID> scheduleIds);
+
+    Optional<ScheduleCalendarException> findByScheduleIdAndServiceDate(UUID scheduleId, LocalDate serviceDate);
+}
@@ -0,0 +1,98 @@
+package com.tripgo.backend.repository;
+
+import com.tripgo.backend.model.entities.ScheduleInstance;
+import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.query.Param;
+
+import java.time.Instant;
+import java.time.LocalDate;
+import java.util.Collection;
+import java.util.List;
+import java.util.Optional;
+import java.util.UUID;
+
+public interface ScheduleInstanceRepository extends JpaRepository<ScheduleInstance, UUID> {
+
+    Optional<ScheduleInstance> findByScheduleIdAndTravelDate(UUID scheduleId, LocalDate travelDate);
+
+    List<ScheduleInstance> findByScheduleId(UUID scheduleId);
+
+    List<ScheduleInstance> findByTravelDateBetween(LocalDate from, LocalDate to);
+
+    // Bookable trips of the given routes on one date
+    @Query("""
+        SELECT si FROM ScheduleInstance si
+        JOIN FETCH si.schedule s
+        JOIN FETCH s.route
+        WHERE si.routeId IN :routeIds
+        AND si.travelDate = :travelDate
+        AND s.active = true
+        AND si.status NOT IN ('STARTED', 'COMPLETED', 'CANCELLED')
+        ORDER BY si.departureTime
+        """)
+    List<ScheduleInstance> findBookable(
+        @Param("routeIds") Collection<UUID> routeIds,
+        @Param("travelDate") LocalDate travelDate
+    );
+
+    // Bookable trips of the given routes over a range of dates
+    @Query("""
+        SELECT si FROM ScheduleInstance si
+        JOIN FETCH si.schedule s
+        JOIN FETCH s.route
+        WHERE si.routeId IN :routeIds
+        AND si.travelDate BETWEEN :fromDate AND :toDate
+        AND s.active = true
+        AND si.status NOT IN ('STARTED', 'COMPLETED', 'CANCELLED')
+        ORDER BY si.travelDate, si.departureTime
+        """)
+    List<ScheduleInstance> findBookableBetween(
+        @Param("routeIds") Collection<UUID> routeIds,
+        @Param("fromDate") LocalDate fromDate,
+        @Param("toDate") LocalDate toDate
+    );
+
+    /**
+     * Ids of bookable trips passing the search filters, in departure order. busTypes is a
+     * Postgres text array literal ("{SLEEPER,AC_SLEEPER}") or null for any type.
+     */
+    @Query(value = """
+        SELECT si.id FROM schedule_instances si
+        JOIN route_schedules rs ON rs.id = si.schedule_id
+        JOIN buses b ON b.id = rs.bus_id
+        WHERE si.route_id IN (:routeIds)
+        AND si.travel_date = :travelDate
+        AND rs.active = true
+        AND si.status NOT IN ('STARTED', 'COMPLETED', 'CANCELLED')
+        AND si.departure_time >= :departFrom
+        AND si.departure_time <= :departTo
+        AND (b.amenity_mask & :amenityMask) = :amenityMask
+        AND (CAST(:busTypes AS text[]) IS NULL OR b.bus_type = ANY(CAST(:busTypes AS text[])))
+        ORDER BY si.departure_time
+        """, nativeQuery = true)
+    List<UUID> findBookableIds(
+        @Param("routeIds") Collection<UUID> routeIds,
+        @Param("travelDate") LocalDate travelDate,
+        @Param("departFrom") Instant departFrom,
+        @Param("departTo") Instant departTo,
+        @Param("amenityMask") long amenityMask,
+        @Param("busTypes") String busTypes
+    );
+
+    @Query("""
+        SELECT si FROM ScheduleInstance si
+        JOIN FETCH si.schedule s
+        JOIN FETCH s.route
+        WHERE si.id IN :ids
+        """)
+    List<ScheduleInstance> findWithScheduleByIdIn(@Param("ids") Collection<UUID> ids);
+
+    @Query("""
+        SELECT si FROM ScheduleInstance si
+        JOIN FETCH si.schedule
+        WHERE si.status NOT IN ('COMPLETED', 'CANCELLED')
+        AND si.arrivalTime < :now
+        """)
+    List<ScheduleInstance> findPastUncompleted(@Param("now") Instant now);
+}
@@ -5,9 +5,12 @@ import com.tripgo.backend.model.entities.SeatLock;
 import org.springframework.data.jpa.repository.JpaRepository;
 import org.springframework.data.jpa.repository.Modifying;
 import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.query.Param;
 
-import java.util.List;
+import java.time.Instant;
 import java.time.LocalDate;
+import java.util.Collection;
+import java.util.List;
 import java.util.Optional;
 import java.util.UUID;
 
@@ -15,7 +18,53 @@ public interface SeatLockRepository extends JpaRepository<SeatLock, UUID> {
 
     List<SeatLock> findByRouteScheduleIdAndTravelDate(UUID scheduleId, LocalDate travelDate);
 
+    List<SeatLock> findByLockToken(UUID lockToken);
+
+    // Unexpired locks of a token that belong to the given user
+    @Query("SELECT sl FROM SeatLock sl WHERE sl.lockToken = :lockToken AND sl.lockedBy.id = :userId AND sl.expiresAt > :now")
+    List<SeatLock> findActiveByLockTokenAndUser(@Param("lockToken") UUID lockToken, @Param("userId") UUID userId, @Param("now") Instant now);
+
+    @Modifying
+    @Query("DELETE FROM SeatLock sl WHERE sl.lockToken = :lockToken")
+    int deleteByLockToken(@Param("lockToken") UUID lockToken);
+
     @Modifying
-    @Query("DELETE FROM SeatLock sl WHERE sl.expiresAt < CURRENT_TIMESTAMP")
-    void deleteExpired();
+    @Query("DELETE FROM SeatLock sl WHERE sl.lockToken = :lockToken AND sl.lockedBy.id = :userId")
+    int deleteByLockTokenAndUser(@Param("lockToken") UUID lockToken, @Param("userId") UUID userId);
+
+    List<SeatLock> findByExpiresAtLessThanEqual(Instant now);
+
+    @Query("SELECT sl FROM SeatLock sl WHERE sl.routeSchedule.id = :scheduleId AND sl.travelDate = :travelDate AND sl.expiresAt <= :now")
+    List<SeatLock> findExpired(@Param("scheduleId") UUID scheduleId, @Param("travelDate") LocalDate travelDate, @Param("now") Instant now);
+
+    @Query("SELECT sl FROM SeatLock sl WHERE sl.lockToken IN :lockTokens AND sl.expiresAt <= :now")
+    List<SeatLock> findExpiredByLockTokenIn(@Param("lockTokens") Collection<UUID> lockTokens, @Param("now") Instant now);
+
+    /**
+     * Locks all seats in one statement. Seats whose segment range overlaps an existing lock
+     * violate ex_seat_locks_overlap and are skipped; the seat numbers actually inserted are returned.
+     */
+    @Query(value = """
+            INSERT INTO seat_locks (id, route_schedule_id, seat_number, travel_date, from_stop, to_stop,
+                                    from_stop_id, to_stop_id, from_idx, to_idx, lock_token,
+                                    locked_by_user_id, expires_at, created_at)
+            SELECT gen_random_uuid(), :scheduleId, seat, :travelDate, :fromStop, :toStop,
+                   CAST(:fromStopId AS INTEGER), CAST(:toStopId AS INTEGER), :fromIdx, :toIdx, :lockToken,
+                   :userId, :expiresAt, now()
+            FROM unnest(CAST(:seats AS text[])) AS seat
+            ON CONFLICT DO NOTHING
+            RETURNING seat_number
+            """, nativeQuery = true)
+    List<String> insertLocks(@Param("scheduleId") UUID scheduleId,
+                             @Param("travelDate") LocalDate travelDate,
+                             @Param("seats") String[] seats,
+                             @Param("fromStop") String fromStop,
+                             @Param("toStop") String toStop,
+                             @Param("fromStopId") Integer fromStopId,
+                             @Param("toStopId") Integer toStopId,
+                             @Param("fromIdx") int fromIdx,
+                             @Param("toIdx") int toIdx,
+                             @Param("lockToken") UUID lockToken,
+                             @Param("userId") UUID userId,
+                             @Param("expiresAt") Instant expiresAt);
 }
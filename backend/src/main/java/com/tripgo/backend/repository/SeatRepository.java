@@ -6,12 +6,17 @@ import org.springframework.data.jpa.repository.JpaRepository;
 import org.springframework.data.jpa.repository.Modifying;
 import org.springframework.data.jpa.repository.Query;
 
+import java.util.Collection;
 import java.util.List;
 import java.util.UUID;
 
 public interface SeatRepository extends JpaRepository<Seat, UUID> {
     List<Seat> findByBus(Bus bus);
 
+    List<Seat> findByBusIdIn(Collection<UUID> busIds);
+
+    List<Seat> findByBusIdAndSeatNumberIn(UUID busId, Collection<String> seatNumbers);
+
     @Modifying
     @Query("DELETE FROM Seat s WHERE s.bus = :bus")
     void deleteByBus(Bus bus);
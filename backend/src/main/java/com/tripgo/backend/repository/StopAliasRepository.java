@@ -0,0 +1,18 @@
+package com.tripgo.backend.repository;
+
+import com.tripgo.backend.model.entities.StopAlias;
+import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.query.Param;
+
+import java.util.List;
+import java.util.Optional;
+
+public interface StopAliasRepository extends JpaRepository<StopAlias, Integer> {
+
+    @Query("SELECT a FROM StopAlias a JOIN FETCH a.stop")
+    List<StopAlias> findAllWithStop();
+
+    @Query("SELECT a FROM StopAlias a JOIN FETCH a.stop WHERE a.normalizedAlias = :normalizedAlias")
+    Optional<StopAlias> findByNormalizedAlias(@Param("normalizedAlias") String normalizedAlias);
+}
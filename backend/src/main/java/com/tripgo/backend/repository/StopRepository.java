@@ -0,0 +1,7 @@
+package com.tripgo.backend.repository;
+
+import com.tripgo.backend.model.entities.Stop;
+import org.springframework.data.jpa.repository.JpaRepository;
+
+public interface StopRepository extends JpaRepository<Stop, Integer> {
+}
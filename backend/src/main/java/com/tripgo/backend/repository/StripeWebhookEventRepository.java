@@ -0,0 +1,45 @@
+package com.tripgo.backend.repository;
+
+import com.tripgo.backend.model.entities.StripeWebhookEvent;
+import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Modifying;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.query.Param;
+
+import java.time.Instant;
+import java.util.List;
+
+public interface StripeWebhookEventRepository extends JpaRepository<StripeWebhookEvent, String> {
+
+    // 1 when the event is new, 0 for a redelivery
+    @Modifying
+    @Query(value = """
+        INSERT INTO stripe_webhook_events (event_id, event_type, booking_id, payment_intent_id, lock_token, payload)
+        VALUES (:eventId, :eventType, CAST(:bookingId AS uuid), :paymentIntentId, :lockToken, :payload)
+        ON CONFLICT (event_id) DO NOTHING
+        """, nativeQuery = true)
+    int insertIfAbsent(
+        @Param("eventId") String eventId,
+        @Param("eventType") String eventType,
+        @Param("bookingId") String bookingId,
+        @Param("paymentIntentId") String paymentIntentId,
+        @Param("lockToken") String lockToken,
+        @Param("payload") String payload
+    );
+
+    // Due events in arrival order, row-locked; rows another instance holds are skipped. An event
+    // waits while an earlier event of the same booking is still pending, leased or in backoff
+    @Query(value = """
+        SELECT * FROM stripe_webhook_events e
+        WHERE e.status = 'PENDING' AND e.next_attempt_at <= :now
+          AND (e.booking_id IS NULL OR NOT EXISTS (
+            SELECT 1 FROM stripe_webhook_events earlier
+            WHERE earlier.booking_id = e.booking_id
+              AND earlier.status = 'PENDING'
+              AND (earlier.received_at, earlier.event_id) < (e.received_at, e.event_id)))
+        ORDER BY e.received_at
+        LIMIT :limit
+        FOR UPDATE SKIP LOCKED
+        """, nativeQuery = true)
+    List<StripeWebhookEvent> lockDue(@Param("now") Instant now, @Param("limit") int limit);
+}
@@ -5,6 +5,7 @@ import com.tripgo.backend.security.filter.RateLimitFilter;
 import com.tripgo.backend.security.jwt.JwtAuthenticationEntryPoint;
 import com.tripgo.backend.security.jwt.JwtAuthenticationFilter;
 import com.tripgo.backend.security.service.CustomUserDetailsService;
+import jakarta.servlet.DispatcherType;
 import lombok.AllArgsConstructor;
 import org.springframework.context.annotation.Bean;
 import org.springframework.context.annotation.Configuration;
@@ -43,6 +44,8 @@ public class SecurityConfig {
                 )
                 .sessionManagement(session -> session.sessionCreationPolicy(SessionCreationPolicy.STATELESS))
                 .authorizeHttpRequests(auth->auth
+                        // Async controller results are dispatched again after the request was already authorized
+                        .dispatcherTypeMatchers(DispatcherType.ASYNC).permitAll()
                         .requestMatchers(
                                 "/auth/**",
                                 "/error",
@@ -60,9 +63,11 @@ public class SecurityConfig {
                                 "/booking/schedules/*/policies",
                                 "/booking/schedules/*/features",
                                 "/payments/webhook",
-                                "/ws/**")
+                                "/ws/**",
+                                "/actuator/health")
                         .permitAll()
                         .requestMatchers("/admin/**").hasRole("ADMIN")
+                        .requestMatchers("/actuator/**").hasRole("ADMIN")
                         .requestMatchers("/operator/**").hasRole("OPERATOR")
                         .requestMatchers("/operators/**").hasRole("OPERATOR")
                         .requestMatchers(org.springframework.http.HttpMethod.PUT, "/booking/schedules/*/policies").hasRole("OPERATOR")
@@ -1,13 +1,31 @@
 package com.tripgo.backend.service.impl;
 
+import com.tripgo.backend.dto.request.SearchQuery;
+import com.tripgo.backend.dto.response.FareResult;
+import com.tripgo.backend.dto.response.SearchPage;
 import com.tripgo.backend.dto.response.SearchResponse;
+import com.tripgo.backend.dto.response.SearchResult;
 import com.tripgo.backend.dto.response.SeatAvailability;
+import com.tripgo.backend.model.entities.Bus;
 import com.tripgo.backend.model.entities.RouteSchedule;
+import com.tripgo.backend.model.entities.ScheduleInstance;
+import com.tripgo.backend.repository.BusRepository;
+import com.tripgo.backend.repository.ReviewRepository;
+import com.tripgo.backend.util.FanOut;
 import lombok.RequiredArgsConstructor;
 import org.springframework.stereotype.Service;
 
+import java.math.BigDecimal;
+import java.time.Duration;
+import java.time.LocalDate;
 import java.util.Collections;
+import java.util.Comparator;
+import java.util.HashMap;
 import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.UUID;
+import java.util.function.Function;
 import java.util.stream.Collectors;
 
 @Service
@@ -15,21 +33,107 @@ import java.util.stream.Collectors;
 public class AvailabilityService {
 
     private final SeatAvailabilityService seatAvailabilityService;
+    private final BusRepository busRepository;
+    private final ReviewRepository reviewRepository;
+    private final FanOut fanOut;
 
-    public SearchResponse search(RouteSchedule schedule, String from, String to, String seatType) {
-        var bus = schedule.getBus();
-        if (bus == null) return null;
-        var result = seatAvailabilityService.searchAvailability(schedule, from, to, seatType);
+    /**
+     * Builds the search responses for all candidate trips of one search.
+     * Availability is computed in one batch and buses (with operator and amenities)
+     * are fetched together, so the number of queries does not grow with the schedule count.
+     * The two are independent and may run in parallel.
+     */
+    public List<SearchResponse> search(List<ScheduleInstance> instances, int fromStopId, int toStopId, LocalDate travelDate) {
+        List<RouteSchedule> schedules = instances.stream().map(ScheduleInstance::getSchedule).toList();
+        Set<UUID> busIds = schedules.stream()
+                .filter(s -> s.getBus() != null)
+                .map(s -> s.getBus().getId())
+                .collect(Collectors.toSet());
+        if (busIds.isEmpty()) return List.of();
+
+        FanOut.Both<Map<UUID, SearchResult>, List<Bus>> loaded = fanOut.both("search",
+                () -> seatAvailabilityService.searchAvailability(schedules, fromStopId, toStopId, travelDate),
+                () -> busRepository.findWithAmenitiesByIdIn(busIds));
+        Map<UUID, SearchResult> results = loaded.first();
+        if (results.isEmpty()) return List.of();
+        Map<UUID, Bus> buses = loaded.second().stream()
+                .collect(Collectors.toMap(Bus::getId, Function.identity()));
+
+        return instances.stream()
+                .filter(si -> results.containsKey(si.getSchedule().getId()))
+                .map(si -> toResponse(si, buses.get(si.getSchedule().getBus().getId()), results.get(si.getSchedule().getId())))
+                .toList();
+    }
+
+    /**
+     * One page of a filtered search. Fares come from the cached fare matrices, so the price
+     * filter and every ordering run over all candidates in memory; seats and buses are only
+     * loaded for the trips on the requested page.
+     */
+    public SearchPage<SearchResponse> searchPage(List<ScheduleInstance> instances, int fromStopId, int toStopId,
+                                                 LocalDate travelDate, SearchQuery query) {
+        List<RouteSchedule> schedules = instances.stream().map(ScheduleInstance::getSchedule).toList();
+        Map<UUID, Map<String, FareResult>> fares = seatAvailabilityService.fares(schedules, fromStopId, toStopId);
+
+        Map<UUID, BigDecimal> minFares = new HashMap<>();
+        fares.forEach((scheduleId, byType) -> byType.values().stream()
+                .map(FareResult::totalFare)
+                .min(Comparator.naturalOrder())
+                .ifPresent(min -> minFares.put(scheduleId, min)));
+
+        List<ScheduleInstance> candidates = instances.stream()
+                .filter(si -> minFares.containsKey(si.getSchedule().getId()))
+                .filter(si -> query.maxPrice() == null
+                        || minFares.get(si.getSchedule().getId()).compareTo(query.maxPrice()) <= 0)
+                .sorted(comparator(query.sort(), busRatings(instances, query.sort()), minFares))
+                .toList();
+
+        int from = Math.min(query.page() * query.size(), candidates.size());
+        int to = Math.min(from + query.size(), candidates.size());
+        List<SearchResponse> content = search(candidates.subList(from, to), fromStopId, toStopId, travelDate);
+        int totalPages = (candidates.size() + query.size() - 1) / query.size();
+        return new SearchPage<>(content, query.page(), query.size(), candidates.size(), totalPages);
+    }
+
+    private Comparator<ScheduleInstance> comparator(String sort, Map<UUID, Double> ratings, Map<UUID, BigDecimal> minFares) {
+        Comparator<ScheduleInstance> byDeparture = Comparator.comparing(ScheduleInstance::getDepartureTime);
+        Comparator<ScheduleInstance> order = switch (sort == null ? "departure" : sort) {
+            case "price" -> Comparator.comparing(si -> minFares.get(si.getSchedule().getId()));
+            case "duration" -> Comparator.comparing(si -> Duration.between(si.getDepartureTime(), si.getArrivalTime()));
+            // Highest rated first, unrated trips last
+            case "rating" -> Comparator.comparing(
+                    (ScheduleInstance si) -> ratings.get(si.getSchedule().getBus().getId()),
+                    Comparator.nullsLast(Comparator.reverseOrder()));
+            case "departure" -> byDeparture;
+            default -> throw new RuntimeException("Unknown sort: " + sort);
+        };
+        return order.thenComparing(byDeparture);
+    }
+
+    private Map<UUID, Double> busRatings(List<ScheduleInstance> instances, String sort) {
+        if (!"rating".equals(sort)) return Map.of();
+        Set<UUID> busIds = instances.stream()
+                .map(si -> si.getSchedule().getBus().getId())
+                .collect(Collectors.toSet());
+        if (busIds.isEmpty()) return Map.of();
+        Map<UUID, Double> ratings = new HashMap<>();
+        for (Object[] row : reviewRepository.findAverageRatingsByBusIds(busIds)) {
+            ratings.put((UUID) row[0], ((Number) row[1]).doubleValue());
+        }
+        return ratings;
+    }
+
+    private SearchResponse toResponse(ScheduleInstance instance, Bus bus, SearchResult result) {
         var operator = bus.getOperator();
 
         return new SearchResponse(
-                schedule.getId(),
+                instance.getSchedule().getId(),
                 bus.getName(),
                 bus.getBusCode(),
                 bus.getBusType() != null ? bus.getBusType().toString() : "STANDARD",
                 operator != null ? operator.getName() : "Unknown",
-                schedule.getDepartureTime(),
-                schedule.getArrivalTime(),
+                instance.getDepartureTime(),
+                instance.getArrivalTime(),
                 bus.getAmenities() != null ?
                     bus.getAmenities().stream()
                         .map(a -> a.getCode())
@@ -39,10 +143,10 @@ public class AvailabilityService {
                 result.seatAvailability(),
                 result.seatAvailability().size(),
                 (int) result.seatAvailability().stream().filter(SeatAvailability::available).count(),
-                schedule.getTripStatus() != null ? schedule.getTripStatus() : "SCHEDULED",
-                schedule.getDelayMinutes() != null ? schedule.getDelayMinutes() : 0,
-                schedule.getActualDepartureTime(),
-                schedule.getActualArrivalTime()
+                instance.getStatus(),
+                instance.getDelayMinutes() != null ? instance.getDelayMinutes() : 0,
+                instance.getActualDepartureTime(),
+                instance.getActualArrivalTime()
         );
     }
 }
@@ -0,0 +1,233 @@
+package com.tripgo.backend.service.impl;
+
+import com.tripgo.backend.event.BookingConfirmedEvent;
+import com.tripgo.backend.model.entities.Booking;
+import com.tripgo.backend.model.entities.BookingSeat;
+import com.tripgo.backend.model.entities.Payment;
+import com.tripgo.backend.model.entities.Ticket;
+import com.tripgo.backend.model.entities.User;
+import com.tripgo.backend.model.enums.BookingStatus;
+import com.tripgo.backend.model.enums.PaymentStatus;
+import com.tripgo.backend.model.enums.TicketStatus;
+import com.tripgo.backend.repository.BookingRepository;
+import com.tripgo.backend.repository.BookingSeatRepository;
+import com.tripgo.backend.repository.PaymentRepository;
+import com.tripgo.backend.repository.TicketRepository;
+import com.tripgo.backend.repository.UserRepository;
+import jakarta.transaction.Transactional;
+import lombok.RequiredArgsConstructor;
+import org.springframework.context.ApplicationEventPublisher;
+import org.springframework.stereotype.Service;
+
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+import java.util.UUID;
+
+/**
+ * Payment outcome of a booking. The status change, the payment record and the outbox events
+ * for its side effects (ticket, lock release, notifications, emails) commit in one
+ * transaction; OutboxDispatcher carries the side effects out afterwards through the
+ * handler methods below, each of which is safe to run more than once. Emails are read here
+ * as plain values and sent by the dispatcher after the read transaction has ended.
+ */
+@Service
+@RequiredArgsConstructor
+public class BookingConfirmationService {
+
+    public static final String ISSUE_TICKET = "ISSUE_TICKET";
+    public static final String RELEASE_LOCK = "RELEASE_LOCK";
+    public static final String NOTIFY_BOOKING_CONFIRMED = "NOTIFY_BOOKING_CONFIRMED";
+    public static final String EMAIL_BOOKING_CONFIRMED = "EMAIL_BOOKING_CONFIRMED";
+    public static final String EMAIL_OPERATOR_NEW_BOOKING = "EMAIL_OPERATOR_NEW_BOOKING";
+    public static final String NOTIFY_PAYMENT_FAILED = "NOTIFY_PAYMENT_FAILED";
+    public static final String EMAIL_PAYMENT_FAILED = "EMAIL_PAYMENT_FAILED";
+
+    private final BookingRepository bookingRepository;
+    private final PaymentRepository paymentRepository;
+    private final TicketRepository ticketRepository;
+    private final BookingSeatRepository bookingSeatRepository;
+    private final UserRepository userRepository;
+    private final NotificationService notificationService;
+    private final OutboxService outboxService;
+    private final ApplicationEventPublisher eventPublisher;
+
+    /**
+     * Confirms a paid booking. Returns false when it was already confirmed or cancelled.
+     */
+    @Transactional
+    public boolean confirm(UUID bookingId, String paymentIntentId, String lockToken) {
+        Booking booking = bookingRepository.findById(bookingId)
+                .orElseThrow(() -> new RuntimeException("Booking not found"));
+        if (booking.getStatus() == BookingStatus.CONFIRMED
+                || booking.getStatus() == BookingStatus.CANCELLED) return false;
+
+        booking.setStatus(BookingStatus.CONFIRMED);
+        bookingRepository.save(booking);
+
+        paymentRepository.findByProviderTransactionId(paymentIntentId).ifPresentOrElse(p -> {
+            if (p.getStatus() != PaymentStatus.SUCCESS) {
+                p.setStatus(PaymentStatus.SUCCESS);
+                paymentRepository.save(p);
+            }
+        }, () -> paymentRepository.save(Payment.builder()
+                .booking(booking)
+                .provider("STRIPE")
+                .providerTransactionId(paymentIntentId)
+                .amount(booking.getPayableAmount())
+                .status(PaymentStatus.SUCCESS)
+                .build()));
+
+        outboxService.enqueue(ISSUE_TICKET, bookingId, Map.of());
+        if (lockToken != null) {
+            outboxService.enqueue(RELEASE_LOCK, bookingId, Map.of("lockToken", lockToken));
+        }
+        outboxService.enqueue(NOTIFY_BOOKING_CONFIRMED, bookingId, Map.of());
+        outboxService.enqueue(EMAIL_BOOKING_CONFIRMED, bookingId, Map.of());
+        outboxService.enqueue(EMAIL_OPERATOR_NEW_BOOKING, bookingId, Map.of());
+
+        eventPublisher.publishEvent(new BookingConfirmedEvent(
+                booking.getId(), booking.getRouteSchedule().getId(), booking.getTravelDate()));
+        return true;
+    }
+
+    /**
+     * Marks a booking whose payment failed. Returns false, changing nothing, when the booking
+     * has already moved on (confirmed by a later payment, cancelled or rescheduled).
+     */
+    @Transactional
+    public boolean fail(UUID bookingId, String paymentIntentId) {
+        Booking booking = bookingRepository.findById(bookingId)
+                .orElseThrow(() -> new RuntimeException("Booking not found"));
+        if (booking.getStatus() != BookingStatus.PENDING
+                && booking.getStatus() != BookingStatus.FAILED) return false;
+
+        booking.setStatus(BookingStatus.FAILED);
+        bookingRepository.save(booking);
+
+        paymentRepository.findByProviderTransactionId(paymentIntentId)
+                .ifPresent(p -> {
+                    p.setStatus(PaymentStatus.FAILED);
+                    paymentRepository.save(p);
+                });
+
+        outboxService.enqueue(NOTIFY_PAYMENT_FAILED, bookingId, Map.of());
+        outboxService.enqueue(EMAIL_PAYMENT_FAILED, bookingId, Map.of());
+        return true;
+    }
+
+    @Transactional
+    public void issueTicket(UUID bookingId) {
+        Booking booking = booking(bookingId);
+        if (ticketRepository.findByBooking(booking).isPresent()) return;
+        String ticketNo = "TKT" + UUID.randomUUID().toString().replace("-", "").substring(0, 10).toUpperCase();
+        ticketRepository.save(Ticket.builder()
+                .booking(booking)
+                .ticketNo(ticketNo)
+                .status(TicketStatus.ACTIVE)
+                .build());
+    }
+
+    @Transactional
+    public void notifyConfirmed(UUID bookingId) {
+        Booking booking = booking(bookingId);
+        notificationService.send(booking.getUser(),
+                "BOOKING_CONFIRMED",
+                "Booking Confirmed! 🎉",
+                "Your booking " + booking.getBookingCode() + " is confirmed. Have a great trip!",
+                "/bookings");
+
+        User opUser = userRepository.findByOperator(booking.getOperator()).orElse(null);
+        if (opUser != null) {
+            notificationService.send(opUser,
+                    "NEW_BOOKING",
+                    "New Booking Received",
+                    "Booking " + booking.getBookingCode() + " confirmed on " + booking.getRouteSchedule().getBus().getName(),
+                    "/operator/bookings?bookingCode=" + booking.getBookingCode());
+        }
+    }
+
+    @Transactional
+    public EmailService.BookingEmail confirmationEmail(UUID bookingId) {
+        Booking booking = booking(bookingId);
+        List<BookingSeat> seats = bookingSeatRepository.findByBookingId(booking.getId());
+        Map<String, Object> emailDetails = new LinkedHashMap<>();
+        emailDetails.put("bookingCode", booking.getBookingCode());
+        emailDetails.put("from", seats.isEmpty() ? "-" : seats.get(0).getFromStop());
+        emailDetails.put("to", seats.isEmpty() ? "-" : seats.get(0).getToStop());
+        emailDetails.put("busName", booking.getRouteSchedule().getBus().getName());
+        emailDetails.put("operatorName", booking.getOperator().getName());
+        emailDetails.put("departureTime", booking.getRouteSchedule().getDepartureTime().toString());
+        emailDetails.put("arrivalTime", booking.getRouteSchedule().getArrivalTime().toString());
+        emailDetails.put("totalAmount", booking.getTotalAmount());
+        emailDetails.put("gstAmount", booking.getGstAmount());
+        emailDetails.put("payableAmount", booking.getPayableAmount());
+        emailDetails.put("passengers", passengers(seats));
+        return new EmailService.BookingEmail(booking.getUser().getEmail(), booking.getUser().getFirstName(), emailDetails);
+    }
+
+    /**
+     * Empty when the operator has no user account to email.
+     */
+    @Transactional
+    public Optional<EmailService.BookingEmail> operatorBookingEmail(UUID bookingId) {
+        Booking booking = booking(bookingId);
+        User opUser = userRepository.findByOperator(booking.getOperator()).orElse(null);
+        if (opUser == null) return Optional.empty();
+
+        List<BookingSeat> seats = bookingSeatRepository.findByBookingId(booking.getId());
+        Map<String, Object> details = new LinkedHashMap<>();
+        details.put("operatorName", booking.getOperator().getName());
+        details.put("bookingCode", booking.getBookingCode());
+        details.put("from", seats.isEmpty() ? "-" : seats.get(0).getFromStop());
+        details.put("to", seats.isEmpty() ? "-" : seats.get(0).getToStop());
+        details.put("busName", booking.getRouteSchedule().getBus().getName());
+        details.put("departureTime", booking.getRouteSchedule().getDepartureTime());
+        details.put("seatNumbers", seats.stream().map(BookingSeat::getSeatNumber).reduce((a, b) -> a + ", " + b).orElse("-"));
+        details.put("payableAmount", booking.getPayableAmount());
+        details.put("passengers", passengers(seats));
+        return Optional.of(new EmailService.BookingEmail(opUser.getEmail(), opUser.getFirstName(), details));
+    }
+
+    @Transactional
+    public void notifyPaymentFailed(UUID bookingId) {
+        Booking booking = booking(bookingId);
+        notificationService.send(booking.getUser(),
+                "PAYMENT_FAILED",
+                "Payment Failed",
+                "Your payment for the trip could not be processed. Please try again.",
+                "/search-results");
+    }
+
+    @Transactional
+    public EmailService.BookingEmail paymentFailedEmail(UUID bookingId) {
+        Booking booking = booking(bookingId);
+        List<BookingSeat> failedSeats = bookingSeatRepository.findByBookingId(booking.getId());
+        Map<String, Object> details = new LinkedHashMap<>();
+        details.put("from", failedSeats.isEmpty() ? "-" : failedSeats.get(0).getFromStop());
+        details.put("to", failedSeats.isEmpty() ? "-" : failedSeats.get(0).getToStop());
+        details.put("busName", booking.getRouteSchedule().getBus().getName());
+        details.put("amount", booking.getPayableAmount());
+        return new EmailService.BookingEmail(booking.getUser().getEmail(), booking.getUser().getFirstName(), details);
+    }
+
+    private static List<Map<String, Object>> passengers(List<BookingSeat> seats) {
+        return seats.stream().map(s -> {
+            Map<String, Object> p = new LinkedHashMap<>();
+            p.put("seatNumber", s.getSeatNumber());
+            if (s.getPassenger() != null) {
+                p.put("firstName", s.getPassenger().getFirstName());
+                p.put("lastName", s.getPassenger().getLastName() != null ? s.getPassenger().getLastName() : "");
+                p.put("age", s.getPassenger().getAge());
+                p.put("gender", s.getPassenger().getGender());
+            }
+            return p;
+        }).toList();
+    }
+
+    private Booking booking(UUID bookingId) {
+        return bookingRepository.findById(bookingId)
+                .orElseThrow(() -> new RuntimeException("Booking not found"));
+    }
+}
@@ -14,6 +14,7 @@ import com.tripgo.backend.repository.UserRepository;
 import lombok.RequiredArgsConstructor;
 import org.springframework.stereotype.Service;
 
+import java.util.Collection;
 import java.util.Comparator;
 import java.util.List;
 import java.util.UUID;
@@ -45,6 +46,7 @@ public class BusService {
                         .busType(req.busType())
                         .totalSeats(req.totalSeats())
                         .amenities(amenities)
+                        .amenityMask(amenityMask(amenities))
                         .build()
         );
 
@@ -124,6 +126,7 @@ public class BusService {
         bus.setBusType(req.busType());
         bus.setTotalSeats(req.totalSeats());
         bus.setAmenities(amenities);
+        bus.setAmenityMask(amenityMask(amenities));
 
         busRepository.save(bus);
 
@@ -142,6 +145,11 @@ public class BusService {
         busRepository.save(bus);
     }
 
-
-
+    public static long amenityMask(Collection<AmenityMaster> amenities) {
+        long mask = 0;
+        for (AmenityMaster amenity : amenities) {
+            if (amenity.getBitIndex() != null) mask |= 1L << amenity.getBitIndex();
+        }
+        return mask;
+    }
 }
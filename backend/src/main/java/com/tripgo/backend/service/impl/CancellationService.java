@@ -1,7 +1,6 @@
 package com.tripgo.backend.service.impl;
 
-import com.stripe.model.Refund;
-import com.stripe.param.RefundCreateParams;
+import com.tripgo.backend.event.BookingCancelledEvent;
 import com.tripgo.backend.model.entities.Booking;
 import com.tripgo.backend.model.entities.Payment;
 import com.tripgo.backend.model.entities.RouteSchedule;
@@ -14,6 +13,7 @@ import com.tripgo.backend.repository.PaymentRepository;
 import com.tripgo.backend.repository.TicketRepository;
 import com.tripgo.backend.repository.BookingRepository;
 import lombok.RequiredArgsConstructor;
+import org.springframework.context.ApplicationEventPublisher;
 import org.springframework.stereotype.Service;
 import org.springframework.transaction.annotation.Transactional;
 
@@ -21,16 +21,22 @@ import java.math.BigDecimal;
 import java.math.RoundingMode;
 import java.time.Instant;
 import java.time.temporal.ChronoUnit;
+import java.util.Map;
+import java.util.UUID;
 
 @Service
 @RequiredArgsConstructor
 public class CancellationService {
 
+    public static final String ISSUE_REFUND = "ISSUE_REFUND";
+
     private final BookingRepository bookingRepository;
     private final PaymentRepository paymentRepository;
     private final TicketRepository ticketRepository;
     private final BookingSeatRepository bookingSeatRepository;
     private final EmailService emailService;
+    private final OutboxService outboxService;
+    private final ApplicationEventPublisher eventPublisher;
 
     @Transactional
     public BigDecimal cancel(Booking booking, CancelledBy cancelledBy, String reason) {
@@ -47,6 +53,8 @@ public class CancellationService {
         booking.setRefundAmount(refundAmount);
         booking.setRefundStatus(refundAmount.compareTo(BigDecimal.ZERO) > 0 ? "PENDING" : "NA");
         bookingRepository.save(booking);
+        eventPublisher.publishEvent(new BookingCancelledEvent(
+                booking.getId(), booking.getRouteSchedule().getId(), booking.getTravelDate()));
 
         // Cancel ticket
         ticketRepository.findByBooking(booking).ifPresent(ticket -> {
@@ -54,9 +62,9 @@ public class CancellationService {
             ticketRepository.save(ticket);
         });
 
-        // Process Stripe refund if applicable
+        // Stripe refund goes out through the outbox once the cancellation has committed
         if (refundAmount.compareTo(BigDecimal.ZERO) > 0) {
-            processStripeRefund(booking, refundAmount);
+            queueStripeRefund(booking, refundAmount);
         }
 
         // Extract email data inside transaction before async call
@@ -142,28 +150,31 @@ public class CancellationService {
         }
     }
 
-    private void processStripeRefund(Booking booking, BigDecimal refundAmount) {
-        try {
-            Payment payment = paymentRepository
-                    .findTopByBookingOrderByCreatedAtDesc(booking)
-                    .orElse(null);
-
-            if (payment == null || payment.getStatus() != PaymentStatus.SUCCESS) return;
-
-            long amountInPaise = refundAmount.multiply(BigDecimal.valueOf(100)).longValue();
+    /**
+     * Refund outcome reported by RefundService: PROCESSED, or UNKNOWN while a timed-out
+     * refund is being retried.
+     */
+    @Transactional
+    public void recordRefund(UUID bookingId, String refundStatus) {
+        bookingRepository.findById(bookingId).ifPresent(booking -> {
+            if (!"PROCESSED".equals(booking.getRefundStatus())) {
+                booking.setRefundStatus(refundStatus);
+                bookingRepository.save(booking);
+            }
+        });
+    }
 
-            Refund.create(RefundCreateParams.builder()
-                    .setPaymentIntent(payment.getProviderTransactionId())
-                    .setAmount(amountInPaise)
-                    .build());
+    // No successful payment means nothing to send to Stripe; the refund stays PENDING for manual processing
+    private void queueStripeRefund(Booking booking, BigDecimal refundAmount) {
+        Payment payment = paymentRepository
+                .findTopByBookingOrderByCreatedAtDesc(booking)
+                .orElse(null);
 
-            booking.setRefundStatus("PROCESSED");
-            bookingRepository.save(booking);
+        if (payment == null || payment.getStatus() != PaymentStatus.SUCCESS) return;
 
-        } catch (Exception e) {
-            // Refund failed — keep status as PENDING for manual processing
-            booking.setRefundStatus("PENDING");
-            bookingRepository.save(booking);
-        }
+        long amountInPaise = refundAmount.multiply(BigDecimal.valueOf(100)).longValue();
+        outboxService.enqueue(ISSUE_REFUND, booking.getId(), Map.of(
+                "paymentIntentId", payment.getProviderTransactionId(),
+                "amountInPaise", amountInPaise));
     }
 }
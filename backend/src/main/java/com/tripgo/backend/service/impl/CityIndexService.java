@@ -0,0 +1,197 @@
+package com.tripgo.backend.service.impl;
+
+import com.tripgo.backend.event.BookingConfirmedEvent;
+import com.tripgo.backend.event.RouteChangedEvent;
+import com.tripgo.backend.model.entities.BookingSeat;
+import com.tripgo.backend.model.entities.Route;
+import com.tripgo.backend.model.entities.RouteSegment;
+import com.tripgo.backend.repository.BookingSeatRepository;
+import com.tripgo.backend.repository.RouteRepository;
+import com.tripgo.backend.repository.RouteSegmentRepository;
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.event.TransactionalEventListener;
+
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Objects;
+import java.util.Set;
+import java.util.UUID;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentSkipListMap;
+import java.util.stream.Collectors;
+
+/**
+ * City names for autocomplete, kept in memory in a map sorted by normalized name, so a
+ * prefix lookup is a sub-map range and no query runs per keystroke. Cities are the route
+ * origins, destinations and segment stops; each route's contribution is tracked so a route
+ * change reloads only that route. When prefixes give fewer than k hits, names within a
+ * small edit distance of the typed text are added. Ties rank by confirmed bookings
+ * boarding or alighting at the city.
+ */
+@Slf4j
+@Service
+@RequiredArgsConstructor
+public class CityIndexService {
+
+    private final RouteRepository routeRepository;
+    private final RouteSegmentRepository segmentRepository;
+    private final BookingSeatRepository bookingSeatRepository;
+    private final StopService stopService;
+
+    private record City(String name, int routes) {}
+
+    private record Match(String name, int distance, long popularity) {}
+
+    // normalized name -> display name and number of routes using it
+    private final ConcurrentSkipListMap<String, City> cities = new ConcurrentSkipListMap<>();
+    // routeId -> display names the route contributes
+    private final Map<UUID, Set<String>> namesByRoute = new ConcurrentHashMap<>();
+    // stop id -> confirmed bookings
+    private final Map<Integer, Long> popularity = new ConcurrentHashMap<>();
+
+    @EventListener(ApplicationReadyEvent.class)
+    public synchronized void rebuild() {
+        Map<UUID, List<RouteSegment>> segmentsByRoute = segmentRepository.findAll().stream()
+                .collect(Collectors.groupingBy(seg -> seg.getRoute().getId()));
+        cities.clear();
+        namesByRoute.clear();
+        for (Route route : routeRepository.findAll()) {
+            index(route.getId(), names(route, segmentsByRoute.getOrDefault(route.getId(), List.of())));
+        }
+
+        popularity.clear();
+        for (Object[] row : bookingSeatRepository.countConfirmedBookingsByFromStop()) {
+            popularity.merge((Integer) row[0], ((Number) row[1]).longValue(), Long::sum);
+        }
+        for (Object[] row : bookingSeatRepository.countConfirmedBookingsByToStop()) {
+            popularity.merge((Integer) row[0], ((Number) row[1]).longValue(), Long::sum);
+        }
+        log.info("City index built: {} cities", cities.size());
+    }
+
+    @TransactionalEventListener(fallbackExecution = true)
+    public synchronized void onRouteChanged(RouteChangedEvent event) {
+        UUID routeId = event.routeId();
+        index(routeId, routeRepository.findById(routeId)
+                .map(route -> names(route, segmentRepository.findByRouteIdInOrderBySeqAsc(List.of(routeId))))
+                .orElse(Set.of()));
+    }
+
+    @TransactionalEventListener(fallbackExecution = true)
+    public void onBookingConfirmed(BookingConfirmedEvent event) {
+        Set<Integer> stops = new HashSet<>();
+        for (BookingSeat seat : bookingSeatRepository.findByBookingId(event.bookingId())) {
+            stops.add(seat.getFromStopId());
+            stops.add(seat.getToStopId());
+        }
+        stops.stream().filter(Objects::nonNull).forEach(stop -> popularity.merge(stop, 1L, Long::sum));
+    }
+
+    public List<String> all() {
+        return cities.values().stream().map(City::name).toList();
+    }
+
+    /**
+     * Up to {@code limit} cities for what the user has typed so far: prefix matches first,
+     * then near misses, each by popularity.
+     */
+    public List<String> suggest(String query, int limit) {
+        String key = StopService.normalize(query);
+        if (key.isEmpty()) return List.of();
+
+        Map<String, Match> matches = new HashMap<>();
+        cities.subMap(key, true, key + Character.MAX_VALUE, false)
+                .forEach((k, city) -> matches.put(k, match(k, city, 0)));
+
+        if (matches.size() < limit && key.length() >= 3) {
+            int maxDistance = key.length() >= 6 ? 2 : 1;
+            cities.forEach((k, city) -> {
+                if (matches.containsKey(k)) return;
+                // Compare against the name cut to the typed length, allowing for one missing or extra letter
+                int distance = Integer.MAX_VALUE;
+                for (int len = key.length() - 1; len <= key.length() + 1; len++) {
+                    if (len < 1 || len > k.length()) continue;
+                    distance = Math.min(distance, distance(key, k.substring(0, len), maxDistance));
+                }
+                if (distance <= maxDistance) matches.put(k, match(k, city, distance));
+            });
+        }
+
+        return matches.values().stream()
+                .sorted(Comparator.comparingInt(Match::distance)
+                        .thenComparing(Comparator.comparingLong(Match::popularity).reversed())
+                        .thenComparing(Match::name, String.CASE_INSENSITIVE_ORDER))
+                .limit(limit)
+                .map(Match::name)
+                .toList();
+    }
+
+    private Match match(String key, City city, int distance) {
+        Integer stopId = stopService.resolve(key);
+        return new Match(city.name(), distance, stopId == null ? 0 : popularity.getOrDefault(stopId, 0L));
+    }
+
+    private static Set<String> names(Route route, List<RouteSegment> segments) {
+        Set<String> names = new HashSet<>();
+        names.add(route.getOrigin());
+        names.add(route.getDestination());
+        for (RouteSegment seg : segments) {
+            names.add(seg.getFromStop());
+            names.add(seg.getToStop());
+        }
+        // One spelling per normalized name
+        return Set.copyOf(names.stream()
+                .filter(Objects::nonNull)
+                .map(name -> name.trim().replaceAll("\\s+", " "))
+                .filter(name -> !name.isEmpty())
+                .collect(Collectors.toMap(StopService::normalize, name -> name, (first, second) -> first))
+                .values());
+    }
+
+    private void index(UUID routeId, Set<String> names) {
+        Set<String> previous = names.isEmpty() ? namesByRoute.remove(routeId) : namesByRoute.put(routeId, names);
+        Set<String> removed = previous == null ? Set.of() : new HashSet<>(previous);
+        removed.removeAll(names);
+        Set<String> added = new HashSet<>(names);
+        if (previous != null) added.removeAll(previous);
+
+        for (String name : removed) {
+            cities.computeIfPresent(StopService.normalize(name),
+                    (k, city) -> city.routes() <= 1 ? null : new City(city.name(), city.routes() - 1));
+        }
+        for (String name : added) {
+            cities.merge(StopService.normalize(name), new City(name, 1),
+                    (city, one) -> new City(city.name(), city.routes() + 1));
+        }
+    }
+
+    // Levenshtein distance, giving up once every cell in a row exceeds max
+    private static int distance(String a, String b, int max) {
+        if (Math.abs(a.length() - b.length()) > max) return max + 1;
+        int[] prev = new int[b.length() + 1];
+        int[] curr = new int[b.length() + 1];
+        for (int j = 0; j <= b.length(); j++) prev[j] = j;
+        for (int i = 1; i <= a.length(); i++) {
+            curr[0] = i;
+            int rowMin = curr[0];
+            for (int j = 1; j <= b.length(); j++) {
+                int cost = a.charAt(i - 1) == b.charAt(j - 1) ? 0 : 1;
+                curr[j] = Math.min(Math.min(curr[j - 1] + 1, prev[j] + 1), prev[j - 1] + cost);
+                rowMin = Math.min(rowMin, curr[j]);
+            }
+            if (rowMin > max) return max + 1;
+            int[] swap = prev;
+            prev = curr;
+            curr = swap;
+        }
+        return prev[b.length()];
+    }
+}
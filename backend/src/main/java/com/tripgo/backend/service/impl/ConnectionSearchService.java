@@ -0,0 +1,252 @@
+package com.tripgo.backend.service.impl;
+
+import com.tripgo.backend.dto.response.ConnectionLeg;
+import com.tripgo.backend.dto.response.ConnectionResponse;
+import com.tripgo.backend.dto.response.FareResult;
+import com.tripgo.backend.model.entities.Bus;
+import com.tripgo.backend.model.entities.RouteSchedule;
+import com.tripgo.backend.model.entities.ScheduleInstance;
+import com.tripgo.backend.repository.BusRepository;
+import com.tripgo.backend.repository.ScheduleInstanceRepository;
+import com.tripgo.backend.util.FanOut;
+import lombok.RequiredArgsConstructor;
+import org.springframework.stereotype.Service;
+
+import java.math.BigDecimal;
+import java.time.Duration;
+import java.time.Instant;
+import java.time.LocalDate;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.UUID;
+import java.util.function.Function;
+import java.util.stream.Collectors;
+import java.util.stream.Stream;
+
+/**
+ * Two-leg journeys A -> T -> B for stop pairs without (or in addition to) a direct bus.
+ * Candidate transfer stops come from the route index: stops after A on a route from A that
+ * are also before B on a route to B. Second legs are indexed per transfer stop by their
+ * departure time there, so each first leg only looks at the departures inside its layover
+ * window (binary search) instead of pairing every schedule with every other.
+ * Stop times at intermediate stops are the schedule's times interpolated along the route
+ * (by segment duration, else distance).
+ */
+@Service
+@RequiredArgsConstructor
+public class ConnectionSearchService {
+
+    private final RouteIndexService routeIndexService;
+    private final ScheduleInstanceRepository instanceRepo;
+    private final SeatAvailabilityService seatAvailabilityService;
+    private final OccupancyService occupancyService;
+    private final FlexSearchService flexSearchService;
+    private final BusRepository busRepository;
+    private final StopService stopService;
+    private final FanOut fanOut;
+
+    // A trip passing a stop: where it is on its route and when it is there
+    private record StopCall(ScheduleInstance instance, int position, Instant time) {}
+
+    private record Itinerary(StopCall board, StopCall alight, int transferStopId, StopCall reboard, StopCall arrive) {
+
+        Duration total() {
+            return Duration.between(board.time(), arrive.time());
+        }
+    }
+
+    private record Priced(Itinerary itinerary, BigDecimal firstFare, BigDecimal secondFare, int firstSeats, int secondSeats) {
+
+        BigDecimal total() {
+            return firstFare.add(secondFare);
+        }
+    }
+
+    private record FareKey(UUID scheduleId, int fromStopId, int toStopId) {}
+
+    private record SeatKey(UUID instanceId, int fromPosition, int toPosition) {}
+
+    public List<ConnectionResponse> search(int fromStopId, int toStopId, LocalDate date,
+                                           Duration minLayover, Duration maxLayover, int limit) {
+        Set<UUID> firstRoutes = routeIndexService.routesServing(fromStopId).stream()
+                .filter(r -> routeIndexService.position(r, fromStopId) < routeIndexService.segmentCount(r))
+                // A route that also reaches the destination is a direct trip
+                .filter(r -> routeIndexService.position(r, toStopId) <= routeIndexService.position(r, fromStopId))
+                .collect(Collectors.toSet());
+        Set<UUID> secondRoutes = routeIndexService.routesServing(toStopId).stream()
+                .filter(r -> routeIndexService.position(r, toStopId) > 0)
+                .filter(r -> !firstRoutes.contains(r))
+                .collect(Collectors.toSet());
+        if (firstRoutes.isEmpty() || secondRoutes.isEmpty()) return List.of();
+
+        // Transfer stop -> second-leg routes and their position there
+        Map<Integer, Map<UUID, Integer>> transfers = new HashMap<>();
+        for (UUID route : secondRoutes) {
+            int toPosition = routeIndexService.position(route, toStopId);
+            for (Integer stop : routeIndexService.stops(route)) {
+                int position = routeIndexService.position(route, stop);
+                if (position < toPosition && stop != fromStopId) {
+                    transfers.computeIfAbsent(stop, k -> new HashMap<>()).put(route, position);
+                }
+            }
+        }
+        if (transfers.isEmpty()) return List.of();
+
+        // Connections can leave the transfer stop the next day, on trips that may have started the day before
+        FanOut.Both<List<ScheduleInstance>, List<ScheduleInstance>> legs = fanOut.both("connections",
+                () -> instanceRepo.findBookable(firstRoutes, date),
+                () -> instanceRepo.findBookableBetween(secondRoutes, date.minusDays(1), date.plusDays(1)));
+        List<ScheduleInstance> firstLegs = legs.first();
+        List<ScheduleInstance> secondLegs = legs.second();
+        if (firstLegs.isEmpty()) return List.of();
+
+        // Transfer stop -> second-leg calls there, by departure time
+        Map<Integer, List<StopCall>> departures = new HashMap<>();
+        for (ScheduleInstance instance : secondLegs) {
+            transfers.forEach((stop, routes) -> {
+                Integer position = routes.get(instance.getRouteId());
+                if (position != null) departures.computeIfAbsent(stop, k -> new ArrayList<>()).add(call(instance, position));
+            });
+        }
+        departures.values().forEach(calls -> calls.sort(Comparator.comparing(StopCall::time)));
+
+        List<Itinerary> itineraries = new ArrayList<>();
+        for (ScheduleInstance first : firstLegs) {
+            UUID route = first.getRouteId();
+            StopCall board = call(first, routeIndexService.position(route, fromStopId));
+            for (Integer stop : routeIndexService.stops(route)) {
+                int position = routeIndexService.position(route, stop);
+                List<StopCall> calls = departures.get(stop);
+                if (position <= board.position() || calls == null) continue;
+
+                StopCall alight = call(first, position);
+                Instant earliest = alight.time().plus(minLayover);
+                Instant latest = alight.time().plus(maxLayover);
+                for (int i = firstAtOrAfter(calls, earliest); i < calls.size() && !calls.get(i).time().isAfter(latest); i++) {
+                    StopCall reboard = calls.get(i);
+                    ScheduleInstance second = reboard.instance();
+                    StopCall arrive = call(second, routeIndexService.position(second.getRouteId(), toStopId));
+                    itineraries.add(new Itinerary(board, alight, stop, reboard, arrive));
+                }
+            }
+        }
+        if (itineraries.isEmpty()) return List.of();
+
+        return rank(itineraries, fromStopId, toStopId, limit);
+    }
+
+    private List<ConnectionResponse> rank(List<Itinerary> itineraries, int fromStopId, int toStopId, int limit) {
+        Map<FareKey, BigDecimal> fares = new HashMap<>();
+        Map<UUID, List<String>> openSeats = flexSearchService.openSeats(itineraries.stream()
+                .flatMap(it -> Stream.of(it.board().instance(), it.reboard().instance()))
+                .collect(Collectors.toSet()));
+        Map<SeatKey, Integer> seats = new HashMap<>();
+
+        List<Priced> priced = new ArrayList<>();
+        for (Itinerary it : itineraries) {
+            ScheduleInstance first = it.board().instance();
+            ScheduleInstance second = it.reboard().instance();
+            BigDecimal firstFare = fare(fares, first.getSchedule(), fromStopId, it.transferStopId());
+            BigDecimal secondFare = fare(fares, second.getSchedule(), it.transferStopId(), toStopId);
+            if (firstFare == null || secondFare == null) continue;
+
+            int firstSeats = seats(seats, openSeats, first, it.board().position(), it.alight().position());
+            int secondSeats = seats(seats, openSeats, second, it.reboard().position(), it.arrive().position());
+            if (firstSeats == 0 || secondSeats == 0) continue;
+            priced.add(new Priced(it, firstFare, secondFare, firstSeats, secondSeats));
+        }
+
+        List<Priced> top = priced.stream()
+                .sorted(Comparator.comparing((Priced p) -> p.itinerary().arrive().time())
+                        .thenComparing(Priced::total)
+                        .thenComparing(p -> p.itinerary().total()))
+                .limit(limit)
+                .toList();
+
+        Set<UUID> busIds = top.stream()
+                .flatMap(p -> Stream.of(p.itinerary().board(), p.itinerary().reboard()))
+                .map(call -> call.instance().getSchedule().getBus().getId())
+                .collect(Collectors.toSet());
+        Map<UUID, Bus> buses = busIds.isEmpty() ? Map.of() : busRepository.findWithAmenitiesByIdIn(busIds).stream()
+                .collect(Collectors.toMap(Bus::getId, Function.identity()));
+
+        return top.stream().map(p -> {
+            Itinerary it = p.itinerary();
+            return new ConnectionResponse(
+                    leg(it.board(), it.alight(), fromStopId, it.transferStopId(), p.firstFare(), p.firstSeats(), buses),
+                    leg(it.reboard(), it.arrive(), it.transferStopId(), toStopId, p.secondFare(), p.secondSeats(), buses),
+                    stopService.name(it.transferStopId()),
+                    Duration.between(it.alight().time(), it.reboard().time()).toMinutes(),
+                    it.board().time(),
+                    it.arrive().time(),
+                    it.total().toMinutes(),
+                    p.total(),
+                    Math.min(p.firstSeats(), p.secondSeats()));
+        }).toList();
+    }
+
+    private ConnectionLeg leg(StopCall from, StopCall to, int fromStopId, int toStopId,
+                              BigDecimal fare, int seats, Map<UUID, Bus> buses) {
+        ScheduleInstance instance = from.instance();
+        Bus bus = buses.get(instance.getSchedule().getBus().getId());
+        return new ConnectionLeg(
+                instance.getSchedule().getId(),
+                instance.getTravelDate(),
+                bus != null ? bus.getName() : null,
+                bus != null && bus.getBusType() != null ? bus.getBusType().toString() : "STANDARD",
+                bus != null && bus.getOperator() != null ? bus.getOperator().getName() : "Unknown",
+                stopService.name(fromStopId),
+                stopService.name(toStopId),
+                from.time(),
+                to.time(),
+                fare,
+                seats);
+    }
+
+    private StopCall call(ScheduleInstance instance, int position) {
+        Duration running = Duration.between(instance.getDepartureTime(), instance.getArrivalTime());
+        double progress = routeIndexService.progress(instance.getRouteId(), position);
+        Instant time = instance.getDepartureTime().plusSeconds(Math.round(running.toSeconds() * progress));
+        return new StopCall(instance, position, time);
+    }
+
+    private static int firstAtOrAfter(List<StopCall> calls, Instant time) {
+        int lo = 0, hi = calls.size();
+        while (lo < hi) {
+            int mid = (lo + hi) >>> 1;
+            if (calls.get(mid).time().isBefore(time)) lo = mid + 1;
+            else hi = mid;
+        }
+        return lo;
+    }
+
+    private BigDecimal fare(Map<FareKey, BigDecimal> fares, RouteSchedule schedule, int fromStopId, int toStopId) {
+        if (schedule.getBus() == null) return null;
+        FareKey key = new FareKey(schedule.getId(), fromStopId, toStopId);
+        if (!fares.containsKey(key)) {
+            fares.put(key, seatAvailabilityService.fares(List.of(schedule), fromStopId, toStopId)
+                    .getOrDefault(schedule.getId(), Map.of()).values().stream()
+                    .map(FareResult::totalFare)
+                    .min(Comparator.naturalOrder())
+                    .orElse(null));
+        }
+        return fares.get(key);
+    }
+
+    private int seats(Map<SeatKey, Integer> cache, Map<UUID, List<String>> openSeats,
+                      ScheduleInstance instance, int fromPosition, int toPosition) {
+        RouteSchedule schedule = instance.getSchedule();
+        return cache.computeIfAbsent(new SeatKey(instance.getId(), fromPosition, toPosition), k -> {
+            OccupancyService.OccupiedSeats occupied = occupancyService
+                    .occupancy(schedule, instance.getTravelDate())
+                    .occupied(fromPosition, toPosition);
+            return (int) openSeats.getOrDefault(schedule.getBus().getId(), List.of()).stream()
+                    .filter(seatNumber -> !occupied.contains(seatNumber))
+                    .count();
+        });
+    }
+}
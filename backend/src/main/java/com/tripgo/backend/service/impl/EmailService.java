@@ -1,7 +1,5 @@
 package com.tripgo.backend.service.impl;
 
-import com.tripgo.backend.model.entities.Booking;
-import com.tripgo.backend.model.entities.BookingSeat;
 import com.tripgo.backend.model.entities.Bus;
 import com.tripgo.backend.model.entities.Operator;
 import com.tripgo.backend.model.entities.User;
@@ -10,13 +8,15 @@ import lombok.RequiredArgsConstructor;
 import lombok.extern.slf4j.Slf4j;
 import org.springframework.beans.factory.annotation.Value;
 import org.springframework.http.*;
+import org.springframework.http.client.SimpleClientHttpRequestFactory;
 import org.springframework.scheduling.annotation.Async;
 import org.springframework.stereotype.Service;
 import org.springframework.web.client.RestTemplate;
 import org.thymeleaf.TemplateEngine;
 import org.thymeleaf.context.Context;
 
-import java.math.BigDecimal;
+import java.time.Duration;
+import java.time.Instant;
 import java.time.ZoneId;
 import java.time.format.DateTimeFormatter;
 import java.util.HashMap;
@@ -31,7 +31,13 @@ public class EmailService {
 
     private final UserRepository userRepository;
     private final TemplateEngine templateEngine;
-    private final RestTemplate restTemplate = new RestTemplate();
+    private final RestTemplate restTemplate = restTemplate();
+
+    /**
+     * Plain values of a booking email, read inside a transaction so the send can happen
+     * after it, on any thread.
+     */
+    public record BookingEmail(String to, String firstName, Map<String, Object> details) {}
 
     @Value("${RESEND_API_KEY}")
     private String resendApiKey;
@@ -71,49 +77,32 @@ public class EmailService {
         sendResendTemplate(userEmail, "booking-cancellation", data);
     }
 
-    @Async
-    public void sendPaymentFailed(User user, String from, String to, String busName, BigDecimal amount) {
-        Map<String, Object> data = new HashMap<>();
+    /**
+     * Synchronous, for the outbox handler: throws when the email is not accepted, so the
+     * event is retried.
+     */
+    public void sendPaymentFailed(BookingEmail email) {
+        Map<String, Object> data = new HashMap<>(email.details());
         data.put("subject", "Payment Failed for Your TripGo Booking");
-        data.put("firstName", user.getFirstName());
-        data.put("from", from);
-        data.put("to", to);
-        data.put("busName", busName);
-        data.put("amount", amount);
+        data.put("firstName", email.firstName());
         data.put("frontendUrl", frontendUrl);
-        sendResendTemplate(user.getEmail(), "payment-failed", data);
+        deliver(email.to(), "payment-failed", data);
     }
 
-    @Async
-    public void notifyOperatorNewBooking(Booking booking, List<BookingSeat> seats) {
-        User opUser = userRepository.findByOperator(booking.getOperator()).orElse(null);
-        if (opUser == null) return;
+    /**
+     * Synchronous, for the outbox handler: throws when the email is not accepted, so the
+     * event is retried.
+     */
+    public void notifyOperatorNewBooking(BookingEmail email) {
         DateTimeFormatter fmt = DateTimeFormatter.ofPattern("dd MMM yyyy, hh:mm a").withZone(ZoneId.of("Asia/Kolkata"));
-        String seatNumbers = seats.stream().map(BookingSeat::getSeatNumber).reduce((a, b) -> a + ", " + b).orElse("-");
-        Map<String, Object> model = new java.util.HashMap<>();
-        model.put("operatorName", booking.getOperator().getName());
-        model.put("bookingCode", booking.getBookingCode());
-        model.put("from", seats.isEmpty() ? "-" : seats.get(0).getFromStop());
-        model.put("to", seats.isEmpty() ? "-" : seats.get(0).getToStop());
-        model.put("busName", booking.getRouteSchedule().getBus().getName());
-        model.put("departureTime", fmt.format(booking.getRouteSchedule().getDepartureTime()));
-        model.put("seatNumbers", seatNumbers);
-        model.put("payableAmount", booking.getPayableAmount());
-        model.put("passengers", seats.stream().map(s -> {
-            Map<String, Object> p = new java.util.HashMap<>();
-            p.put("seatNumber", s.getSeatNumber());
-            if (s.getPassenger() != null) {
-                p.put("firstName", s.getPassenger().getFirstName());
-                p.put("lastName", s.getPassenger().getLastName() != null ? s.getPassenger().getLastName() : "");
-                p.put("age", s.getPassenger().getAge());
-                p.put("gender", s.getPassenger().getGender());
-            }
-            return p;
-        }).toList());
+        Map<String, Object> model = new HashMap<>(email.details());
+        model.put("departureTime", fmt.format((Instant) email.details().get("departureTime")));
         model.put("frontendUrl", frontendUrl);
-        sendTemplate(opUser.getEmail(), "New Booking - " + booking.getBookingCode() + " | TripGo", "operator-new-booking", model);
+        model.put("subject", "New Booking - " + email.details().get("bookingCode") + " | TripGo");
+        deliver(email.to(), "operator-new-booking", model);
     }
 
+
     @Async
     public void notifyOperatorReviewReceived(User operatorUser, String operatorName, String busName,
                                               String from, String to, String reviewerName,
@@ -184,47 +173,54 @@ public class EmailService {
         ));
     }
 
-    @Async
-    public void sendBookingConfirmation(User user, Map<String, Object> bookingDetails) {
-        Map<String, Object> templateData = new HashMap<>(bookingDetails);
-        templateData.put("subject", "Booking Confirmed - " + bookingDetails.getOrDefault("bookingCode", "") + " | TripGo");
-        templateData.put("firstName", user.getFirstName());
+    /**
+     * Synchronous, for the outbox handler: throws when the email is not accepted, so the
+     * event is retried.
+     */
+    public void sendBookingConfirmation(BookingEmail email) {
+        Map<String, Object> templateData = new HashMap<>(email.details());
+        templateData.put("subject", "Booking Confirmed - " + email.details().getOrDefault("bookingCode", "") + " | TripGo");
+        templateData.put("firstName", email.firstName());
         templateData.put("frontendUrl", frontendUrl);
-        sendResendTemplate(user.getEmail(), "booking-confirmation", templateData);
+        deliver(email.to(), "booking-confirmation", templateData);
     }
 
     private void sendResendTemplate(String to, String templateName, Map<String, Object> variables) {
         try {
-            Context ctx = new Context();
-            ctx.setVariables(variables);
-            String html = templateEngine.process("email/" + templateName, ctx);
-
-            String subject = variables.getOrDefault("subject", "TripGo Notification").toString();
-
-            String url = "https://api.resend.com/emails";
-            HttpHeaders headers = new HttpHeaders();
-            headers.setContentType(MediaType.APPLICATION_JSON);
-            headers.setBearerAuth(resendApiKey);
-
-            Map<String, Object> emailData = new HashMap<>();
-            emailData.put("from", fromEmail);
-            emailData.put("to", new String[]{to});
-            emailData.put("subject", subject);
-            emailData.put("html", html);
-
-            HttpEntity<Map<String, Object>> request = new HttpEntity<>(emailData, headers);
-            ResponseEntity<String> response = restTemplate.postForEntity(url, request, String.class);
-
-            if (response.getStatusCode().is2xxSuccessful()) {
-                log.info("Email sent successfully to {} using template {}", to, templateName);
-            } else {
-                log.error("Failed to send email to {} using template {}. Status: {} Body: {}", to, templateName, response.getStatusCode(), response.getBody());
-            }
+            deliver(to, templateName, variables);
         } catch (Exception e) {
             log.error("Error sending email to {} using template {}: {}", to, templateName, e.getMessage(), e);
         }
     }
 
+    private void deliver(String to, String templateName, Map<String, Object> variables) {
+        Context ctx = new Context();
+        ctx.setVariables(variables);
+        String html = templateEngine.process("email/" + templateName, ctx);
+
+        String subject = variables.getOrDefault("subject", "TripGo Notification").toString();
+
+        String url = "https://api.resend.com/emails";
+        HttpHeaders headers = new HttpHeaders();
+        headers.setContentType(MediaType.APPLICATION_JSON);
+        headers.setBearerAuth(resendApiKey);
+
+        Map<String, Object> emailData = new HashMap<>();
+        emailData.put("from", fromEmail);
+        emailData.put("to", new String[]{to});
+        emailData.put("subject", subject);
+        emailData.put("html", html);
+
+        HttpEntity<Map<String, Object>> request = new HttpEntity<>(emailData, headers);
+        ResponseEntity<String> response = restTemplate.postForEntity(url, request, String.class);
+
+        if (!response.getStatusCode().is2xxSuccessful()) {
+            throw new RuntimeException("Email to " + to + " using template " + templateName
+                    + " was not accepted. Status: " + response.getStatusCode() + " Body: " + response.getBody());
+        }
+        log.info("Email sent successfully to {} using template {}", to, templateName);
+    }
+
     @Async
     public void notifyAdminsOperatorVerification(Operator op) {
         List<User> admins = userRepository.findAllAdmins();
@@ -331,6 +327,14 @@ public class EmailService {
         );
     }
 
+    // Bounded, so a hanging mail API cannot stall the outbox dispatcher
+    private static RestTemplate restTemplate() {
+        SimpleClientHttpRequestFactory requestFactory = new SimpleClientHttpRequestFactory();
+        requestFactory.setConnectTimeout(Duration.ofSeconds(5));
+        requestFactory.setReadTimeout(Duration.ofSeconds(15));
+        return new RestTemplate(requestFactory);
+    }
+
     private void sendTemplate(String to, String subject, String template, Map<String, Object> model) {
         model = new HashMap<>(model);
         model.put("subject", subject);
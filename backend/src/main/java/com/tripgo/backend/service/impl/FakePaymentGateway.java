@@ -0,0 +1,72 @@
+package com.tripgo.backend.service.impl;
+
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.stereotype.Service;
+
+import java.util.Map;
+import java.util.UUID;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ThreadLocalRandom;
+
+/**
+ * In-process stand-in for Stripe for load tests: intents live in memory and every call
+ * sleeps for a configurable latency. With auto-succeed, intents report "succeeded" right
+ * after creation so the confirm endpoint can be driven without a real payment.
+ */
+@Service
+@ConditionalOnProperty(name = "app.payment.gateway", havingValue = "fake")
+public class FakePaymentGateway implements PaymentGateway {
+
+    private final long latencyMs;
+    private final long jitterMs;
+    private final boolean autoSucceed;
+    private final Map<String, Intent> intents = new ConcurrentHashMap<>();
+    // idempotency key -> intent id
+    private final Map<String, String> keys = new ConcurrentHashMap<>();
+
+    public FakePaymentGateway(@Value("${app.payment.fake.latency-ms:150}") long latencyMs,
+                              @Value("${app.payment.fake.jitter-ms:50}") long jitterMs,
+                              @Value("${app.payment.fake.auto-succeed:true}") boolean autoSucceed) {
+        this.latencyMs = latencyMs;
+        this.jitterMs = jitterMs;
+        this.autoSucceed = autoSucceed;
+    }
+
+    @Override
+    public String name() {
+        return "fake";
+    }
+
+    @Override
+    public Intent createIntent(CreateIntent request) throws Exception {
+        pause();
+        String id = keys.computeIfAbsent(request.idempotencyKey(), key -> {
+            String intentId = "pi_fake_" + UUID.randomUUID().toString().replace("-", "");
+            String status = autoSucceed ? "succeeded" : "requires_payment_method";
+            intents.put(intentId, new Intent(intentId, status, intentId + "_secret", Map.copyOf(request.metadata())));
+            return intentId;
+        });
+        return intents.get(id);
+    }
+
+    @Override
+    public Intent retrieveIntent(String intentId) throws Exception {
+        pause();
+        Intent intent = intents.get(intentId);
+        if (intent == null) {
+            throw new RuntimeException("No such payment intent: " + intentId);
+        }
+        return intent;
+    }
+
+    @Override
+    public void refund(String intentId, long amountInPaise, String idempotencyKey) throws Exception {
+        retrieveIntent(intentId);
+    }
+
+    private void pause() throws InterruptedException {
+        long jitter = jitterMs > 0 ? ThreadLocalRandom.current().nextLong(jitterMs + 1) : 0;
+        Thread.sleep(latencyMs + jitter);
+    }
+}
@@ -0,0 +1,204 @@
+package com.tripgo.backend.service.impl;
+
+import com.tripgo.backend.dto.response.FareResult;
+import com.tripgo.backend.model.entities.Fare;
+import com.tripgo.backend.model.entities.RouteSegment;
+import com.tripgo.backend.repository.FareRepository;
+import com.tripgo.backend.repository.RouteSegmentRepository;
+import lombok.RequiredArgsConstructor;
+import org.springframework.stereotype.Service;
+
+import java.math.BigDecimal;
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.LinkedHashMap;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Objects;
+import java.util.Optional;
+import java.util.Set;
+import java.util.UUID;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.stream.Collectors;
+
+/**
+ * Cached fare matrices per (route, bus). For every seat type a matrix holds prefix sums of
+ * base fare and GST over the route's segments, with the bus-specific > route-level > any fare
+ * fallback already applied per segment, so the fare of any stop pair is a subtraction.
+ * Entries are dropped per route whenever its fares or segments change.
+ */
+@Service
+@RequiredArgsConstructor
+public class FareMatrixService {
+
+    private final RouteSegmentRepository segmentRepo;
+    private final FareRepository fareRepo;
+
+    // routeId -> busId -> matrix
+    private final Map<UUID, Map<UUID, FareMatrix>> matricesByRoute = new ConcurrentHashMap<>();
+    // routeId -> bumped on every invalidation so a build racing with a fare change is not kept
+    private final Map<UUID, Long> generations = new ConcurrentHashMap<>();
+
+    public record RouteBus(UUID routeId, UUID busId) {}
+
+    public FareMatrix matrix(UUID routeId, UUID busId) {
+        RouteBus key = new RouteBus(routeId, busId);
+        return matrices(List.of(key)).get(key);
+    }
+
+    /**
+     * Matrices for several (route, bus) pairs; the ones not cached yet are built from
+     * one segment query and one fare query.
+     */
+    public Map<RouteBus, FareMatrix> matrices(Collection<RouteBus> keys) {
+        Map<RouteBus, FareMatrix> result = new HashMap<>();
+        Set<RouteBus> missing = new HashSet<>();
+        for (RouteBus key : keys) {
+            FareMatrix cached = matricesByRoute.getOrDefault(key.routeId(), Map.of()).get(key.busId());
+            if (cached != null) result.put(key, cached);
+            else missing.add(key);
+        }
+        if (missing.isEmpty()) return result;
+
+        Set<UUID> routeIds = missing.stream().map(RouteBus::routeId).collect(Collectors.toSet());
+        Map<UUID, Long> seenGenerations = new HashMap<>();
+        routeIds.forEach(id -> seenGenerations.put(id, generations.getOrDefault(id, 0L)));
+
+        Map<UUID, List<RouteSegment>> segmentsByRoute = segmentRepo.findByRouteIdInOrderBySeqAsc(routeIds).stream()
+                .collect(Collectors.groupingBy(seg -> seg.getRoute().getId()));
+        Map<UUID, List<Fare>> faresBySegment = fareRepo.findByRouteIds(routeIds).stream()
+                .filter(f -> f.getRouteSegment() != null)
+                .collect(Collectors.groupingBy(f -> f.getRouteSegment().getId()));
+
+        for (RouteBus key : missing) {
+            FareMatrix matrix = build(segmentsByRoute.getOrDefault(key.routeId(), List.of()), faresBySegment, key.busId());
+            result.put(key, matrix);
+
+            Map<UUID, FareMatrix> byBus = matricesByRoute.computeIfAbsent(key.routeId(), id -> new ConcurrentHashMap<>());
+            byBus.put(key.busId(), matrix);
+            // Invalidation bumps the generation before clearing, so re-check after publishing
+            if (!seenGenerations.get(key.routeId()).equals(generations.getOrDefault(key.routeId(), 0L))) {
+                byBus.remove(key.busId(), matrix);
+            }
+        }
+        return result;
+    }
+
+    public void invalidateRoute(UUID routeId) {
+        generations.merge(routeId, 1L, Long::sum);
+        matricesByRoute.remove(routeId);
+    }
+
+    private FareMatrix build(List<RouteSegment> segments, Map<UUID, List<Fare>> faresBySegment, UUID busId) {
+        int n = segments.size();
+
+        // Seat types in the same order search has always listed them: bus-specific, route-level, then the rest
+        Set<String> seatTypes = new LinkedHashSet<>();
+        for (RouteSegment seg : segments) {
+            List<Fare> fares = faresBySegment.getOrDefault(seg.getId(), List.of());
+            fares.stream().filter(f -> isBusFare(f, busId)).map(Fare::getSeatType)
+                    .filter(t -> t != null && !t.isBlank()).forEach(seatTypes::add);
+            fares.stream().filter(f -> f.getBus() == null).map(Fare::getSeatType)
+                    .filter(t -> t != null && !t.isBlank()).forEach(seatTypes::add);
+        }
+        for (RouteSegment seg : segments) {
+            faresBySegment.getOrDefault(seg.getId(), List.of()).stream().map(Fare::getSeatType)
+                    .filter(t -> t != null && !t.isBlank()).forEach(seatTypes::add);
+        }
+
+        Map<String, SeatTypeFares> byType = new LinkedHashMap<>();
+        for (String type : seatTypes) {
+            SeatTypeFares row = new SeatTypeFares(n);
+            for (int i = 0; i < n; i++) {
+                List<Fare> fares = faresBySegment.getOrDefault(segments.get(i).getId(), List.of());
+                Optional<Fare> own = fares.stream()
+                        .filter(f -> type.equals(f.getSeatType()) && isBusFare(f, busId))
+                        .findFirst();
+                if (own.isEmpty()) {
+                    own = fares.stream()
+                            .filter(f -> type.equals(f.getSeatType()) && f.getBus() == null)
+                            .findFirst();
+                }
+                Optional<Fare> fare = own.isPresent() ? own : fares.stream()
+                        .filter(f -> type.equals(f.getSeatType()))
+                        .findFirst();
+
+                BigDecimal base = fare.map(Fare::getBaseFare).orElse(BigDecimal.ZERO);
+                BigDecimal gst = fare.map(f -> f.getBaseFare()
+                                .multiply(f.getGstPercent())
+                                .divide(BigDecimal.valueOf(100)))
+                        .orElse(BigDecimal.ZERO);
+                row.base[i + 1] = row.base[i].add(base);
+                row.gst[i + 1] = row.gst[i].add(gst);
+                row.missing[i + 1] = row.missing[i] + (fare.isEmpty() ? 1 : 0);
+                row.own[i + 1] = row.own[i] + (own.isPresent() ? 1 : 0);
+            }
+            byType.put(type, row);
+        }
+        return new FareMatrix(n, byType);
+    }
+
+    private boolean isBusFare(Fare fare, UUID busId) {
+        return busId != null && fare.getBus() != null && Objects.equals(fare.getBus().getId(), busId);
+    }
+
+    /**
+     * Fares of one (route, bus) pair. Positions are segment indices as used by {@link RouteIndexService}.
+     */
+    public static final class FareMatrix {
+
+        private final int segmentCount;
+        private final Map<String, SeatTypeFares> byType;
+
+        private FareMatrix(int segmentCount, Map<String, SeatTypeFares> byType) {
+            this.segmentCount = segmentCount;
+            this.byType = byType;
+        }
+
+        public int segmentCount() {
+            return segmentCount;
+        }
+
+        /**
+         * Fare per seat type for travelling from position {@code from} to {@code to}.
+         * Seat types priced by this bus or the route take precedence; other buses' seat types
+         * are only offered when neither prices any segment of the trip. Seat types with a
+         * segment that has no fare at all are left out.
+         */
+        public Map<String, FareResult> fares(int from, int to) {
+            if (from < 0 || to > segmentCount || from >= to) return Map.of();
+
+            boolean anyOwn = byType.values().stream().anyMatch(row -> row.own[to] - row.own[from] > 0);
+            Map<String, FareResult> result = new LinkedHashMap<>();
+            byType.forEach((type, row) -> {
+                if (anyOwn && row.own[to] - row.own[from] == 0) return;
+                if (row.missing[to] - row.missing[from] > 0) return;
+                BigDecimal base = row.base[to].subtract(row.base[from]);
+                BigDecimal gst = row.gst[to].subtract(row.gst[from]);
+                result.put(type, new FareResult(base, gst, base.add(gst)));
+            });
+            return result;
+        }
+    }
+
+    private static final class SeatTypeFares {
+
+        private final BigDecimal[] base;
+        private final BigDecimal[] gst;
+        // segments without any fare of this seat type
+        private final int[] missing;
+        // segments priced by this bus or the route itself
+        private final int[] own;
+
+        private SeatTypeFares(int segmentCount) {
+            base = new BigDecimal[segmentCount + 1];
+            gst = new BigDecimal[segmentCount + 1];
+            missing = new int[segmentCount + 1];
+            own = new int[segmentCount + 1];
+            base[0] = BigDecimal.ZERO;
+            gst[0] = BigDecimal.ZERO;
+        }
+    }
+}
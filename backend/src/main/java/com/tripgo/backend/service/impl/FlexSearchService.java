@@ -0,0 +1,139 @@
+package com.tripgo.backend.service.impl;
+
+import com.tripgo.backend.dto.response.FareResult;
+import com.tripgo.backend.dto.response.FlexDay;
+import com.tripgo.backend.model.entities.RouteSchedule;
+import com.tripgo.backend.model.entities.ScheduleInstance;
+import com.tripgo.backend.model.entities.Seat;
+import com.tripgo.backend.repository.ScheduleInstanceRepository;
+import com.tripgo.backend.repository.SeatRepository;
+import com.tripgo.backend.util.FanOut;
+import lombok.RequiredArgsConstructor;
+import org.springframework.stereotype.Service;
+
+import java.math.BigDecimal;
+import java.time.LocalDate;
+import java.time.ZoneOffset;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.UUID;
+import java.util.function.Supplier;
+import java.util.stream.Collectors;
+
+/**
+ * Cheapest fare and open seats per day around a travel date, in one pass. The trips of all
+ * days come from one query over the materialized schedule instances (which already follow
+ * each schedule's service calendar); fares do not depend on the date, so they are resolved
+ * once per schedule, and seat layouts once per bus. Only occupancy is read per day.
+ */
+@Service
+@RequiredArgsConstructor
+public class FlexSearchService {
+
+    private final ScheduleInstanceRepository instanceRepo;
+    private final SeatRepository seatRepo;
+    private final SeatAvailabilityService seatAvailabilityService;
+    private final OccupancyService occupancyService;
+    private final RouteIndexService routeIndexService;
+    private final FanOut fanOut;
+
+    public List<FlexDay> search(Collection<UUID> routeIds, int fromStopId, int toStopId, LocalDate date, int window) {
+        LocalDate today = LocalDate.now(ZoneOffset.UTC);
+        LocalDate first = date.minusDays(window).isBefore(today) ? today : date.minusDays(window);
+        LocalDate last = date.plusDays(window);
+        if (last.isBefore(first)) return List.of();
+
+        List<ScheduleInstance> instances = routeIds.isEmpty() ? List.of()
+                : instanceRepo.findBookableBetween(routeIds, first, last);
+        return days(instances, openSeats(instances), fromStopId, toStopId, first, last);
+    }
+
+    /**
+     * Unblocked seat numbers per bus for the buses of the given trips.
+     */
+    public Map<UUID, List<String>> openSeats(Collection<ScheduleInstance> instances) {
+        Set<UUID> busIds = instances.stream()
+                .map(ScheduleInstance::getSchedule)
+                .filter(s -> s.getBus() != null)
+                .map(s -> s.getBus().getId())
+                .collect(Collectors.toSet());
+        if (busIds.isEmpty()) return Map.of();
+        return seatRepo.findByBusIdIn(busIds).stream()
+                .filter(seat -> !Boolean.TRUE.equals(seat.getIsBlocked()))
+                .collect(Collectors.groupingBy(seat -> seat.getBus().getId(),
+                        Collectors.mapping(Seat::getSeatNumber, Collectors.toList())));
+    }
+
+    /**
+     * One entry per day from first to last for a stop pair, over already loaded trips.
+     */
+    public List<FlexDay> days(List<ScheduleInstance> instances, Map<UUID, List<String>> openSeatsByBus,
+                              int fromStopId, int toStopId, LocalDate first, LocalDate last) {
+        Map<LocalDate, List<ScheduleInstance>> byDate = instances.stream()
+                .collect(Collectors.groupingBy(ScheduleInstance::getTravelDate));
+
+        List<RouteSchedule> schedules = instances.stream()
+                .map(ScheduleInstance::getSchedule)
+                .filter(s -> s.getBus() != null)
+                .distinct()
+                .toList();
+        Map<UUID, BigDecimal> minFares = new HashMap<>();
+        seatAvailabilityService.fares(schedules, fromStopId, toStopId).forEach((scheduleId, byType) ->
+                byType.values().stream()
+                        .map(FareResult::totalFare)
+                        .min(Comparator.naturalOrder())
+                        .ifPresent(min -> minFares.put(scheduleId, min)));
+
+        List<LocalDate> dates = first.datesUntil(last.plusDays(1)).toList();
+        List<List<RouteSchedule>> priced = dates.stream()
+                .map(day -> byDate.getOrDefault(day, List.of()).stream()
+                        .map(ScheduleInstance::getSchedule)
+                        .filter(s -> minFares.containsKey(s.getId()))
+                        .toList())
+                .toList();
+
+        // Occupancy is the only per-day read; days are independent
+        List<Supplier<Map<UUID, OccupancyService.Occupancy>>> loads = new ArrayList<>();
+        for (int i = 0; i < dates.size(); i++) {
+            LocalDate day = dates.get(i);
+            List<RouteSchedule> daySchedules = priced.get(i);
+            loads.add(() -> daySchedules.isEmpty() ? Map.of() : occupancyService.occupancies(daySchedules, day));
+        }
+        List<Map<UUID, OccupancyService.Occupancy>> occupancies = fanOut.all("flex", loads);
+
+        List<FlexDay> days = new ArrayList<>();
+        for (int i = 0; i < dates.size(); i++) {
+            days.add(day(dates.get(i), priced.get(i), occupancies.get(i), minFares, openSeatsByBus, fromStopId, toStopId));
+        }
+        return days;
+    }
+
+    private FlexDay day(LocalDate date, List<RouteSchedule> schedules, Map<UUID, OccupancyService.Occupancy> occupancies,
+                        Map<UUID, BigDecimal> minFares, Map<UUID, List<String>> openSeatsByBus,
+                        int fromStopId, int toStopId) {
+        if (schedules.isEmpty()) return new FlexDay(date, null, 0, 0);
+
+        BigDecimal cheapest = null;
+        int availableSeats = 0;
+        for (RouteSchedule schedule : schedules) {
+            UUID routeId = schedule.getRoute().getId();
+            OccupancyService.OccupiedSeats occupied = occupancies.get(schedule.getId()).occupied(
+                    routeIndexService.position(routeId, fromStopId),
+                    routeIndexService.position(routeId, toStopId));
+            int open = (int) openSeatsByBus.getOrDefault(schedule.getBus().getId(), List.of()).stream()
+                    .filter(seatNumber -> !occupied.contains(seatNumber))
+                    .count();
+            if (open == 0) continue;
+
+            availableSeats += open;
+            BigDecimal fare = minFares.get(schedule.getId());
+            if (cheapest == null || fare.compareTo(cheapest) < 0) cheapest = fare;
+        }
+        return new FlexDay(date, cheapest, availableSeats, schedules.size());
+    }
+}
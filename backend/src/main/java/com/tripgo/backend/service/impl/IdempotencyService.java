@@ -0,0 +1,209 @@
+package com.tripgo.backend.service.impl;
+
+import com.fasterxml.jackson.core.JsonProcessingException;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.ObjectWriter;
+import com.fasterxml.jackson.databind.SerializationFeature;
+import com.tripgo.backend.model.entities.IdempotencyRecord;
+import io.micrometer.core.instrument.MeterRegistry;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.http.ResponseEntity;
+import org.springframework.stereotype.Service;
+
+import java.nio.charset.StandardCharsets;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.time.Duration;
+import java.time.Instant;
+import java.util.HexFormat;
+import java.util.Map;
+import java.util.UUID;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.Executor;
+import java.util.concurrent.TimeUnit;
+import java.util.function.Supplier;
+
+import static java.util.concurrent.CompletableFuture.completedFuture;
+
+/**
+ * Idempotency-Key handling for endpoints that change bookings or payments. The first request
+ * with a key claims it and runs; its response (anything below 500) is stored against the
+ * user, the key and a hash of the request, and repeats within app.idempotency.ttl-hours get
+ * the stored response back with an Idempotent-Replayed header instead of running again.
+ * A duplicate that arrives while the first is still running shares its response when both
+ * hit this instance, and otherwise polls the stored row for up to
+ * app.idempotency.wait-ms. Reusing a key for a different request is rejected with 422.
+ * Requests without the header run as before.
+ */
+@Slf4j
+@Service
+public class IdempotencyService {
+
+    public static final String HEADER = "Idempotency-Key";
+
+    private static final Duration POLL_INTERVAL = Duration.ofMillis(200);
+
+    private record InFlight(String requestHash, CompletableFuture<ResponseEntity<?>> response) {}
+
+    private final IdempotencyStore store;
+    private final ObjectMapper objectMapper;
+    private final ObjectWriter hashWriter;
+    private final MeterRegistry meterRegistry;
+    private final Duration ttl;
+    private final Duration lease;
+    private final Duration wait;
+    // user:key -> execution running on this instance
+    private final Map<String, InFlight> inFlight = new ConcurrentHashMap<>();
+
+    public IdempotencyService(IdempotencyStore store,
+                              ObjectMapper objectMapper,
+                              MeterRegistry meterRegistry,
+                              @Value("${app.idempotency.ttl-hours:24}") long ttlHours,
+                              @Value("${app.idempotency.lease-seconds:60}") long leaseSeconds,
+                              @Value("${app.idempotency.wait-ms:10000}") long waitMs) {
+        this.store = store;
+        this.objectMapper = objectMapper;
+        this.hashWriter = objectMapper.writer().with(SerializationFeature.ORDER_MAP_ENTRIES_BY_KEYS);
+        this.meterRegistry = meterRegistry;
+        this.ttl = Duration.ofHours(ttlHours);
+        this.lease = Duration.ofSeconds(leaseSeconds);
+        this.wait = Duration.ofMillis(waitMs);
+    }
+
+    /**
+     * @param scope   identifies the endpoint and target, e.g. "POST /booking/{id}/cancel"
+     * @param request what makes two requests the same; hashed together with the scope
+     */
+    public CompletableFuture<ResponseEntity<?>> execute(String key, UUID userId, String scope, Object request,
+                                                       Supplier<CompletableFuture<ResponseEntity<?>>> action) {
+        if (key == null || key.isBlank()) {
+            return action.get();
+        }
+        if (key.length() > 255) {
+            return completedFuture(ResponseEntity.badRequest()
+                    .body(Map.of("error", HEADER + " must be at most 255 characters")));
+        }
+
+        String id = userId + ":" + key;
+        String requestHash = hash(scope, request);
+
+        CompletableFuture<ResponseEntity<?>> response = new CompletableFuture<>();
+        InFlight running = inFlight.putIfAbsent(id, new InFlight(requestHash, response));
+        if (running != null) {
+            if (!running.requestHash().equals(requestHash)) return completedFuture(mismatch());
+            count("joined");
+            return running.response();
+        }
+
+        CompletableFuture<ResponseEntity<?>> outcome;
+        try {
+            Instant now = Instant.now();
+            if (store.claim(id, userId, key, requestHash, now.plus(lease), now.plus(ttl), now)) {
+                count("executed");
+                outcome = run(id, action);
+            } else {
+                outcome = stored(id, requestHash, now.plus(wait));
+            }
+        } catch (RuntimeException e) {
+            inFlight.remove(id);
+            response.completeExceptionally(e);
+            throw e;
+        }
+
+        outcome.whenComplete((result, error) -> {
+            inFlight.remove(id);
+            if (error != null) response.completeExceptionally(error);
+            else response.complete(result);
+        });
+        return response;
+    }
+
+    public int deleteExpired() {
+        return store.deleteExpired(Instant.now());
+    }
+
+    private CompletableFuture<ResponseEntity<?>> run(String id, Supplier<CompletableFuture<ResponseEntity<?>>> action) {
+        CompletableFuture<ResponseEntity<?>> result;
+        try {
+            result = action.get();
+        } catch (RuntimeException e) {
+            store.release(id);
+            throw e;
+        }
+        return result.whenComplete((response, error) -> {
+            // Server errors are not remembered, so the client can retry with the same key
+            if (error != null || response.getStatusCode().is5xxServerError()) {
+                store.release(id);
+                return;
+            }
+            try {
+                Object body = response.getBody();
+                store.complete(id, response.getStatusCode().value(),
+                        body == null ? null : objectMapper.writeValueAsString(body));
+            } catch (JsonProcessingException | RuntimeException e) {
+                log.warn("Could not store response for idempotency key {}", id, e);
+                store.release(id);
+            }
+        });
+    }
+
+    // Response of a key another request claimed, once it has one
+    private CompletableFuture<ResponseEntity<?>> stored(String id, String requestHash, Instant deadline) {
+        IdempotencyRecord record = store.find(id).orElse(null);
+        if (record == null) {
+            count("in_progress");
+            return completedFuture(ResponseEntity.status(409)
+                    .body(Map.of("error", "The earlier request with this " + HEADER + " failed. Please retry.")));
+        }
+        if (!record.getRequestHash().equals(requestHash)) {
+            return completedFuture(mismatch());
+        }
+        if ("COMPLETED".equals(record.getStatus())) {
+            count("replayed");
+            return completedFuture(replay(record));
+        }
+        if (Instant.now().isAfter(deadline)) {
+            count("in_progress");
+            return completedFuture(ResponseEntity.status(409)
+                    .body(Map.of("error", "A request with this " + HEADER + " is still being processed")));
+        }
+        Executor later = CompletableFuture.delayedExecutor(POLL_INTERVAL.toMillis(), TimeUnit.MILLISECONDS);
+        return CompletableFuture.supplyAsync(() -> null, later)
+                .thenCompose(ignored -> stored(id, requestHash, deadline));
+    }
+
+    private ResponseEntity<?> replay(IdempotencyRecord record) {
+        ResponseEntity.BodyBuilder builder = ResponseEntity.status(record.getResponseStatus())
+                .header("Idempotent-Replayed", "true");
+        if (record.getResponseBody() == null) return builder.build();
+        try {
+            return builder.body(objectMapper.readTree(record.getResponseBody()));
+        } catch (JsonProcessingException e) {
+            throw new IllegalStateException(e);
+        }
+    }
+
+    private ResponseEntity<?> mismatch() {
+        count("mismatch");
+        return ResponseEntity.unprocessableEntity()
+                .body(Map.of("error", HEADER + " was already used for a different request"));
+    }
+
+    private String hash(String scope, Object request) {
+        try {
+            MessageDigest digest = MessageDigest.getInstance("SHA-256");
+            digest.update(scope.getBytes(StandardCharsets.UTF_8));
+            digest.update((byte) '\n');
+            digest.update(hashWriter.writeValueAsBytes(request));
+            return HexFormat.of().formatHex(digest.digest());
+        } catch (NoSuchAlgorithmException | JsonProcessingException e) {
+            throw new IllegalStateException(e);
+        }
+    }
+
+    private void count(String outcome) {
+        meterRegistry.counter("idempotency.requests", "outcome", outcome).increment();
+    }
+}
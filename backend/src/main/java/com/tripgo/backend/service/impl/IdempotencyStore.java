@@ -0,0 +1,43 @@
+package com.tripgo.backend.service.impl;
+
+import com.tripgo.backend.model.entities.IdempotencyRecord;
+import com.tripgo.backend.repository.IdempotencyRecordRepository;
+import jakarta.transaction.Transactional;
+import lombok.RequiredArgsConstructor;
+import org.springframework.stereotype.Service;
+
+import java.time.Instant;
+import java.util.Optional;
+import java.util.UUID;
+
+@Service
+@RequiredArgsConstructor
+public class IdempotencyStore {
+
+    private final IdempotencyRecordRepository recordRepo;
+
+    @Transactional
+    public boolean claim(String id, UUID userId, String key, String requestHash,
+                         Instant lockedUntil, Instant expiresAt, Instant now) {
+        return recordRepo.claim(id, userId, key, requestHash, lockedUntil, expiresAt, now) == 1;
+    }
+
+    public Optional<IdempotencyRecord> find(String id) {
+        return recordRepo.findById(id);
+    }
+
+    @Transactional
+    public void complete(String id, int status, String body) {
+        recordRepo.complete(id, status, body);
+    }
+
+    @Transactional
+    public void release(String id) {
+        recordRepo.release(id);
+    }
+
+    @Transactional
+    public int deleteExpired(Instant now) {
+        return recordRepo.deleteExpired(now);
+    }
+}
@@ -0,0 +1,71 @@
+package com.tripgo.backend.service.impl;
+
+import com.tripgo.backend.event.SeatsLockedEvent;
+import com.tripgo.backend.model.entities.SeatLock;
+import com.tripgo.backend.repository.SeatLockRepository;
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.event.TransactionalEventListener;
+
+import java.time.Instant;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.UUID;
+import java.util.concurrent.DelayQueue;
+import java.util.concurrent.Delayed;
+import java.util.concurrent.TimeUnit;
+import java.util.stream.Collectors;
+
+/**
+ * Expires seat locks on time. Every lock token is queued with its expiry; each tick
+ * drains the tokens that are due and deletes their locks with one batched delete, which
+ * publishes a SeatsReleasedEvent per token.
+ * Tokens released earlier (payment, user unlock) simply find nothing left to delete.
+ */
+@Slf4j
+@Service
+@RequiredArgsConstructor
+public class LockExpiryService {
+
+    private final SeatLockService seatLockService;
+    private final SeatLockRepository seatLockRepo;
+
+    private final DelayQueue<ExpiringLock> queue = new DelayQueue<>();
+
+    @EventListener(ApplicationReadyEvent.class)
+    public void loadPending() {
+        Map<UUID, Instant> expiries = seatLockRepo.findAll().stream()
+                .collect(Collectors.toMap(SeatLock::getLockToken, SeatLock::getExpiresAt, (a, b) -> a));
+        expiries.forEach((token, expiresAt) -> queue.put(new ExpiringLock(token, expiresAt)));
+        log.info("Seat lock expiry queue loaded with {} tokens", expiries.size());
+    }
+
+    @TransactionalEventListener(fallbackExecution = true)
+    public void onSeatsLocked(SeatsLockedEvent event) {
+        queue.put(new ExpiringLock(event.lockToken(), event.expiresAt()));
+    }
+
+    public void expireDue() {
+        List<ExpiringLock> due = new ArrayList<>();
+        queue.drainTo(due);
+        if (due.isEmpty()) return;
+        seatLockService.expire(due.stream().map(ExpiringLock::token).toList(), Instant.now());
+    }
+
+    private record ExpiringLock(UUID token, Instant expiresAt) implements Delayed {
+
+        @Override
+        public long getDelay(TimeUnit unit) {
+            return unit.convert(expiresAt.toEpochMilli() - System.currentTimeMillis(), TimeUnit.MILLISECONDS);
+        }
+
+        @Override
+        public int compareTo(Delayed other) {
+            return expiresAt.compareTo(((ExpiringLock) other).expiresAt);
+        }
+    }
+}
@@ -0,0 +1,207 @@
+package com.tripgo.backend.service.impl;
+
+import com.tripgo.backend.dto.response.SeatRange;
+import com.tripgo.backend.event.BookingCancelledEvent;
+import com.tripgo.backend.event.BookingConfirmedEvent;
+import com.tripgo.backend.model.entities.BookingSeat;
+import com.tripgo.backend.model.entities.RouteSchedule;
+import com.tripgo.backend.repository.BookingSeatRepository;
+import lombok.RequiredArgsConstructor;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.event.TransactionalEventListener;
+
+import java.time.LocalDate;
+import java.util.ArrayList;
+import java.util.BitSet;
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.UUID;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.stream.Collectors;
+
+/**
+ * Confirmed-seat occupancy per (schedule, travel date): one bitset per route segment over
+ * seat indices. The seats taken anywhere on segments i..j are the OR of those bitsets, so
+ * availability checks never load booking rows once an entry is built.
+ * Confirmations are applied in place; cancellations and segment changes drop the entry
+ * and it is rebuilt from the database on next use.
+ */
+@Service
+@RequiredArgsConstructor
+public class OccupancyService {
+
+    private final BookingSeatRepository bookingSeatRepo;
+    private final RouteIndexService routeIndexService;
+
+    public record ScheduleDate(UUID scheduleId, LocalDate travelDate) {}
+
+    private final Map<ScheduleDate, Occupancy> occupancies = new ConcurrentHashMap<>();
+    // Bumped on every change so an entry built from a stale read is not kept
+    private final AtomicLong generation = new AtomicLong();
+
+    public Occupancy occupancy(RouteSchedule schedule, LocalDate travelDate) {
+        return occupancies(List.of(schedule), travelDate).get(schedule.getId());
+    }
+
+    /**
+     * Occupancy of several schedules on one date, keyed by schedule id. Entries not cached yet
+     * are built from a single query over all their confirmed booking seats.
+     */
+    public Map<UUID, Occupancy> occupancies(Collection<RouteSchedule> schedules, LocalDate travelDate) {
+        Map<UUID, Occupancy> result = new HashMap<>();
+        List<RouteSchedule> missing = new ArrayList<>();
+        for (RouteSchedule schedule : schedules) {
+            Occupancy cached = occupancies.get(new ScheduleDate(schedule.getId(), travelDate));
+            if (cached != null) result.put(schedule.getId(), cached);
+            else missing.add(schedule);
+        }
+        if (missing.isEmpty()) return result;
+
+        long seen = generation.get();
+        Map<UUID, List<BookingSeat>> bookedBySchedule = bookingSeatRepo.findConfirmedByScheduleIds(
+                        missing.stream().map(RouteSchedule::getId).toList(), travelDate).stream()
+                .collect(Collectors.groupingBy(bs -> bs.getBooking().getRouteSchedule().getId()));
+
+        for (RouteSchedule schedule : missing) {
+            UUID routeId = schedule.getRoute().getId();
+            Occupancy occupancy = new Occupancy(routeId, routeIndexService.segmentCount(routeId));
+            bookedBySchedule.getOrDefault(schedule.getId(), List.of()).forEach(bs -> mark(occupancy, bs));
+            result.put(schedule.getId(), occupancy);
+
+            ScheduleDate key = new ScheduleDate(schedule.getId(), travelDate);
+            occupancies.put(key, occupancy);
+            if (generation.get() != seen) occupancies.remove(key, occupancy);
+        }
+        return result;
+    }
+
+    @TransactionalEventListener(fallbackExecution = true)
+    public void onBookingConfirmed(BookingConfirmedEvent event) {
+        generation.incrementAndGet();
+        if (event.travelDate() == null) {
+            evictSchedule(event.scheduleId());
+            return;
+        }
+        Occupancy occupancy = occupancies.get(new ScheduleDate(event.scheduleId(), event.travelDate()));
+        if (occupancy == null) return;
+        bookingSeatRepo.findByBookingId(event.bookingId()).forEach(bs -> mark(occupancy, bs));
+    }
+
+    @TransactionalEventListener(fallbackExecution = true)
+    public void onBookingCancelled(BookingCancelledEvent event) {
+        generation.incrementAndGet();
+        if (event.travelDate() == null) {
+            evictSchedule(event.scheduleId());
+            return;
+        }
+        occupancies.remove(new ScheduleDate(event.scheduleId(), event.travelDate()));
+    }
+
+    /**
+     * Drops every entry of a route; its segment positions have changed.
+     */
+    public void invalidateRoute(UUID routeId) {
+        generation.incrementAndGet();
+        occupancies.values().removeIf(occupancy -> occupancy.routeId.equals(routeId));
+    }
+
+    public void evictPastDates() {
+        LocalDate today = LocalDate.now();
+        occupancies.keySet().removeIf(key -> key.travelDate().isBefore(today));
+    }
+
+    private void evictSchedule(UUID scheduleId) {
+        occupancies.keySet().removeIf(key -> key.scheduleId().equals(scheduleId));
+    }
+
+    // A booking whose stops are not on the route blocks the seat on the whole route
+    private void mark(Occupancy occupancy, BookingSeat bookingSeat) {
+        int from = routeIndexService.position(occupancy.routeId, bookingSeat.getFromStopId());
+        int to = routeIndexService.position(occupancy.routeId, bookingSeat.getToStopId());
+        if (from == -1 || to == -1 || to <= from) {
+            from = 0;
+            to = occupancy.segments.length;
+        }
+        occupancy.mark(bookingSeat.getSeatNumber(), from, to);
+    }
+
+    private static String seatKey(String seatNumber) {
+        return seatNumber == null ? "" : seatNumber.toUpperCase();
+    }
+
+    public static final class Occupancy {
+
+        private final UUID routeId;
+        private final BitSet[] segments;
+        // seat number (upper case) -> bit index
+        private final Map<String, Integer> seatIndex = new ConcurrentHashMap<>();
+        // bit index -> seat number
+        private final List<String> seatNumbers = new ArrayList<>();
+
+        private Occupancy(UUID routeId, int segmentCount) {
+            this.routeId = routeId;
+            this.segments = new BitSet[segmentCount];
+            for (int i = 0; i < segmentCount; i++) segments[i] = new BitSet();
+        }
+
+        public int segmentCount() {
+            return segments.length;
+        }
+
+        /**
+         * Seats confirmed on any segment between positions {@code from} and {@code to}.
+         */
+        public synchronized OccupiedSeats occupied(int from, int to) {
+            BitSet bits = new BitSet();
+            for (int i = Math.max(from, 0); i < Math.min(to, segments.length); i++) {
+                bits.or(segments[i]);
+            }
+            return new OccupiedSeats(bits, seatIndex);
+        }
+
+        /**
+         * Every booked seat with the contiguous segment ranges it is taken on.
+         */
+        public synchronized List<SeatRange> bookedRanges() {
+            List<SeatRange> ranges = new ArrayList<>();
+            for (int seat = 0; seat < seatNumbers.size(); seat++) {
+                int start = -1;
+                for (int i = 0; i <= segments.length; i++) {
+                    boolean taken = i < segments.length && segments[i].get(seat);
+                    if (taken && start == -1) start = i;
+                    if (!taken && start != -1) {
+                        ranges.add(new SeatRange(seatNumbers.get(seat), start, i));
+                        start = -1;
+                    }
+                }
+            }
+            return ranges;
+        }
+
+        private synchronized void mark(String seatNumber, int from, int to) {
+            String key = seatKey(seatNumber);
+            Integer index = seatIndex.get(key);
+            if (index == null) {
+                index = seatNumbers.size();
+                seatIndex.put(key, index);
+                seatNumbers.add(seatNumber);
+            }
+            for (int i = from; i < to; i++) segments[i].set(index);
+        }
+    }
+
+    public record OccupiedSeats(BitSet bits, Map<String, Integer> seatIndex) {
+
+        public boolean contains(String seatNumber) {
+            Integer index = seatIndex.get(seatKey(seatNumber));
+            return index != null && bits.get(index);
+        }
+
+        public int count() {
+            return bits.cardinality();
+        }
+    }
+}
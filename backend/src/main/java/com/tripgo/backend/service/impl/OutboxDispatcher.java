@@ -0,0 +1,57 @@
+package com.tripgo.backend.service.impl;
+
+import com.tripgo.backend.model.entities.OutboxEvent;
+import lombok.RequiredArgsConstructor;
+import org.springframework.stereotype.Service;
+
+import java.util.UUID;
+
+/**
+ * Carries out due outbox events; every event is handled and acknowledged on its own, so one
+ * failing side effect does not hold back the others. Handlers run synchronously and throw on
+ * failure, which is what puts an event into backoff.
+ */
+@Service
+@RequiredArgsConstructor
+public class OutboxDispatcher {
+
+    private static final int BATCH_SIZE = 50;
+
+    private final OutboxService outboxService;
+    private final BookingConfirmationService bookingConfirmationService;
+    private final SeatLockService lockService;
+    private final RefundService refundService;
+    private final EmailService emailService;
+
+    public void dispatch() {
+        for (OutboxEvent event : outboxService.claim(BATCH_SIZE)) {
+            try {
+                handle(event);
+                outboxService.complete(event.getId());
+            } catch (Exception e) {
+                outboxService.retry(event.getId(), e);
+            }
+        }
+    }
+
+    private void handle(OutboxEvent event) {
+        UUID bookingId = event.getAggregateId();
+        switch (event.getEventType()) {
+            case BookingConfirmationService.ISSUE_TICKET -> bookingConfirmationService.issueTicket(bookingId);
+            case BookingConfirmationService.RELEASE_LOCK ->
+                    lockService.release(UUID.fromString((String) event.getPayload().get("lockToken")));
+            case BookingConfirmationService.NOTIFY_BOOKING_CONFIRMED -> bookingConfirmationService.notifyConfirmed(bookingId);
+            case BookingConfirmationService.EMAIL_BOOKING_CONFIRMED ->
+                    emailService.sendBookingConfirmation(bookingConfirmationService.confirmationEmail(bookingId));
+            case BookingConfirmationService.EMAIL_OPERATOR_NEW_BOOKING ->
+                    bookingConfirmationService.operatorBookingEmail(bookingId).ifPresent(emailService::notifyOperatorNewBooking);
+            case BookingConfirmationService.NOTIFY_PAYMENT_FAILED -> bookingConfirmationService.notifyPaymentFailed(bookingId);
+            case BookingConfirmationService.EMAIL_PAYMENT_FAILED ->
+                    emailService.sendPaymentFailed(bookingConfirmationService.paymentFailedEmail(bookingId));
+            case CancellationService.ISSUE_REFUND -> refundService.issue(bookingId,
+                    (String) event.getPayload().get("paymentIntentId"),
+                    ((Number) event.getPayload().get("amountInPaise")).longValue());
+            default -> throw new IllegalStateException("Unknown outbox event type " + event.getEventType());
+        }
+    }
+}
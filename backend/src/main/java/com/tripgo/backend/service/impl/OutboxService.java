@@ -0,0 +1,83 @@
+package com.tripgo.backend.service.impl;
+
+import com.tripgo.backend.model.entities.OutboxEvent;
+import com.tripgo.backend.repository.OutboxEventRepository;
+import jakarta.transaction.Transactional;
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.stereotype.Service;
+
+import java.time.Duration;
+import java.time.Instant;
+import java.util.List;
+import java.util.Map;
+import java.util.UUID;
+
+/**
+ * Transactional outbox. {@link #enqueue} joins the caller's transaction, so an event exists
+ * exactly when the state change that caused it committed. Claiming an event pushes its next
+ * attempt out by a lease instead of marking it in progress: if the dispatcher dies mid-way
+ * the event simply becomes due again. Failures back off exponentially up to an hour and
+ * give up after {@link #MAX_ATTEMPTS}. Delivery is at least once.
+ */
+@Slf4j
+@Service
+@RequiredArgsConstructor
+public class OutboxService {
+
+    public static final int MAX_ATTEMPTS = 10;
+    private static final Duration LEASE = Duration.ofMinutes(5);
+    private static final Duration FIRST_RETRY = Duration.ofSeconds(5);
+    private static final Duration MAX_RETRY = Duration.ofHours(1);
+
+    private final OutboxEventRepository outboxRepo;
+
+    @Transactional
+    public void enqueue(String eventType, UUID aggregateId, Map<String, Object> payload) {
+        outboxRepo.save(OutboxEvent.builder()
+                .eventType(eventType)
+                .aggregateId(aggregateId)
+                .payload(payload)
+                .build());
+    }
+
+    /**
+     * Takes up to {@code limit} due events for this dispatcher.
+     */
+    @Transactional
+    public List<OutboxEvent> claim(int limit) {
+        Instant now = Instant.now();
+        List<OutboxEvent> due = outboxRepo.lockDue(now, limit);
+        for (OutboxEvent event : due) {
+            event.setAttempts(event.getAttempts() + 1);
+            event.setNextAttemptAt(now.plus(LEASE));
+        }
+        return outboxRepo.saveAll(due);
+    }
+
+    @Transactional
+    public void complete(UUID eventId) {
+        outboxRepo.findById(eventId).ifPresent(event -> {
+            event.setStatus("DONE");
+            event.setProcessedAt(Instant.now());
+            event.setLastError(null);
+        });
+    }
+
+    @Transactional
+    public void retry(UUID eventId, Exception error) {
+        outboxRepo.findById(eventId).ifPresent(event -> {
+            event.setLastError(String.valueOf(error.getMessage()));
+            if (event.getAttempts() >= MAX_ATTEMPTS) {
+                event.setStatus("FAILED");
+                log.error("Outbox event {} ({}) failed after {} attempts", event.getId(), event.getEventType(),
+                        event.getAttempts(), error);
+                return;
+            }
+            Duration backoff = FIRST_RETRY.multipliedBy(1L << Math.min(event.getAttempts() - 1, 20));
+            event.setNextAttemptAt(Instant.now().plus(backoff.compareTo(MAX_RETRY) > 0 ? MAX_RETRY : backoff));
+            log.warn("Outbox event {} ({}) attempt {} failed: {}", event.getId(), event.getEventType(),
+                    event.getAttempts(), error.getMessage());
+        });
+    }
+}
@@ -0,0 +1,75 @@
+package com.tripgo.backend.service.impl;
+
+import com.tripgo.backend.model.entities.Booking;
+import com.tripgo.backend.model.entities.BookingSeat;
+import com.tripgo.backend.model.entities.Operator;
+import com.tripgo.backend.model.entities.RouteSchedule;
+import com.tripgo.backend.model.enums.BookingStatus;
+import com.tripgo.backend.repository.BookingRepository;
+import com.tripgo.backend.repository.BookingSeatRepository;
+import com.tripgo.backend.repository.RouteScheduleRepository;
+import lombok.RequiredArgsConstructor;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.annotation.Transactional;
+
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.UUID;
+
+/**
+ * Reads the payment endpoints need before they call the gateway. The payment endpoints run
+ * without open-in-view, so everything lazy is resolved here, in a read-only transaction
+ * whose connection goes back to the pool before the gateway is called.
+ */
+@Service
+@RequiredArgsConstructor
+@Transactional(readOnly = true)
+public class PaymentCheckoutService {
+
+    private final RouteScheduleRepository scheduleRepo;
+    private final BookingRepository bookingRepository;
+    private final BookingSeatRepository bookingSeatRepository;
+
+    public record Trip(RouteSchedule schedule, Operator operator) {}
+
+    /**
+     * @param response body returned once the booking is confirmed
+     */
+    public record Confirmation(UUID userId, BookingStatus status, Map<String, Object> response) {}
+
+    public Trip trip(UUID scheduleId) {
+        RouteSchedule schedule = scheduleRepo.findById(scheduleId)
+                .orElseThrow(() -> new RuntimeException("Schedule not found"));
+        return new Trip(schedule, schedule.getRoute().getOperator());
+    }
+
+    public Confirmation confirmation(UUID bookingId) {
+        Booking booking = bookingRepository.findById(bookingId)
+                .orElseThrow(() -> new RuntimeException("Booking not found"));
+
+        List<BookingSeat> bookingSeats = bookingSeatRepository.findByBookingId(booking.getId());
+        Map<String, Object> response = new LinkedHashMap<>();
+        response.put("status", "CONFIRMED");
+        response.put("bookingId", booking.getId());
+        response.put("bookingCode", booking.getBookingCode());
+        response.put("from", booking.getRouteSchedule().getRoute().getOrigin());
+        response.put("to", booking.getRouteSchedule().getRoute().getDestination());
+        response.put("busName", booking.getRouteSchedule().getBus().getName());
+        response.put("totalAmount", booking.getTotalAmount());
+        response.put("payableAmount", booking.getPayableAmount());
+        response.put("passengers", bookingSeats.stream().map(s -> {
+            Map<String, Object> p = new LinkedHashMap<>();
+            p.put("seatNumber", s.getSeatNumber());
+            if (s.getPassenger() != null) {
+                p.put("firstName", s.getPassenger().getFirstName());
+                p.put("lastName", s.getPassenger().getLastName() != null ? s.getPassenger().getLastName() : "");
+                p.put("age", s.getPassenger().getAge());
+                p.put("gender", s.getPassenger().getGender());
+                p.put("phone", s.getPassenger().getPhone());
+            }
+            return p;
+        }).toList());
+        return new Confirmation(booking.getUser().getId(), booking.getStatus(), response);
+    }
+}
@@ -0,0 +1,39 @@
+package com.tripgo.backend.service.impl;
+
+import java.util.Map;
+
+/**
+ * Payment provider calls used by booking, confirmation and refunds. Implementations are
+ * plain blocking calls; PaymentGatewayClient runs them off the request thread behind a
+ * bulkhead and timeout. Selected with app.payment.gateway=stripe|fake.
+ */
+public interface PaymentGateway {
+
+    /**
+     * @param idempotencyKey the provider returns the same intent when a create is retried
+     */
+    record CreateIntent(long amountInPaise, String currency, Map<String, String> metadata, String idempotencyKey) {}
+
+    record Intent(String id, String status, String clientSecret, Map<String, String> metadata) {
+
+        // Still waiting for the customer, so the client secret can be handed out again
+        public boolean awaitingPayment() {
+            return "requires_payment_method".equals(status) || "requires_confirmation".equals(status);
+        }
+
+        public boolean succeeded() {
+            return "succeeded".equals(status);
+        }
+    }
+
+    String name();
+
+    Intent createIntent(CreateIntent request) throws Exception;
+
+    Intent retrieveIntent(String intentId) throws Exception;
+
+    /**
+     * @param idempotencyKey the provider makes the refund once however often it is retried
+     */
+    void refund(String intentId, long amountInPaise, String idempotencyKey) throws Exception;
+}
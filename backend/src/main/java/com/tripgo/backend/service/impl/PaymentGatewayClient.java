@@ -0,0 +1,149 @@
+package com.tripgo.backend.service.impl;
+
+import com.tripgo.backend.exception.PaymentGatewayTimeoutException;
+import com.tripgo.backend.exception.PaymentGatewayUnavailableException;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
+import jakarta.annotation.PreDestroy;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Service;
+
+import java.time.Duration;
+import java.util.concurrent.Callable;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+import java.util.function.Supplier;
+
+/**
+ * Asynchronous front of the configured PaymentGateway. Each call runs on its own virtual
+ * thread, so neither a request thread nor a JDBC connection waits on the provider. At most
+ * app.payment.max-concurrent calls are in flight; a call that cannot get a slot right away
+ * fails with PaymentGatewayUnavailableException instead of queueing; one that takes longer
+ * than app.payment.timeout-ms fails with PaymentGatewayTimeoutException, as its outcome at
+ * the provider is unknown. Callers must not hold a transaction or touch
+ * lazy associations in the returned future's continuations.
+ * Latency is published as the "payment.gateway.latency" histogram tagged with gateway,
+ * operation and outcome=success|error|timeout|rejected.
+ */
+@Service
+public class PaymentGatewayClient {
+
+    private final PaymentGateway gateway;
+    private final MeterRegistry meterRegistry;
+    private final Semaphore bulkhead;
+    private final Duration timeout;
+    private final ExecutorService executor = Executors.newVirtualThreadPerTaskExecutor();
+
+    public PaymentGatewayClient(PaymentGateway gateway,
+                                MeterRegistry meterRegistry,
+                                @Value("${app.payment.max-concurrent:20}") int maxConcurrent,
+                                @Value("${app.payment.timeout-ms:10000}") long timeoutMs) {
+        this.gateway = gateway;
+        this.meterRegistry = meterRegistry;
+        this.bulkhead = new Semaphore(maxConcurrent);
+        this.timeout = Duration.ofMillis(timeoutMs);
+        Gauge.builder("payment.gateway.bulkhead.available", bulkhead, Semaphore::availablePermits)
+                .tag("gateway", gateway.name())
+                .register(meterRegistry);
+    }
+
+    public CompletableFuture<PaymentGateway.Intent> createIntent(PaymentGateway.CreateIntent request) {
+        return call("create_intent", () -> gateway.createIntent(request));
+    }
+
+    /**
+     * Prepares the request on the calling thread once a bulkhead slot is held, so a busy
+     * provider is reported before anything the request is for (such as a booking) is written.
+     */
+    public CompletableFuture<PaymentGateway.Intent> createIntent(Supplier<PaymentGateway.CreateIntent> prepare) {
+        return prepareAndCall("create_intent", () -> {
+            PaymentGateway.CreateIntent request = prepare.get();
+            return () -> gateway.createIntent(request);
+        });
+    }
+
+    public CompletableFuture<PaymentGateway.Intent> retrieveIntent(String intentId) {
+        return call("retrieve_intent", () -> gateway.retrieveIntent(intentId));
+    }
+
+    public CompletableFuture<Void> refund(String intentId, long amountInPaise, String idempotencyKey) {
+        return call("refund", () -> {
+            gateway.refund(intentId, amountInPaise, idempotencyKey);
+            return null;
+        });
+    }
+
+    @PreDestroy
+    public void shutdown() {
+        executor.shutdown();
+    }
+
+    private <T> CompletableFuture<T> call(String operation, Callable<T> call) {
+        return prepareAndCall(operation, () -> call);
+    }
+
+    private <T> CompletableFuture<T> prepareAndCall(String operation, Supplier<Callable<T>> prepare) {
+        if (!bulkhead.tryAcquire()) {
+            Counter.builder("payment.gateway.rejected")
+                    .tag("gateway", gateway.name())
+                    .tag("operation", operation)
+                    .register(meterRegistry)
+                    .increment();
+            record(operation, "rejected", 0);
+            return CompletableFuture.failedFuture(
+                    new PaymentGatewayUnavailableException("Payment provider is busy, please retry"));
+        }
+
+        Callable<T> call;
+        try {
+            call = prepare.get();
+        } catch (RuntimeException e) {
+            bulkhead.release();
+            return CompletableFuture.failedFuture(e);
+        }
+
+        long start = System.nanoTime();
+        CompletableFuture<T> future = new CompletableFuture<>();
+        executor.execute(() -> {
+            try {
+                future.complete(call.call());
+            } catch (Throwable e) {
+                future.completeExceptionally(e);
+            } finally {
+                bulkhead.release();
+            }
+        });
+
+        return future.orTimeout(timeout.toMillis(), TimeUnit.MILLISECONDS)
+                .handle((result, error) -> {
+                    Throwable cause = error instanceof CompletionException && error.getCause() != null
+                            ? error.getCause() : error;
+                    if (cause instanceof TimeoutException) {
+                        record(operation, "timeout", System.nanoTime() - start);
+                        throw new PaymentGatewayTimeoutException("Payment provider timed out, please retry");
+                    }
+                    record(operation, cause == null ? "success" : "error", System.nanoTime() - start);
+                    if (cause != null) {
+                        throw cause instanceof RuntimeException re ? re : new CompletionException(cause);
+                    }
+                    return result;
+                });
+    }
+
+    private void record(String operation, String outcome, long nanos) {
+        Timer.builder("payment.gateway.latency")
+                .tag("gateway", gateway.name())
+                .tag("operation", operation)
+                .tag("outcome", outcome)
+                .publishPercentileHistogram()
+                .register(meterRegistry)
+                .record(nanos, TimeUnit.NANOSECONDS);
+    }
+}
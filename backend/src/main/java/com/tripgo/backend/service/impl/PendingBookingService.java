@@ -0,0 +1,112 @@
+package com.tripgo.backend.service.impl;
+
+import com.tripgo.backend.model.entities.Booking;
+import com.tripgo.backend.model.entities.BookingSeat;
+import com.tripgo.backend.model.entities.Passenger;
+import com.tripgo.backend.model.entities.Seat;
+import com.tripgo.backend.model.enums.BookingStatus;
+import com.tripgo.backend.repository.BookingRepository;
+import com.tripgo.backend.repository.BookingSeatRepository;
+import com.tripgo.backend.repository.PassengerRepository;
+import com.tripgo.backend.repository.SeatRepository;
+import jakarta.transaction.Transactional;
+import lombok.RequiredArgsConstructor;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Service;
+
+import java.math.BigDecimal;
+import java.math.RoundingMode;
+import java.time.Duration;
+import java.time.Instant;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.List;
+import java.util.Map;
+import java.util.UUID;
+import java.util.function.Function;
+import java.util.stream.Collectors;
+
+/**
+ * Writes a PENDING booking with its passengers and seats in one transaction. The requested
+ * seats are looked up with one query and passengers and booking seats are inserted as JDBC
+ * batches, so the number of round trips does not grow with the passenger count.
+ */
+@Service
+@RequiredArgsConstructor
+public class PendingBookingService {
+
+    private final BookingRepository bookingRepository;
+    private final BookingSeatRepository bookingSeatRepository;
+    private final PassengerRepository passengerRepository;
+    private final SeatRepository seatRepository;
+
+    @Value("${app.booking.unpaid-ttl-minutes:30}")
+    private long unpaidTtlMinutes;
+
+    /**
+     * Seats of each booking, keyed by booking id; bookings without seats are absent.
+     */
+    public Map<UUID, List<BookingSeat>> seatsOf(Collection<Booking> bookings) {
+        if (bookings.isEmpty()) return Map.of();
+        List<UUID> bookingIds = bookings.stream().map(Booking::getId).toList();
+        return bookingSeatRepository.findByBookingIdIn(bookingIds).stream()
+                .collect(Collectors.groupingBy(bs -> bs.getBooking().getId()));
+    }
+
+    @Transactional
+    public Booking create(Booking booking,
+                          List<Passenger> passengers,
+                          List<String> seatNumbers,
+                          String from, String to,
+                          Integer fromStopId, Integer toStopId) {
+        bookingRepository.save(booking);
+        passengerRepository.saveAll(passengers);
+
+        UUID busId = booking.getRouteSchedule().getBus().getId();
+        Map<String, Seat> seats = seatRepository.findByBusIdAndSeatNumberIn(busId, seatNumbers).stream()
+                .collect(Collectors.toMap(Seat::getSeatNumber, Function.identity(), (a, b) -> a));
+
+        BigDecimal seatFare = booking.getPayableAmount().divide(
+                BigDecimal.valueOf(passengers.size()), 2, RoundingMode.HALF_UP);
+
+        List<BookingSeat> bookingSeats = new ArrayList<>(passengers.size());
+        for (int i = 0; i < passengers.size(); i++) {
+            String seatNumber = seatNumbers.get(i);
+            bookingSeats.add(BookingSeat.builder()
+                    .booking(booking)
+                    .seat(seats.get(seatNumber))
+                    .seatNumber(seatNumber)
+                    .fare(seatFare)
+                    .passenger(passengers.get(i))
+                    .fromStop(from)
+                    .toStop(to)
+                    .fromStopId(fromStopId)
+                    .toStopId(toStopId)
+                    .build());
+        }
+        bookingSeatRepository.saveAll(bookingSeats);
+        return booking;
+    }
+
+    /**
+     * Fails a booking whose payment intent could not be created. No-op once it left PENDING.
+     */
+    @Transactional
+    public void abandon(UUID bookingId) {
+        bookingRepository.findById(bookingId)
+                .filter(booking -> booking.getStatus() == BookingStatus.PENDING)
+                .ifPresent(booking -> booking.setStatus(BookingStatus.FAILED));
+    }
+
+    /**
+     * Fails PENDING bookings that never got a payment intent within app.booking.unpaid-ttl-minutes.
+     * The customer never received a client secret for them, so nothing can still pay them.
+     */
+    @Transactional
+    public int expireUnpaid() {
+        List<Booking> stale = bookingRepository.findPendingWithoutPaymentBefore(
+                Instant.now().minus(Duration.ofMinutes(unpaidTtlMinutes)));
+        stale.forEach(booking -> booking.setStatus(BookingStatus.FAILED));
+        return stale.size();
+    }
+}
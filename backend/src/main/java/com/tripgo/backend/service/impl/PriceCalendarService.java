@@ -0,0 +1,257 @@
+package com.tripgo.backend.service.impl;
+
+import com.tripgo.backend.dto.response.FlexDay;
+import com.tripgo.backend.event.BookingCancelledEvent;
+import com.tripgo.backend.event.BookingConfirmedEvent;
+import com.tripgo.backend.event.RouteChangedEvent;
+import com.tripgo.backend.event.ScheduleChangedEvent;
+import com.tripgo.backend.model.entities.PriceCalendarDay;
+import com.tripgo.backend.model.entities.RouteSchedule;
+import com.tripgo.backend.model.entities.ScheduleInstance;
+import com.tripgo.backend.repository.PriceCalendarRepository;
+import com.tripgo.backend.repository.RouteScheduleRepository;
+import com.tripgo.backend.repository.ScheduleInstanceRepository;
+import jakarta.transaction.Transactional;
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.event.TransactionalEventListener;
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+
+import java.time.LocalDate;
+import java.time.YearMonth;
+import java.time.ZoneOffset;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.UUID;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.function.Function;
+import java.util.stream.Collectors;
+
+/**
+ * Lowest open fare per stop pair and day, stored in price_calendar so a month is one
+ * indexed read. Changes only mark the affected route and dates as dirty: a booking marks
+ * its trip's date, a schedule change the route's whole horizon, a fare or segment change
+ * the horizon of every pair the route serves or used to serve. {@link #flush()} then
+ * recomputes just those pairs and dates, with the same fares (fare matrices, including
+ * bus-specific fares) and seat counts the search uses, so bursts of bookings on one route
+ * cost one recomputation. Marks drained by a flush whose transaction does not commit are
+ * put back for the next one. The stops a route had at its last recomputation are stored in
+ * price_calendar_routes, so pairs it stopped serving are cleared across restarts too.
+ */
+@Slf4j
+@Service
+@RequiredArgsConstructor
+public class PriceCalendarService {
+
+    private final PriceCalendarRepository calendarRepo;
+    private final ScheduleInstanceRepository instanceRepo;
+    private final RouteScheduleRepository scheduleRepo;
+    private final RouteIndexService routeIndexService;
+    private final FlexSearchService flexSearchService;
+
+    @Value("${app.schedule.instance-horizon-days:60}")
+    private int horizonDays;
+
+    private record DateRange(LocalDate first, LocalDate last) {
+
+        DateRange merge(DateRange other) {
+            return new DateRange(
+                    first.isBefore(other.first) ? first : other.first,
+                    last.isAfter(other.last) ? last : other.last);
+        }
+    }
+
+    private record StopPair(int fromStopId, int toStopId) {}
+
+    // routeId -> dates to recompute
+    private final Map<UUID, DateRange> dirtyRoutes = new ConcurrentHashMap<>();
+    // scheduleId -> dates to recompute, resolved to routes on flush
+    private final Map<UUID, DateRange> dirtySchedules = new ConcurrentHashMap<>();
+
+    public List<FlexDay> month(int fromStopId, int toStopId, YearMonth month) {
+        Map<LocalDate, PriceCalendarDay> stored = calendarRepo
+                .findByFromStopIdAndToStopIdAndTravelDateBetweenOrderByTravelDate(
+                        fromStopId, toStopId, month.atDay(1), month.atEndOfMonth()).stream()
+                .collect(Collectors.toMap(PriceCalendarDay::getTravelDate, Function.identity()));
+
+        List<FlexDay> days = new ArrayList<>();
+        for (LocalDate date = month.atDay(1); !date.isAfter(month.atEndOfMonth()); date = date.plusDays(1)) {
+            PriceCalendarDay day = stored.get(date);
+            days.add(day == null
+                    ? new FlexDay(date, null, 0, 0)
+                    : new FlexDay(date, day.getMinFare(), day.getAvailableSeats(), day.getTrips()));
+        }
+        return days;
+    }
+
+    @TransactionalEventListener(fallbackExecution = true)
+    public void onBookingConfirmed(BookingConfirmedEvent event) {
+        markSchedule(event.scheduleId(), event.travelDate());
+    }
+
+    @TransactionalEventListener(fallbackExecution = true)
+    public void onBookingCancelled(BookingCancelledEvent event) {
+        markSchedule(event.scheduleId(), event.travelDate());
+    }
+
+    @TransactionalEventListener(fallbackExecution = true)
+    public void onScheduleChanged(ScheduleChangedEvent event) {
+        markRoute(event.routeId(), horizon());
+    }
+
+    @TransactionalEventListener(fallbackExecution = true)
+    public void onRouteChanged(RouteChangedEvent event) {
+        markRoute(event.routeId(), horizon());
+    }
+
+    /**
+     * Fills the table over the whole horizon when it is empty (first start).
+     */
+    @EventListener(ApplicationReadyEvent.class)
+    public void initialize() {
+        if (calendarRepo.count() > 0) return;
+        routeIndexService.routeIds().forEach(routeId -> markRoute(routeId, horizon()));
+    }
+
+    /**
+     * Drops past days and adds the day that just entered the schedule horizon.
+     */
+    @Transactional
+    public void advance() {
+        LocalDate today = LocalDate.now(ZoneOffset.UTC);
+        calendarRepo.deleteBefore(today);
+        LocalDate newest = today.plusDays(horizonDays - 1L);
+        routeIndexService.routeIds().forEach(routeId -> markRoute(routeId, new DateRange(newest, newest)));
+    }
+
+    /**
+     * Recomputes everything marked dirty since the last flush.
+     */
+    @Transactional
+    public void flush() {
+        if (dirtySchedules.isEmpty() && dirtyRoutes.isEmpty()) return;
+
+        Map<UUID, DateRange> schedules = drain(dirtySchedules);
+        Map<UUID, DateRange> routes = drain(dirtyRoutes);
+        TransactionSynchronizationManager.registerSynchronization(new TransactionSynchronization() {
+            @Override
+            public void afterCompletion(int status) {
+                if (status == STATUS_COMMITTED) return;
+                schedules.forEach((scheduleId, range) -> dirtySchedules.merge(scheduleId, range, DateRange::merge));
+                routes.forEach((routeId, range) -> markRoute(routeId, range));
+            }
+        });
+
+        for (RouteSchedule schedule : scheduleRepo.findAllById(schedules.keySet())) {
+            routes.merge(schedule.getRoute().getId(), schedules.get(schedule.getId()), DateRange::merge);
+        }
+        LocalDate today = LocalDate.now(ZoneOffset.UTC);
+        int rows = 0;
+        for (Map.Entry<UUID, DateRange> entry : routes.entrySet()) {
+            DateRange range = entry.getValue();
+            LocalDate first = range.first().isBefore(today) ? today : range.first();
+            if (range.last().isBefore(first)) continue;
+            rows += recompute(entry.getKey(), first, range.last());
+        }
+        log.debug("Price calendar refreshed: {} routes, {} rows", routes.size(), rows);
+    }
+
+    private int recompute(UUID routeId, LocalDate first, LocalDate last) {
+        List<Integer> stops = routeIndexService.stops(routeId);
+        Set<StopPair> pairs = new HashSet<>(pairs(stops));
+        calendarRepo.findRouteStops(routeId).ifPresent(previous -> pairs.addAll(pairs(parseStops(previous))));
+        if (stops.isEmpty()) {
+            calendarRepo.deleteRouteStops(routeId);
+        } else {
+            calendarRepo.saveRouteStops(routeId, stops.stream().map(String::valueOf).collect(Collectors.joining(",")));
+        }
+        if (pairs.isEmpty()) return 0;
+
+        // Every route serving any of the pairs competes for the cheapest fare
+        Map<StopPair, Set<UUID>> servingRoutes = new HashMap<>();
+        for (StopPair pair : pairs) {
+            servingRoutes.put(pair, routeIndexService.findRoutes(pair.fromStopId(), pair.toStopId()).stream()
+                    .map(RouteIndexService.RouteMatch::routeId)
+                    .collect(Collectors.toSet()));
+        }
+        Set<UUID> allRoutes = servingRoutes.values().stream()
+                .flatMap(Set::stream)
+                .collect(Collectors.toSet());
+        List<ScheduleInstance> instances = allRoutes.isEmpty() ? List.of()
+                : instanceRepo.findBookableBetween(allRoutes, first, last);
+        Map<UUID, List<String>> openSeats = flexSearchService.openSeats(instances);
+
+        List<PriceCalendarDay> rows = new ArrayList<>();
+        for (StopPair pair : pairs) {
+            calendarRepo.deleteRange(pair.fromStopId(), pair.toStopId(), first, last);
+            Set<UUID> serving = servingRoutes.get(pair);
+            List<ScheduleInstance> candidates = instances.stream()
+                    .filter(si -> serving.contains(si.getRouteId()))
+                    .toList();
+            if (candidates.isEmpty()) continue;
+
+            for (FlexDay day : flexSearchService.days(candidates, openSeats,
+                    pair.fromStopId(), pair.toStopId(), first, last)) {
+                if (day.trips() == 0) continue;
+                rows.add(PriceCalendarDay.builder()
+                        .fromStopId(pair.fromStopId())
+                        .toStopId(pair.toStopId())
+                        .travelDate(day.date())
+                        .minFare(day.cheapestFare())
+                        .availableSeats(day.availableSeats())
+                        .trips(day.trips())
+                        .build());
+            }
+        }
+        calendarRepo.saveAll(rows);
+        return rows.size();
+    }
+
+    private static List<StopPair> pairs(List<Integer> stops) {
+        List<StopPair> pairs = new ArrayList<>();
+        for (int i = 0; i < stops.size(); i++) {
+            for (int j = i + 1; j < stops.size(); j++) {
+                pairs.add(new StopPair(stops.get(i), stops.get(j)));
+            }
+        }
+        return pairs;
+    }
+
+    private static List<Integer> parseStops(String stopIds) {
+        if (stopIds.isBlank()) return List.of();
+        return Arrays.stream(stopIds.split(",")).map(Integer::valueOf).toList();
+    }
+
+    private void markRoute(UUID routeId, DateRange range) {
+        dirtyRoutes.merge(routeId, range, DateRange::merge);
+    }
+
+    private void markSchedule(UUID scheduleId, LocalDate travelDate) {
+        DateRange range = travelDate != null ? new DateRange(travelDate, travelDate) : horizon();
+        dirtySchedules.merge(scheduleId, range, DateRange::merge);
+    }
+
+    private DateRange horizon() {
+        LocalDate today = LocalDate.now(ZoneOffset.UTC);
+        return new DateRange(today, today.plusDays(horizonDays - 1L));
+    }
+
+    private static <K> Map<K, DateRange> drain(Map<K, DateRange> dirty) {
+        Map<K, DateRange> drained = new HashMap<>();
+        for (K key : Set.copyOf(dirty.keySet())) {
+            DateRange range = dirty.remove(key);
+            if (range != null) drained.put(key, range);
+        }
+        return drained;
+    }
+}
@@ -0,0 +1,34 @@
+package com.tripgo.backend.service.impl;
+
+import com.tripgo.backend.exception.PaymentGatewayTimeoutException;
+import lombok.RequiredArgsConstructor;
+import org.springframework.stereotype.Service;
+
+import java.util.UUID;
+import java.util.concurrent.CompletionException;
+
+/**
+ * Sends the Stripe refund of a cancelled booking, as the outbox handler of
+ * CancellationService.ISSUE_REFUND. Runs outside any transaction. Every attempt uses the same
+ * idempotency key, so a retry after a timeout either makes the refund or returns the one
+ * Stripe already made; until then the booking's refund status is UNKNOWN rather than failed.
+ */
+@Service
+@RequiredArgsConstructor
+public class RefundService {
+
+    private final PaymentGatewayClient paymentGatewayClient;
+    private final CancellationService cancellationService;
+
+    public void issue(UUID bookingId, String paymentIntentId, long amountInPaise) {
+        try {
+            paymentGatewayClient.refund(paymentIntentId, amountInPaise, "refund-" + bookingId).join();
+        } catch (CompletionException e) {
+            if (e.getCause() instanceof PaymentGatewayTimeoutException) {
+                cancellationService.recordRefund(bookingId, "UNKNOWN");
+            }
+            throw e;
+        }
+        cancellationService.recordRefund(bookingId, "PROCESSED");
+    }
+}
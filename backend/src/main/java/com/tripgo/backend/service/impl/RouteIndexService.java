@@ -0,0 +1,177 @@
+package com.tripgo.backend.service.impl;
+
+import com.tripgo.backend.model.entities.RouteSegment;
+import com.tripgo.backend.repository.RouteSegmentRepository;
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.data.domain.Sort;
+import org.springframework.stereotype.Service;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.UUID;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.stream.Collectors;
+
+/**
+ * In-memory index of which routes serve which stops (by stop id), and at which position.
+ * Answers "which routes go from A to B" without touching route_segments.
+ * Rebuilt per route whenever its segments change.
+ */
+@Slf4j
+@Service
+@RequiredArgsConstructor
+public class RouteIndexService {
+
+    private final RouteSegmentRepository segmentRepository;
+
+    // routeId -> stop id -> position on the route
+    private final Map<UUID, Map<Integer, Integer>> positionsByRoute = new ConcurrentHashMap<>();
+    // stop id -> routes serving it
+    private final Map<Integer, Set<UUID>> routesByStop = new ConcurrentHashMap<>();
+    // routeId -> number of segments
+    private final Map<UUID, Integer> segmentCounts = new ConcurrentHashMap<>();
+    // routeId -> share of the trip's running time elapsed at each position (0 at origin, 1 at end)
+    private final Map<UUID, double[]> progressByRoute = new ConcurrentHashMap<>();
+
+    public record RouteMatch(UUID routeId, int fromIndex, int toIndex) {}
+
+    @EventListener(ApplicationReadyEvent.class)
+    public synchronized void rebuild() {
+        Map<UUID, List<RouteSegment>> segmentsByRoute = segmentRepository.findAll(Sort.by("seq")).stream()
+                .collect(Collectors.groupingBy(seg -> seg.getRoute().getId()));
+
+        positionsByRoute.clear();
+        routesByStop.clear();
+        segmentCounts.clear();
+        progressByRoute.clear();
+        segmentsByRoute.forEach(this::index);
+        log.info("Route index built: {} routes, {} stops", positionsByRoute.size(), routesByStop.size());
+    }
+
+    public synchronized void refresh(UUID routeId) {
+        unindex(routeId);
+        List<RouteSegment> segments = segmentRepository.findByRouteIdInOrderBySeqAsc(List.of(routeId));
+        if (!segments.isEmpty()) index(routeId, segments);
+    }
+
+    public synchronized void remove(UUID routeId) {
+        unindex(routeId);
+    }
+
+    /**
+     * Routes on which {@code from} comes before {@code to}, with both stop positions.
+     */
+    public List<RouteMatch> findRoutes(int fromStopId, int toStopId) {
+        Set<UUID> fromRoutes = routesByStop.getOrDefault(fromStopId, Set.of());
+        Set<UUID> toRoutes = routesByStop.getOrDefault(toStopId, Set.of());
+        Set<UUID> smaller = fromRoutes.size() <= toRoutes.size() ? fromRoutes : toRoutes;
+
+        List<RouteMatch> matches = new ArrayList<>();
+        for (UUID routeId : smaller) {
+            Map<Integer, Integer> positions = positionsByRoute.get(routeId);
+            if (positions == null) continue;
+            Integer fromIndex = positions.get(fromStopId);
+            Integer toIndex = positions.get(toStopId);
+            if (fromIndex != null && toIndex != null && fromIndex < toIndex) {
+                matches.add(new RouteMatch(routeId, fromIndex, toIndex));
+            }
+        }
+        return matches;
+    }
+
+    /**
+     * Position of a stop on a route, or -1 when the route does not serve it.
+     */
+    public int position(UUID routeId, Integer stopId) {
+        if (stopId == null) return -1;
+        Map<Integer, Integer> positions = positionsByRoute.get(routeId);
+        if (positions == null) return -1;
+        return positions.getOrDefault(stopId, -1);
+    }
+
+    /**
+     * Stop ids of a route in travel order.
+     */
+    public List<Integer> stops(UUID routeId) {
+        Map<Integer, Integer> positions = positionsByRoute.getOrDefault(routeId, Map.of());
+        return positions.entrySet().stream()
+                .sorted(Map.Entry.comparingByValue())
+                .map(Map.Entry::getKey)
+                .toList();
+    }
+
+    public Set<UUID> routeIds() {
+        return Set.copyOf(positionsByRoute.keySet());
+    }
+
+    public int segmentCount(UUID routeId) {
+        return segmentCounts.getOrDefault(routeId, 0);
+    }
+
+    /**
+     * Routes that serve a stop at any position.
+     */
+    public Set<UUID> routesServing(Integer stopId) {
+        return Set.copyOf(routesByStop.getOrDefault(stopId, Set.of()));
+    }
+
+    /**
+     * Fraction of the running time from origin to the given position, from segment durations
+     * when every segment has one, else distances, else evenly per segment.
+     */
+    public double progress(UUID routeId, int position) {
+        double[] progress = progressByRoute.get(routeId);
+        if (progress == null || position < 0 || position >= progress.length) return 0;
+        return progress[position];
+    }
+
+    private void index(UUID routeId, List<RouteSegment> segments) {
+        // Same positions as the segment scan: a fromStop maps to its segment index,
+        // a stop that only appears as a toStop maps to the index after its segment
+        Map<Integer, Integer> positions = new HashMap<>();
+        for (int i = 0; i < segments.size(); i++) {
+            positions.putIfAbsent(segments.get(i).getFromStopId(), i);
+        }
+        for (int i = 0; i < segments.size(); i++) {
+            positions.putIfAbsent(segments.get(i).getToStopId(), i + 1);
+        }
+        positionsByRoute.put(routeId, Map.copyOf(positions));
+        segmentCounts.put(routeId, segments.size());
+        progressByRoute.put(routeId, progress(segments));
+        positions.keySet().forEach(stop ->
+                routesByStop.computeIfAbsent(stop, k -> ConcurrentHashMap.newKeySet()).add(routeId));
+    }
+
+    private static double[] progress(List<RouteSegment> segments) {
+        boolean durations = segments.stream().allMatch(seg -> seg.getDurationMinutes() != null && seg.getDurationMinutes() > 0);
+        boolean distances = segments.stream().allMatch(seg -> seg.getDistanceKm() != null && seg.getDistanceKm().signum() > 0);
+        double[] progress = new double[segments.size() + 1];
+        for (int i = 0; i < segments.size(); i++) {
+            RouteSegment seg = segments.get(i);
+            double weight = durations ? seg.getDurationMinutes() : distances ? seg.getDistanceKm().doubleValue() : 1;
+            progress[i + 1] = progress[i] + weight;
+        }
+        double total = progress[segments.size()];
+        if (total > 0) {
+            for (int i = 0; i < progress.length; i++) progress[i] /= total;
+        }
+        return progress;
+    }
+
+    private void unindex(UUID routeId) {
+        segmentCounts.remove(routeId);
+        progressByRoute.remove(routeId);
+        Map<Integer, Integer> previous = positionsByRoute.remove(routeId);
+        if (previous == null) return;
+        previous.keySet().forEach(stop -> routesByStop.computeIfPresent(stop, (k, routes) -> {
+            routes.remove(routeId);
+            return routes.isEmpty() ? null : routes;
+        }));
+    }
+}
@@ -2,13 +2,18 @@ package com.tripgo.backend.service.impl;
 
 import com.tripgo.backend.dto.request.AddFareRequest;
 import com.tripgo.backend.dto.request.AddSegmentRequest;
+import com.tripgo.backend.dto.request.CalendarExceptionRequest;
 import com.tripgo.backend.dto.request.CreateRouteRequest;
 import com.tripgo.backend.dto.request.CreateScheduleRequest;
 import com.tripgo.backend.dto.response.*;
+import com.tripgo.backend.event.RouteChangedEvent;
+import com.tripgo.backend.event.ScheduleChangedEvent;
 import com.tripgo.backend.model.entities.*;
 import com.tripgo.backend.repository.*;
 import com.tripgo.backend.security.service.CustomUserDetails;
+import jakarta.transaction.Transactional;
 import lombok.RequiredArgsConstructor;
+import org.springframework.context.ApplicationEventPublisher;
 import org.springframework.security.core.Authentication;
 import org.springframework.stereotype.Service;
 import org.springframework.web.bind.annotation.PathVariable;
@@ -29,6 +34,13 @@ public class RouteService {
     private final RouteScheduleRepository scheduleRepository;
     private final BusRepository busRepository;
     private final BusDriverAssignmentRepository assignmentRepository;
+    private final RouteIndexService routeIndexService;
+    private final StopService stopService;
+    private final FareMatrixService fareMatrixService;
+    private final OccupancyService occupancyService;
+    private final ScheduleInstanceService scheduleInstanceService;
+    private final ScheduleCalendarExceptionRepository calendarExceptionRepository;
+    private final ApplicationEventPublisher eventPublisher;
 
     public RouteResponse createRoute(CreateRouteRequest req, User user) {
         if (user.getOperator() == null) {
@@ -43,6 +55,7 @@ public class RouteService {
                 .build();
 
         route = routeRepository.save(route);
+        eventPublisher.publishEvent(new RouteChangedEvent(route.getId()));
 
         return new RouteResponse(
                 route.getId(),
@@ -68,9 +81,15 @@ public class RouteService {
 
         seg.setFromStop(req.fromStop());
         seg.setToStop(req.toStop());
+        seg.setFromStopId(stopService.resolveOrCreate(req.fromStop()));
+        seg.setToStopId(stopService.resolveOrCreate(req.toStop()));
         seg.setDistanceKm(req.distanceKm());
         seg.setDurationMinutes(req.durationMinutes());
         segmentRepository.save(seg);
+        routeIndexService.refresh(routeId);
+        fareMatrixService.invalidateRoute(routeId);
+        eventPublisher.publishEvent(new RouteChangedEvent(routeId));
+        occupancyService.invalidateRoute(routeId);
 
         return new SegmentResponse(seg.getId(), seg.getSeq(), seg.getFromStop(), seg.getToStop(), seg.getDistanceKm(), seg.getDurationMinutes());
     }
@@ -90,6 +109,10 @@ public class RouteService {
 
         fareRepository.findByRouteSegment(seg).forEach(fareRepository::delete);
         segmentRepository.delete(seg);
+        routeIndexService.refresh(routeId);
+        fareMatrixService.invalidateRoute(routeId);
+        eventPublisher.publishEvent(new RouteChangedEvent(routeId));
+        occupancyService.invalidateRoute(routeId);
     }
 
     public RouteResponse updateRoute(UUID routeId, CreateRouteRequest req, User user) {
@@ -105,6 +128,7 @@ public class RouteService {
         route.setOrigin(req.origin());
         route.setDestination(req.destination());
         routeRepository.save(route);
+        eventPublisher.publishEvent(new RouteChangedEvent(routeId));
 
         return new RouteResponse(route.getId(), route.getName(), route.getOrigin(), route.getDestination(), route.getDistanceKm());
     }
@@ -147,10 +171,16 @@ public class RouteService {
                         .seq(maxSeq + 1)
                         .fromStop(req.fromStop())
                         .toStop(req.toStop())
+                        .fromStopId(stopService.resolveOrCreate(req.fromStop()))
+                        .toStopId(stopService.resolveOrCreate(req.toStop()))
                         .distanceKm(req.distanceKm())
                         .durationMinutes(req.durationMinutes())
                         .build()
         );
+        routeIndexService.refresh(routeId);
+        fareMatrixService.invalidateRoute(routeId);
+        eventPublisher.publishEvent(new RouteChangedEvent(routeId));
+        occupancyService.invalidateRoute(routeId);
 
         return new SegmentResponse(
                 seg.getId(),
@@ -218,6 +248,8 @@ public class RouteService {
         }
 
         fare = fareRepository.save(fare);
+        fareMatrixService.invalidateRoute(routeId);
+        eventPublisher.publishEvent(new RouteChangedEvent(routeId));
 
         BigDecimal gstAmount = req.baseFare().multiply(req.gstPercent()).divide(BigDecimal.valueOf(100));
         BigDecimal totalFare = req.baseFare().add(gstAmount);
@@ -245,11 +277,13 @@ public class RouteService {
                 .bus(bus)
                 .departureTime(req.departureTime())
                 .arrivalTime(req.arrivalTime())
-                .frequency(req.frequency())
                 .active(true)
                 .build();
+        applyCalendar(schedule, req);
 
         schedule = scheduleRepository.save(schedule);
+        scheduleInstanceService.sync(schedule);
+        eventPublisher.publishEvent(new ScheduleChangedEvent(schedule.getId(), routeId));
         return toScheduleResponse(schedule);
     }
 
@@ -325,8 +359,10 @@ public class RouteService {
         }
 
         scheduleRepository.delete(schedule);
+        eventPublisher.publishEvent(new ScheduleChangedEvent(scheduleId, schedule.getRoute().getId()));
     }
 
+    @Transactional
     public RouteScheduleResponse updateSchedule(UUID scheduleId, CreateScheduleRequest req, User user) {
         RouteSchedule schedule = scheduleRepository.findById(scheduleId)
                 .orElseThrow(() -> new RuntimeException("Schedule not found"));
@@ -342,12 +378,98 @@ public class RouteService {
         schedule.setBus(bus);
         schedule.setDepartureTime(req.departureTime());
         schedule.setArrivalTime(req.arrivalTime());
-        schedule.setFrequency(req.frequency());
+        applyCalendar(schedule, req);
         scheduleRepository.save(schedule);
+        scheduleInstanceService.sync(schedule);
+        eventPublisher.publishEvent(new ScheduleChangedEvent(scheduleId, schedule.getRoute().getId()));
 
         return toScheduleResponse(schedule);
     }
 
+    public ScheduleCalendarResponse getCalendar(UUID scheduleId, User user) {
+        RouteSchedule schedule = getOwnedSchedule(scheduleId, user);
+        return toCalendarResponse(schedule);
+    }
+
+    /**
+     * Adds or replaces the exception of one date (no service, or an extra run).
+     */
+    @Transactional
+    public ScheduleCalendarResponse putCalendarException(UUID scheduleId, CalendarExceptionRequest req, User user) {
+        RouteSchedule schedule = getOwnedSchedule(scheduleId, user);
+
+        ScheduleCalendarException exception = calendarExceptionRepository
+                .findByScheduleIdAndServiceDate(scheduleId, req.date())
+                .orElseGet(() -> ScheduleCalendarException.builder()
+                        .schedule(schedule)
+                        .serviceDate(req.date())
+                        .build());
+        exception.setRuns(req.runs());
+        exception.setNote(req.note());
+        calendarExceptionRepository.save(exception);
+
+        scheduleInstanceService.sync(schedule);
+        eventPublisher.publishEvent(new ScheduleChangedEvent(scheduleId, schedule.getRoute().getId()));
+        return toCalendarResponse(schedule);
+    }
+
+    @Transactional
+    public ScheduleCalendarResponse deleteCalendarException(UUID scheduleId, LocalDate date, User user) {
+        RouteSchedule schedule = getOwnedSchedule(scheduleId, user);
+
+        ScheduleCalendarException exception = calendarExceptionRepository
+                .findByScheduleIdAndServiceDate(scheduleId, date)
+                .orElseThrow(() -> new RuntimeException("Calendar exception not found"));
+        calendarExceptionRepository.delete(exception);
+
+        scheduleInstanceService.sync(schedule);
+        eventPublisher.publishEvent(new ScheduleChangedEvent(scheduleId, schedule.getRoute().getId()));
+        return toCalendarResponse(schedule);
+    }
+
+    private RouteSchedule getOwnedSchedule(UUID scheduleId, User user) {
+        RouteSchedule schedule = scheduleRepository.findById(scheduleId)
+                .orElseThrow(() -> new RuntimeException("Schedule not found"));
+
+        if (user.getOperator() == null ||
+            !schedule.getRoute().getOperator().getId().equals(user.getOperator().getId())) {
+            throw new RuntimeException("Access denied");
+        }
+        return schedule;
+    }
+
+    private ScheduleCalendarResponse toCalendarResponse(RouteSchedule schedule) {
+        return new ScheduleCalendarResponse(
+                schedule.getId(),
+                ScheduleCalendarService.daysOf(schedule.getWeekdayMask()),
+                schedule.getValidFrom(),
+                schedule.getValidTo(),
+                calendarExceptionRepository.findByScheduleIdOrderByServiceDate(schedule.getId()).stream()
+                        .map(ex -> new ScheduleCalendarResponse.CalendarException(
+                                ex.getServiceDate(), Boolean.TRUE.equals(ex.getRuns()), ex.getNote()))
+                        .toList()
+        );
+    }
+
+    // Explicit weekdays make a schedule recurring even without a frequency
+    private void applyCalendar(RouteSchedule schedule, CreateScheduleRequest req) {
+        boolean hasWeekdays = req.weekdays() != null && !req.weekdays().isEmpty();
+        String frequency = req.frequency();
+        if (hasWeekdays && (frequency == null || frequency.equals("ONCE"))) {
+            frequency = "CUSTOM";
+        }
+        if (req.validFrom() != null && req.validTo() != null && req.validTo().isBefore(req.validFrom())) {
+            throw new RuntimeException("validTo must not be before validFrom");
+        }
+
+        schedule.setFrequency(frequency);
+        schedule.setWeekdayMask(hasWeekdays
+                ? ScheduleCalendarService.maskOf(req.weekdays())
+                : ScheduleCalendarService.maskFor(frequency));
+        schedule.setValidFrom(req.validFrom());
+        schedule.setValidTo(req.validTo());
+    }
+
     private RouteScheduleResponse toScheduleResponse(RouteSchedule schedule) {
         Route route = schedule.getRoute();
 
@@ -370,6 +492,9 @@ public class RouteService {
                 schedule.getDepartureTime(),
                 schedule.getArrivalTime(),
                 schedule.getFrequency(),
+                ScheduleCalendarService.daysOf(schedule.getWeekdayMask()),
+                schedule.getValidFrom(),
+                schedule.getValidTo(),
                 Boolean.TRUE.equals(schedule.getActive()),
                 driverId,
                 driverName,
@@ -419,6 +544,8 @@ public class RouteService {
         }
 
         fare = fareRepository.save(fare);
+        fareMatrixService.invalidateRoute(routeId);
+        eventPublisher.publishEvent(new RouteChangedEvent(routeId));
 
         BigDecimal gstAmount = fare.getBaseFare().multiply(fare.getGstPercent()).divide(BigDecimal.valueOf(100));
         BigDecimal totalFare = fare.getBaseFare().add(gstAmount);
@@ -452,5 +579,9 @@ public class RouteService {
         
         // Delete the route
         routeRepository.delete(route);
+        routeIndexService.remove(routeId);
+        fareMatrixService.invalidateRoute(routeId);
+        eventPublisher.publishEvent(new RouteChangedEvent(routeId));
+        occupancyService.invalidateRoute(routeId);
     }
 }
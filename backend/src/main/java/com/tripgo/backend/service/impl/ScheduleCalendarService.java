@@ -0,0 +1,131 @@
+package com.tripgo.backend.service.impl;
+
+import com.tripgo.backend.model.entities.RouteSchedule;
+import com.tripgo.backend.model.entities.ScheduleCalendarException;
+import com.tripgo.backend.repository.ScheduleCalendarExceptionRepository;
+import lombok.RequiredArgsConstructor;
+import org.springframework.stereotype.Service;
+
+import java.time.DayOfWeek;
+import java.time.LocalDate;
+import java.time.LocalDateTime;
+import java.time.ZoneOffset;
+import java.util.BitSet;
+import java.util.Collection;
+import java.util.EnumSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.UUID;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.stream.Collectors;
+
+/**
+ * Service calendars of schedules compiled into one 366-bit map per calendar year
+ * (bit = day of year - 1), so "does this schedule run on D" is a single bit test.
+ * A recurring schedule runs on the weekdays of its mask inside its validity window,
+ * adjusted by its exception dates; a one-off schedule runs on its departure date only.
+ */
+@Service
+@RequiredArgsConstructor
+public class ScheduleCalendarService {
+
+    public static final int ALL_DAYS = 0b1111111;
+    public static final int WEEKDAYS = 0b0011111;
+    public static final int WEEKENDS = 0b1100000;
+
+    private final ScheduleCalendarExceptionRepository exceptionRepo;
+
+    // scheduleId -> year -> running days
+    private final Map<UUID, Map<Integer, BitSet>> compiled = new ConcurrentHashMap<>();
+    // scheduleId -> exception dates (date -> runs), loaded once per schedule
+    private final Map<UUID, Map<LocalDate, Boolean>> exceptions = new ConcurrentHashMap<>();
+
+    public boolean runsOn(RouteSchedule schedule, LocalDate date) {
+        if (!ScheduleInstanceService.isRecurring(schedule)) {
+            return date.equals(LocalDateTime.ofInstant(schedule.getDepartureTime(), ZoneOffset.UTC).toLocalDate());
+        }
+        return compiled.computeIfAbsent(schedule.getId(), id -> new ConcurrentHashMap<>())
+                .computeIfAbsent(date.getYear(), year -> compile(schedule, year))
+                .get(date.getDayOfYear() - 1);
+    }
+
+    /**
+     * Loads the exception dates of several schedules with one query ahead of bulk lookups.
+     */
+    public void preload(Collection<RouteSchedule> schedules) {
+        List<UUID> missing = schedules.stream()
+                .map(RouteSchedule::getId)
+                .filter(id -> !exceptions.containsKey(id))
+                .toList();
+        if (missing.isEmpty()) return;
+
+        Map<UUID, Map<LocalDate, Boolean>> loaded = exceptionRepo.findByScheduleIdIn(missing).stream()
+                .collect(Collectors.groupingBy(ex -> ex.getSchedule().getId(),
+                        Collectors.toMap(ScheduleCalendarException::getServiceDate, ScheduleCalendarException::getRuns)));
+        missing.forEach(id -> exceptions.putIfAbsent(id, loaded.getOrDefault(id, Map.of())));
+    }
+
+    public void invalidate(UUID scheduleId) {
+        exceptions.remove(scheduleId);
+        compiled.remove(scheduleId);
+    }
+
+    /**
+     * Weekday mask a schedule runs on when no explicit weekdays were given.
+     */
+    public static Integer maskFor(String frequency) {
+        if (frequency == null || frequency.equals("ONCE")) return null;
+        return switch (frequency) {
+            case "WEEKDAYS" -> WEEKDAYS;
+            case "WEEKENDS" -> WEEKENDS;
+            default -> ALL_DAYS;
+        };
+    }
+
+    public static int maskOf(Collection<DayOfWeek> days) {
+        int mask = 0;
+        for (DayOfWeek day : days) mask |= 1 << (day.getValue() - 1);
+        return mask;
+    }
+
+    public static Set<DayOfWeek> daysOf(Integer mask) {
+        Set<DayOfWeek> days = EnumSet.noneOf(DayOfWeek.class);
+        if (mask == null) return days;
+        for (DayOfWeek day : DayOfWeek.values()) {
+            if ((mask & (1 << (day.getValue() - 1))) != 0) days.add(day);
+        }
+        return days;
+    }
+
+    private BitSet compile(RouteSchedule schedule, int year) {
+        Integer mask = schedule.getWeekdayMask() != null ? schedule.getWeekdayMask() : maskFor(schedule.getFrequency());
+        LocalDate first = LocalDate.ofYearDay(year, 1);
+        int length = first.lengthOfYear();
+        BitSet days = new BitSet(366);
+
+        // Every 7th bit from each weekday's first occurrence in the year
+        for (DayOfWeek day : daysOf(mask)) {
+            int start = Math.floorMod(day.getValue() - first.getDayOfWeek().getValue(), 7);
+            for (int i = start; i < length; i += 7) days.set(i);
+        }
+
+        LocalDate validFrom = schedule.getValidFrom();
+        LocalDate validTo = schedule.getValidTo();
+        if (validFrom != null) {
+            if (validFrom.getYear() > year) days.clear();
+            else if (validFrom.getYear() == year) days.clear(0, validFrom.getDayOfYear() - 1);
+        }
+        if (validTo != null) {
+            if (validTo.getYear() < year) days.clear();
+            else if (validTo.getYear() == year) days.clear(validTo.getDayOfYear(), 366);
+        }
+
+        exceptions.computeIfAbsent(schedule.getId(), id -> exceptionRepo.findByScheduleIdOrderByServiceDate(id).stream()
+                        .collect(Collectors.toMap(ScheduleCalendarException::getServiceDate, ScheduleCalendarException::getRuns)))
+                .forEach((date, runs) -> {
+                    if (date.getYear() == year) days.set(date.getDayOfYear() - 1, runs);
+                });
+        return days;
+    }
+}
@@ -0,0 +1,225 @@
+package com.tripgo.backend.service.impl;
+
+import com.tripgo.backend.event.ScheduleChangedEvent;
+import com.tripgo.backend.model.entities.RouteSchedule;
+import com.tripgo.backend.model.entities.ScheduleInstance;
+import com.tripgo.backend.repository.BookingRepository;
+import com.tripgo.backend.repository.RouteScheduleRepository;
+import com.tripgo.backend.repository.ScheduleInstanceRepository;
+import jakarta.transaction.Transactional;
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.ApplicationEventPublisher;
+import org.springframework.context.event.EventListener;
+import org.springframework.stereotype.Service;
+
+import java.time.Duration;
+import java.time.Instant;
+import java.time.LocalDate;
+import java.time.LocalDateTime;
+import java.time.LocalTime;
+import java.time.ZoneOffset;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.TreeSet;
+import java.util.UUID;
+import java.util.stream.Collectors;
+
+/**
+ * Materializes schedules into per-date trips. A one-off schedule has a single instance on its
+ * departure date; a recurring schedule gets one instance per day its service calendar runs
+ * over a rolling horizon, at the schedule's UTC time of day. Trip status and delays live on
+ * the instance.
+ * Instances that already have a status other than SCHEDULED are never moved or removed, and
+ * an edit that would move or remove a trip with confirmed or pending bookings is refused.
+ */
+@Slf4j
+@Service
+@RequiredArgsConstructor
+public class ScheduleInstanceService {
+
+    private final ScheduleInstanceRepository instanceRepo;
+    private final BookingRepository bookingRepo;
+    private final RouteScheduleRepository scheduleRepo;
+    private final ScheduleCalendarService calendarService;
+    private final ApplicationEventPublisher eventPublisher;
+
+    @Value("${app.schedule.instance-horizon-days:60}")
+    private int horizonDays;
+
+    private static final Set<String> CLOSED = Set.of("STARTED", "COMPLETED", "CANCELLED");
+
+    /**
+     * Extends every active recurring schedule to the end of the horizon.
+     */
+    @Transactional
+    @EventListener(ApplicationReadyEvent.class)
+    public void generate() {
+        LocalDate from = LocalDate.now(ZoneOffset.UTC);
+        LocalDate to = from.plusDays(horizonDays - 1L);
+        Map<UUID, List<ScheduleInstance>> existing = instanceRepo.findByTravelDateBetween(from, to).stream()
+                .collect(Collectors.groupingBy(si -> si.getSchedule().getId()));
+
+        List<RouteSchedule> schedules = scheduleRepo.findActiveRecurring();
+        calendarService.preload(schedules);
+
+        List<ScheduleInstance> created = new ArrayList<>();
+        for (RouteSchedule schedule : schedules) {
+            Set<LocalDate> dates = existing.getOrDefault(schedule.getId(), List.of()).stream()
+                    .map(ScheduleInstance::getTravelDate)
+                    .collect(Collectors.toSet());
+            for (LocalDate date = from; !date.isAfter(to); date = date.plusDays(1)) {
+                if (calendarService.runsOn(schedule, date) && !dates.contains(date)) {
+                    created.add(newInstance(schedule, date));
+                }
+            }
+        }
+        instanceRepo.saveAll(created);
+        log.info("Schedule instances generated: {} new up to {}", created.size(), to);
+    }
+
+    /**
+     * Brings the instances of one schedule in line with it after it was created or edited.
+     * Throws when that would move or remove a booked trip; callers run it in the transaction
+     * of the edit so the edit is rolled back with it.
+     */
+    @Transactional
+    public void sync(RouteSchedule schedule) {
+        calendarService.invalidate(schedule.getId());
+        Map<LocalDate, ScheduleInstance> existing = new HashMap<>();
+        instanceRepo.findByScheduleId(schedule.getId()).forEach(si -> existing.put(si.getTravelDate(), si));
+
+        Set<LocalDate> wanted;
+        if (isRecurring(schedule)) {
+            LocalDate from = LocalDate.now(ZoneOffset.UTC);
+            wanted = from.datesUntil(from.plusDays(horizonDays))
+                    .filter(date -> calendarService.runsOn(schedule, date))
+                    .collect(Collectors.toSet());
+        } else {
+            wanted = Set.of(departureDate(schedule));
+        }
+
+        List<ScheduleInstance> changed = new ArrayList<>();
+        List<ScheduleInstance> removed = new ArrayList<>();
+        Set<LocalDate> affected = new TreeSet<>();
+        for (LocalDate date : wanted) {
+            ScheduleInstance instance = existing.get(date);
+            if (instance == null) {
+                changed.add(newInstance(schedule, date));
+            } else if ("SCHEDULED".equals(instance.getStatus())) {
+                ScheduleInstance planned = newInstance(schedule, date);
+                if (!planned.getDepartureTime().equals(instance.getDepartureTime())
+                        || !planned.getArrivalTime().equals(instance.getArrivalTime())) {
+                    instance.setDepartureTime(planned.getDepartureTime());
+                    instance.setArrivalTime(planned.getArrivalTime());
+                    changed.add(instance);
+                    affected.add(date);
+                }
+            }
+        }
+        LocalDate today = LocalDate.now(ZoneOffset.UTC);
+        existing.forEach((date, instance) -> {
+            if (!wanted.contains(date) && !date.isBefore(today) && "SCHEDULED".equals(instance.getStatus())) {
+                removed.add(instance);
+                affected.add(date);
+            }
+        });
+
+        if (!affected.isEmpty()) {
+            Set<LocalDate> booked = bookedDates(schedule, existing.keySet());
+            affected.retainAll(booked);
+            if (!affected.isEmpty()) {
+                // The compiled calendar may already reflect the refused edit
+                calendarService.invalidate(schedule.getId());
+                throw new RuntimeException("This change would move or cancel trips that already have bookings on "
+                        + affected + ". Cancel those bookings first.");
+            }
+        }
+        instanceRepo.saveAll(changed);
+        instanceRepo.deleteAll(removed);
+    }
+
+    public ScheduleInstance instance(RouteSchedule schedule, LocalDate travelDate) {
+        return instanceRepo.findByScheduleIdAndTravelDate(schedule.getId(), travelDate)
+                .orElseThrow(() -> new RuntimeException("This trip does not run on " + travelDate));
+    }
+
+    /**
+     * The instance seats can still be locked and booked on.
+     */
+    public ScheduleInstance bookable(RouteSchedule schedule, LocalDate travelDate) {
+        ScheduleInstance instance = instance(schedule, travelDate);
+        if (!Boolean.TRUE.equals(schedule.getActive()) || CLOSED.contains(instance.getStatus())) {
+            throw new RuntimeException("This trip is no longer open for booking");
+        }
+        return instance;
+    }
+
+    /**
+     * Travel date an operator action applies to when none is given: the departure date of a
+     * one-off schedule, today for a recurring one.
+     */
+    public LocalDate defaultTravelDate(RouteSchedule schedule) {
+        return isRecurring(schedule) ? LocalDate.now(ZoneOffset.UTC) : departureDate(schedule);
+    }
+
+    /**
+     * Marks trips that have arrived as completed. A one-off schedule is closed with its trip.
+     */
+    @Transactional
+    public void completePast(Instant now) {
+        for (ScheduleInstance instance : instanceRepo.findPastUncompleted(now)) {
+            instance.setStatus("COMPLETED");
+            RouteSchedule schedule = instance.getSchedule();
+            if (!isRecurring(schedule)) {
+                schedule.setTripStatus("COMPLETED");
+                schedule.setActive(false);
+                scheduleRepo.save(schedule);
+            }
+            instanceRepo.save(instance);
+            eventPublisher.publishEvent(new ScheduleChangedEvent(schedule.getId(), instance.getRouteId()));
+        }
+    }
+
+    public static boolean isRecurring(RouteSchedule schedule) {
+        return schedule.getFrequency() != null && !"ONCE".equals(schedule.getFrequency());
+    }
+
+    private ScheduleInstance newInstance(RouteSchedule schedule, LocalDate date) {
+        Instant departure = schedule.getDepartureTime();
+        Instant arrival = schedule.getArrivalTime();
+        if (isRecurring(schedule)) {
+            LocalTime timeOfDay = LocalDateTime.ofInstant(departure, ZoneOffset.UTC).toLocalTime();
+            Duration duration = Duration.between(departure, arrival);
+            departure = date.atTime(timeOfDay).toInstant(ZoneOffset.UTC);
+            arrival = departure.plus(duration);
+        }
+        return ScheduleInstance.builder()
+                .schedule(schedule)
+                .routeId(schedule.getRoute().getId())
+                .travelDate(date)
+                .departureTime(departure)
+                .arrivalTime(arrival)
+                .build();
+    }
+
+    // Bookings without a travel date belong to a one-off schedule's only trip
+    private Set<LocalDate> bookedDates(RouteSchedule schedule, Set<LocalDate> instanceDates) {
+        Set<LocalDate> booked = new HashSet<>();
+        for (LocalDate date : bookingRepo.findActiveTravelDates(schedule.getId())) {
+            if (date != null) booked.add(date);
+            else if (!isRecurring(schedule)) booked.addAll(instanceDates);
+        }
+        return booked;
+    }
+
+    private static LocalDate departureDate(RouteSchedule schedule) {
+        return LocalDateTime.ofInstant(schedule.getDepartureTime(), ZoneOffset.UTC).toLocalDate();
+    }
+}
@@ -0,0 +1,134 @@
+package com.tripgo.backend.service.impl;
+
+import com.github.benmanes.caffeine.cache.Cache;
+import com.github.benmanes.caffeine.cache.Caffeine;
+import com.tripgo.backend.dto.request.SearchQuery;
+import com.tripgo.backend.dto.response.SearchPage;
+import com.tripgo.backend.dto.response.SearchResponse;
+import com.tripgo.backend.event.BookingCancelledEvent;
+import com.tripgo.backend.event.BookingConfirmedEvent;
+import com.tripgo.backend.event.RouteChangedEvent;
+import com.tripgo.backend.event.ScheduleChangedEvent;
+import com.tripgo.backend.util.SingleFlight;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.binder.cache.CaffeineCacheMetrics;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.event.TransactionalEventListener;
+
+import java.time.Duration;
+import java.time.LocalDate;
+import java.util.Collection;
+import java.util.List;
+import java.util.Set;
+import java.util.UUID;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.function.Function;
+import java.util.function.Supplier;
+import java.util.stream.Collectors;
+
+/**
+ * Search results per canonical (from stop, to stop, date) and query; the query is null for the
+ * unpaged search and paged searches remember only the schedules on their page. Each entry remembers the routes
+ * it was searched over and the schedules it returned, so a domain event only drops the
+ * entries it can change: bookings drop entries of that schedule and date, schedule edits
+ * and trip status changes drop every date of that route, and fare or segment changes also
+ * drop pairs the route now serves. Size and TTL bound the rest (bus and seat edits).
+ * Concurrent misses on the same key share one search. Hit and miss counts are published
+ * as the "search" cache metrics.
+ * Seat locks do not enter search availability, so lock events leave entries alone.
+ */
+@Service
+public class SearchCacheService {
+
+    private final RouteIndexService routeIndexService;
+    private final Cache<SearchKey, Entry> cache;
+    private final SingleFlight<SearchKey, Object> searches;
+    // Bumped on every invalidation so a search racing with a change is not kept
+    private final AtomicLong generation = new AtomicLong();
+
+    public record SearchKey(int fromStopId, int toStopId, LocalDate date, SearchQuery query) {}
+
+    private record Entry(Set<UUID> routeIds, Set<UUID> scheduleIds, Object results) {}
+
+    public SearchCacheService(RouteIndexService routeIndexService,
+                              MeterRegistry meterRegistry,
+                              @Value("${app.search.cache.max-entries:10000}") long maxEntries,
+                              @Value("${app.search.cache.ttl-seconds:60}") long ttlSeconds) {
+        this.routeIndexService = routeIndexService;
+        this.cache = Caffeine.newBuilder()
+                .maximumSize(maxEntries)
+                .expireAfterWrite(Duration.ofSeconds(ttlSeconds))
+                .recordStats()
+                .build();
+        CaffeineCacheMetrics.monitor(meterRegistry, cache, "search");
+        this.searches = new SingleFlight<>("search", meterRegistry);
+    }
+
+    /**
+     * Cached results for the key, or the results of {@code search} over {@code routeIds}.
+     */
+    public List<SearchResponse> get(SearchKey key, Collection<UUID> routeIds, Supplier<List<SearchResponse>> search) {
+        return get(key, routeIds, search, results -> results);
+    }
+
+    public SearchPage<SearchResponse> getPage(SearchKey key, Collection<UUID> routeIds,
+                                              Supplier<SearchPage<SearchResponse>> search) {
+        return get(key, routeIds, search, SearchPage::content);
+    }
+
+    @SuppressWarnings("unchecked")
+    private <T> T get(SearchKey key, Collection<UUID> routeIds, Supplier<T> search,
+                      Function<T, List<SearchResponse>> responses) {
+        Entry cached = cache.getIfPresent(key);
+        if (cached != null) return (T) cached.results();
+
+        return (T) searches.execute(key, () -> {
+            long seen = generation.get();
+            T results = search.get();
+            Entry entry = new Entry(
+                    Set.copyOf(routeIds),
+                    responses.apply(results).stream().map(SearchResponse::scheduleId).collect(Collectors.toUnmodifiableSet()),
+                    results);
+            cache.put(key, entry);
+            if (generation.get() != seen) cache.asMap().remove(key, entry);
+            return results;
+        });
+    }
+
+    @TransactionalEventListener(fallbackExecution = true)
+    public void onBookingConfirmed(BookingConfirmedEvent event) {
+        invalidateSchedule(event.scheduleId(), event.travelDate());
+    }
+
+    @TransactionalEventListener(fallbackExecution = true)
+    public void onBookingCancelled(BookingCancelledEvent event) {
+        invalidateSchedule(event.scheduleId(), event.travelDate());
+    }
+
+    @TransactionalEventListener(fallbackExecution = true)
+    public void onScheduleChanged(ScheduleChangedEvent event) {
+        generation.incrementAndGet();
+        cache.asMap().values().removeIf(entry -> entry.routeIds().contains(event.routeId()));
+    }
+
+    @TransactionalEventListener(fallbackExecution = true)
+    public void onRouteChanged(RouteChangedEvent event) {
+        generation.incrementAndGet();
+        UUID routeId = event.routeId();
+        cache.asMap().entrySet().removeIf(e -> e.getValue().routeIds().contains(routeId)
+                || serves(routeId, e.getKey()));
+    }
+
+    private void invalidateSchedule(UUID scheduleId, LocalDate travelDate) {
+        generation.incrementAndGet();
+        cache.asMap().entrySet().removeIf(e -> (travelDate == null || e.getKey().date().equals(travelDate))
+                && e.getValue().scheduleIds().contains(scheduleId));
+    }
+
+    private boolean serves(UUID routeId, SearchKey key) {
+        int from = routeIndexService.position(routeId, key.fromStopId());
+        int to = routeIndexService.position(routeId, key.toStopId());
+        return from != -1 && to > from;
+    }
+}
@@ -8,10 +8,10 @@ import com.tripgo.backend.repository.*;
 import lombok.RequiredArgsConstructor;
 import org.springframework.stereotype.Service;
 
-import java.math.BigDecimal;
+import java.time.LocalDate;
+import java.util.HashMap;
 import java.util.List;
 import java.util.Map;
-import java.util.Optional;
 import java.util.Set;
 import java.util.UUID;
 import java.util.stream.Collectors;
@@ -20,160 +20,90 @@ import java.util.stream.Collectors;
 @RequiredArgsConstructor
 public class SeatAvailabilityService {
 
-    private final RouteSegmentRepository segmentRepo;
-    private final FareRepository fareRepo;
     private final SeatRepository seatRepo;
-    private final BookingSeatRepository bookingSeatRepo;
+    private final RouteIndexService routeIndexService;
+    private final FareMatrixService fareMatrixService;
+    private final OccupancyService occupancyService;
+
+    /**
+     * Computes fares and seat availability for every candidate schedule of a search at once.
+     * Fares come from the cached per-(route, bus) fare matrices and booked seats from the
+     * occupancy bitmaps; seat layouts are loaded with a single set-based query.
+     * Schedules without a bus, without the requested stops or without a complete fare are left out.
+     */
+    public Map<UUID, SearchResult> searchAvailability(List<RouteSchedule> schedules, int fromStopId, int toStopId, LocalDate travelDate) {
+        List<RouteSchedule> candidates = schedules.stream()
+                .filter(s -> s.getBus() != null)
+                .toList();
+        if (candidates.isEmpty()) return Map.of();
 
-    public SearchResult searchAvailability(RouteSchedule schedule, String from, String to, String seatType) {
+        Set<UUID> busIds = candidates.stream().map(s -> s.getBus().getId()).collect(Collectors.toSet());
 
-        List<RouteSegment> segments = segmentRepo.findByRouteOrderBySeq(schedule.getRoute());
+        Map<FareMatrixService.RouteBus, FareMatrixService.FareMatrix> matrices = fareMatrixService.matrices(
+                candidates.stream().map(this::routeBus).collect(Collectors.toSet()));
 
-        int startIdx = indexOf(segments, from);
-        int endIdx = indexOf(segments, to);
+        Map<UUID, List<Seat>> seatsByBus = seatRepo.findByBusIdIn(busIds).stream()
+                .collect(Collectors.groupingBy(seat -> seat.getBus().getId()));
 
-        if (startIdx == -1 || endIdx == -1 || endIdx <= startIdx) {
-            throw new RuntimeException("Invalid stop selection: Could not find '" + from + "' or '" + to + "' in route segments");
-        }
+        Map<UUID, OccupancyService.Occupancy> occupancies = occupancyService.occupancies(candidates, travelDate);
 
-        List<RouteSegment> travelSegments = segments.subList(startIdx, endIdx);
+        Map<UUID, SearchResult> results = new HashMap<>();
+        for (RouteSchedule schedule : candidates) {
+            UUID routeId = schedule.getRoute().getId();
+            FareMatrixService.FareMatrix matrix = matrices.get(routeBus(schedule));
 
-        System.out.println("🔍 Travel segments (" + travelSegments.size() + "):");
-        for (RouteSegment seg : travelSegments) {
-            List<Fare> fares = fareRepo.findByRouteSegmentId(seg.getId());
-            System.out.println("  Segment: " + seg.getFromStop() + " -> " + seg.getToStop() + " | id=" + seg.getId() + " | fares=" + fares.size());
-            for (Fare f : fares) System.out.println("    Fare: seatType=" + f.getSeatType() + " base=" + f.getBaseFare());
-        }
+            int startIdx = routeIndexService.position(routeId, fromStopId);
+            int endIdx = routeIndexService.position(routeId, toStopId);
+            if (startIdx == -1 || endIdx <= startIdx || endIdx > matrix.segmentCount()) continue;
 
-        // Build fare map: seatType -> FareResult
-        // Priority: bus-specific fare > route-level fare
-        UUID busId = schedule.getBus() != null ? schedule.getBus().getId() : null;
-
-        // Collect all seat types: bus-specific first, then route-level
-        Set<String> seatTypes = new java.util.LinkedHashSet<>();
-        for (RouteSegment seg : travelSegments) {
-            List<Fare> busFares = busId != null
-                    ? fareRepo.findByRouteSegmentIdAndBusId(seg.getId(), busId)
-                    : List.of();
-            List<Fare> routeFares = fareRepo.findByRouteSegmentIdAndBusIsNull(seg.getId());
-            // Also get ALL fares for this segment as final fallback
-            List<Fare> allFares = fareRepo.findByRouteSegmentId(seg.getId());
-            System.out.println("💰 Segment " + seg.getFromStop() + "->" + seg.getToStop()
-                    + " | busFares=" + busFares.size()
-                    + " | routeFares=" + routeFares.size()
-                    + " | allFares=" + allFares.size());
-            busFares.stream().map(Fare::getSeatType).filter(t -> t != null && !t.isBlank()).forEach(seatTypes::add);
-            routeFares.stream().map(Fare::getSeatType).filter(t -> t != null && !t.isBlank()).forEach(seatTypes::add);
-            // Fallback: if still empty, use all fares
-            if (seatTypes.isEmpty()) {
-                allFares.stream().map(Fare::getSeatType).filter(t -> t != null && !t.isBlank()).forEach(seatTypes::add);
-            }
-        }
-        System.out.println("🎫 Seat types found: " + seatTypes);
-
-        Map<String, FareResult> faresByType = new java.util.LinkedHashMap<>();
-        for (String type : seatTypes) {
-            BigDecimal base = BigDecimal.ZERO;
-            BigDecimal gst = BigDecimal.ZERO;
-            boolean complete = true;
-            for (RouteSegment seg : travelSegments) {
-                // 1. Try bus-specific fare
-                Optional<Fare> fare = busId != null
-                        ? fareRepo.findByRouteSegmentIdAndSeatTypeAndBusId(seg.getId(), type, busId)
-                        : Optional.empty();
-                // 2. Fallback to route-level (bus_id IS NULL)
-                if (fare.isEmpty()) {
-                    fare = fareRepo.findByRouteSegmentIdAndSeatType(seg.getId(), type);
-                }
-                // 3. Final fallback: any fare for this segment+seatType
-                if (fare.isEmpty()) {
-                    fare = fareRepo.findByRouteSegmentId(seg.getId()).stream()
-                            .filter(f -> type.equals(f.getSeatType()))
-                            .findFirst();
-                }
-                if (fare.isEmpty()) { complete = false; break; }
-                base = base.add(fare.get().getBaseFare());
-                gst = gst.add(fare.get().getBaseFare()
-                        .multiply(fare.get().getGstPercent())
-                        .divide(BigDecimal.valueOf(100)));
-            }
-            if (complete) faresByType.put(type, new FareResult(base, gst, base.add(gst)));
-        }
+            Map<String, FareResult> faresByType = matrix.fares(startIdx, endIdx);
+            if (faresByType.isEmpty()) continue;
+
+            // A seat is unavailable only if its booked segment OVERLAPS with the requested segment
+            // e.g. Bangalore->Tumkur booking does NOT block seat for Tumkur->Honnavar
+            OccupancyService.OccupiedSeats unavailableSeats = occupancies.get(schedule.getId()).occupied(startIdx, endIdx);
+
+            List<SeatAvailability> seatAvailability = seatsByBus.getOrDefault(schedule.getBus().getId(), List.of()).stream()
+                    .map(seat -> new SeatAvailability(
+                            seat.getSeatNumber(),
+                            !unavailableSeats.contains(seat.getSeatNumber())
+                            && !Boolean.TRUE.equals(seat.getIsBlocked())
+                    ))
+                    .toList();
 
-        if (faresByType.isEmpty()) {
-            throw new RuntimeException("No fares defined for route: " + from + " -> " + to);
+            results.put(schedule.getId(), new SearchResult(faresByType, seatAvailability));
         }
+        return results;
+    }
 
-        // Seat availability - check actual bookings and blocked seats
-        List<Seat> seats = seatRepo.findByBus(schedule.getBus());
-
-        // Get all confirmed booking seats for this schedule
-        // A seat is unavailable only if its booked segment OVERLAPS with the requested segment
-        // e.g. Bangalore->Tumkur booking does NOT block seat for Tumkur->Honnavar
-        List<BookingSeat> allBookingSeats = bookingSeatRepo
-                .findByRouteSchedule(schedule)
-                .stream()
-                .filter(bs -> bs.getBooking().getStatus().name().equals("CONFIRMED"))
-                .filter(bs -> {
-                    // Filter by travelDate if schedule is recurring
-                    if (schedule.getFrequency() != null) {
-                        java.time.LocalDate bookingDate = bs.getBooking().getTravelDate();
-                        if (bookingDate == null) return true; // legacy booking, include it
-                        // resolve the requested travel date from the adjusted departure
-                        java.time.LocalDate requestedDate = java.time.LocalDateTime
-                                .ofInstant(schedule.getDepartureTime(), java.time.ZoneOffset.UTC)
-                                .toLocalDate();
-                        // Use the passed-in departure date from the adjusted schedule
-                        return bookingDate.equals(requestedDate);
-                    }
-                    return true;
-                })
+    /**
+     * Fares per seat type for each schedule, from the cached fare matrices only; no seat or
+     * booking data is read. Schedules that cannot be priced for the stop pair are left out.
+     */
+    public Map<UUID, Map<String, FareResult>> fares(List<RouteSchedule> schedules, int fromStopId, int toStopId) {
+        List<RouteSchedule> candidates = schedules.stream()
+                .filter(s -> s.getBus() != null)
                 .toList();
+        if (candidates.isEmpty()) return Map.of();
 
-        // Build a set of seat numbers that overlap with the requested from->to segment range
-        Set<String> unavailableSeats = allBookingSeats.stream()
-                .filter(bs -> segmentsOverlap(segments, bs.getFromStop(), bs.getToStop(), from, to))
-                .map(BookingSeat::getSeatNumber)
-                .collect(Collectors.toSet());
-
-        List<SeatAvailability> seatAvailability = seats.stream()
-                .map(seat -> new SeatAvailability(
-                        seat.getSeatNumber(),
-                        !unavailableSeats.contains(seat.getSeatNumber())
-                        && !Boolean.TRUE.equals(seat.getIsBlocked())
-                ))
-                .toList();
+        Map<FareMatrixService.RouteBus, FareMatrixService.FareMatrix> matrices = fareMatrixService.matrices(
+                candidates.stream().map(this::routeBus).collect(Collectors.toSet()));
 
-        return new SearchResult(faresByType, seatAvailability);
-    }
+        Map<UUID, Map<String, FareResult>> result = new HashMap<>();
+        for (RouteSchedule schedule : candidates) {
+            UUID routeId = schedule.getRoute().getId();
+            FareMatrixService.FareMatrix matrix = matrices.get(routeBus(schedule));
+            int startIdx = routeIndexService.position(routeId, fromStopId);
+            int endIdx = routeIndexService.position(routeId, toStopId);
+            if (startIdx == -1 || endIdx <= startIdx || endIdx > matrix.segmentCount()) continue;
 
-    // Returns true if booking segment [bookedFrom->bookedTo] overlaps with requested [reqFrom->reqTo]
-    private boolean segmentsOverlap(List<RouteSegment> segments, String bookedFrom, String bookedTo,
-                                     String reqFrom, String reqTo) {
-        int bookedStart = indexOf(segments, bookedFrom);
-        int bookedEnd   = indexOf(segments, bookedTo);
-        int reqStart    = indexOf(segments, reqFrom);
-        int reqEnd      = indexOf(segments, reqTo);
-        if (bookedStart == -1 || bookedEnd == -1 || reqStart == -1 || reqEnd == -1) return false;
-        // Overlap exists if one range starts before the other ends
-        return bookedStart < reqEnd && bookedEnd > reqStart;
+            Map<String, FareResult> faresByType = matrix.fares(startIdx, endIdx);
+            if (!faresByType.isEmpty()) result.put(schedule.getId(), faresByType);
+        }
+        return result;
     }
 
-    private int indexOf(List<RouteSegment> segs, String stop) {
-        // Check if stop is a fromStop
-        for (int i = 0; i < segs.size(); i++) {
-            if (segs.get(i).getFromStop().equalsIgnoreCase(stop)) {
-                return i;
-            }
-        }
-        
-        // Check if stop is a toStop (for destination)
-        for (int i = 0; i < segs.size(); i++) {
-            if (segs.get(i).getToStop().equalsIgnoreCase(stop)) {
-                return i + 1; // Return next index for destination
-            }
-        }
-        
-        return -1;
+    private FareMatrixService.RouteBus routeBus(RouteSchedule schedule) {
+        return new FareMatrixService.RouteBus(schedule.getRoute().getId(), schedule.getBus().getId());
     }
-}
\ No newline at end of file
+}
@@ -1,5 +1,8 @@
 package com.tripgo.backend.service.impl;
 
+import com.tripgo.backend.event.SeatsLockedEvent;
+import com.tripgo.backend.event.SeatsReleasedEvent;
+import com.tripgo.backend.exception.SeatLockConflictException;
 import com.tripgo.backend.model.entities.RouteSchedule;
 import com.tripgo.backend.model.entities.RouteSegment;
 import com.tripgo.backend.model.entities.SeatLock;
@@ -8,13 +11,18 @@ import com.tripgo.backend.repository.RouteSegmentRepository;
 import com.tripgo.backend.repository.SeatLockRepository;
 import jakarta.transaction.Transactional;
 import lombok.RequiredArgsConstructor;
+import org.springframework.context.ApplicationEventPublisher;
 import org.springframework.stereotype.Service;
 
 import java.time.Duration;
 import java.time.Instant;
 import java.time.LocalDate;
+import java.util.Collection;
+import java.util.LinkedHashMap;
 import java.util.List;
+import java.util.Map;
 import java.util.UUID;
+import java.util.stream.Collectors;
 
 @Service
 @RequiredArgsConstructor
@@ -22,60 +30,109 @@ public class SeatLockService {
 
     private final SeatLockRepository seatLockRepo;
     private final RouteSegmentRepository segmentRepo;
+    private final RouteIndexService routeIndexService;
+    private final StopService stopService;
+    private final ScheduleInstanceService scheduleInstanceService;
+    private final ApplicationEventPublisher eventPublisher;
 
     private static final Duration LOCK_DURATION = Duration.ofMinutes(15);
 
+    /**
+     * Locks all seats or none. The locks are inserted with a single statement and the
+     * ex_seat_locks_overlap exclusion constraint rejects any seat whose segment range overlaps
+     * a live lock; if any seat is rejected the whole lock attempt is rolled back.
+     * The schedule must run on the travel date and that trip must still be open.
+     */
+    @Transactional
     public UUID lockSeats(RouteSchedule schedule, List<String> seatNumbers, User user, LocalDate travelDate, String fromStop, String toStop) {
+        scheduleInstanceService.bookable(schedule, travelDate);
 
         UUID token = UUID.randomUUID();
-        Instant expiry = Instant.now().plus(LOCK_DURATION);
+        Instant now = Instant.now();
         List<RouteSegment> segments = segmentRepo.findByRouteOrderBySeq(schedule.getRoute());
         String resolvedFrom = normalizeFromStop(segments, fromStop);
         String resolvedTo = normalizeToStop(segments, toStop);
-        List<SeatLock> activeLocks = seatLockRepo.findByRouteScheduleIdAndTravelDate(schedule.getId(), travelDate)
-                .stream()
-                .filter(lock -> lock.getExpiresAt().isAfter(Instant.now()))
-                .toList();
+        Integer fromStopId = stopService.resolve(resolvedFrom);
+        Integer toStopId = stopService.resolve(resolvedTo);
+        UUID routeId = schedule.getRoute().getId();
+        int fromIdx = routeIndexService.position(routeId, fromStopId);
+        int toIdx = routeIndexService.position(routeId, toStopId);
+        // Stops not on the route lock the seat on the whole route
+        if (fromIdx == -1 || toIdx == -1 || toIdx <= fromIdx) {
+            fromIdx = 0;
+            toIdx = Math.max(segments.size(), 1);
+        }
 
-        for (String seatNumber : seatNumbers) {
-
-            boolean alreadyLocked = activeLocks.stream()
-                    .filter(lock -> seatNumber.equalsIgnoreCase(lock.getSeatNumber()))
-                    .anyMatch(lock -> segmentsOverlap(segments, lock.getFromStop(), lock.getToStop(), resolvedFrom, resolvedTo));
-            
-            if (alreadyLocked) {
-                throw new RuntimeException("Seat " + seatNumber + " is locked");
-            }
-
-            seatLockRepo.save(
-                    SeatLock.builder()
-                            .routeSchedule(schedule)
-                            .seatNumber(seatNumber)
-                            .travelDate(travelDate)
-                            .fromStop(resolvedFrom)
-                            .toStop(resolvedTo)
-                            .lockedBy(user)
-                            .expiresAt(expiry)
-                            .lockToken(token)
-                            .build()
-            );
+        List<String> seats = seatNumbers.stream().distinct().toList();
+
+        // Expired locks still take part in the exclusion constraint until they are deleted
+        releaseLocks(seatLockRepo.findExpired(schedule.getId(), travelDate, now));
+        List<String> locked = seatLockRepo.insertLocks(
+                schedule.getId(), travelDate, seats.toArray(String[]::new),
+                resolvedFrom, resolvedTo, fromStopId, toStopId, fromIdx, toIdx,
+                token, user.getId(), now.plus(LOCK_DURATION));
+
+        if (locked.size() < seats.size()) {
+            List<String> conflicts = seats.stream().filter(seat -> !locked.contains(seat)).toList();
+            throw new SeatLockConflictException(conflicts);
         }
 
+        eventPublisher.publishEvent(new SeatsLockedEvent(
+                token, schedule.getId(), travelDate, seats, fromIdx, toIdx, now.plus(LOCK_DURATION)));
         return token;
     }
 
     @Transactional
     public void release(UUID token) {
-        seatLockRepo.deleteAll(
-                seatLockRepo.findAll().stream()
-                        .filter(l -> l.getLockToken().equals(token))
-                        .toList()
-        );
+        List<SeatLock> locks = seatLockRepo.findByLockToken(token);
+        if (locks.isEmpty()) return;
+        seatLockRepo.deleteByLockToken(token);
+        publishReleased(locks);
+    }
+
+    @Transactional
+    public void release(UUID token, User user) {
+        List<SeatLock> locks = seatLockRepo.findByLockToken(token).stream()
+                .filter(lock -> lock.getLockedBy() != null && lock.getLockedBy().getId().equals(user.getId()))
+                .toList();
+        if (locks.isEmpty()) return;
+        seatLockRepo.deleteByLockTokenAndUser(token, user.getId());
+        publishReleased(locks);
+    }
+
+    /**
+     * Deletes the expired locks of the given tokens with one batched delete.
+     */
+    @Transactional
+    public void expire(Collection<UUID> tokens, Instant now) {
+        releaseLocks(seatLockRepo.findExpiredByLockTokenIn(tokens, now));
     }
 
     @Transactional
     public void cleanupExpired() {
-        seatLockRepo.deleteExpired();
+        releaseLocks(seatLockRepo.findByExpiresAtLessThanEqual(Instant.now()));
+    }
+
+    private void releaseLocks(List<SeatLock> locks) {
+        if (locks.isEmpty()) return;
+        seatLockRepo.deleteAllInBatch(locks);
+        publishReleased(locks);
+    }
+
+    // One event per lock token: its seats share schedule, date and segment range
+    private void publishReleased(List<SeatLock> locks) {
+        Map<UUID, List<SeatLock>> byToken = locks.stream()
+                .collect(Collectors.groupingBy(SeatLock::getLockToken, LinkedHashMap::new, Collectors.toList()));
+        byToken.forEach((token, tokenLocks) -> {
+            SeatLock first = tokenLocks.get(0);
+            eventPublisher.publishEvent(new SeatsReleasedEvent(
+                    token,
+                    first.getRouteSchedule().getId(),
+                    first.getTravelDate(),
+                    tokenLocks.stream().map(SeatLock::getSeatNumber).toList(),
+                    first.getFromIdx(),
+                    first.getToIdx()));
+        });
     }
 
     private String normalizeFromStop(List<RouteSegment> segments, String fromStop) {
@@ -89,23 +146,4 @@ public class SeatLockService {
         if (!segments.isEmpty()) return segments.get(segments.size() - 1).getToStop();
         return "";
     }
-
-    private boolean segmentsOverlap(List<RouteSegment> segments, String bookedFrom, String bookedTo, String reqFrom, String reqTo) {
-        int bookedStart = indexOf(segments, bookedFrom);
-        int bookedEnd = indexOf(segments, bookedTo);
-        int reqStart = indexOf(segments, reqFrom);
-        int reqEnd = indexOf(segments, reqTo);
-        if (bookedStart == -1 || bookedEnd == -1 || reqStart == -1 || reqEnd == -1) return true;
-        return bookedStart < reqEnd && bookedEnd > reqStart;
-    }
-
-    private int indexOf(List<RouteSegment> segments, String stop) {
-        for (int i = 0; i < segments.size(); i++) {
-            if (segments.get(i).getFromStop().equalsIgnoreCase(stop)) return i;
-        }
-        for (int i = 0; i < segments.size(); i++) {
-            if (segments.get(i).getToStop().equalsIgnoreCase(stop)) return i + 1;
-        }
-        return -1;
-    }
 }
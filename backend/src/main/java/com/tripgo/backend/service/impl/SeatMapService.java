@@ -0,0 +1,222 @@
+package com.tripgo.backend.service.impl;
+
+import com.github.benmanes.caffeine.cache.Cache;
+import com.github.benmanes.caffeine.cache.Caffeine;
+import com.tripgo.backend.dto.response.CompactSeatMap;
+import com.tripgo.backend.dto.response.SeatLayoutResponse;
+import com.tripgo.backend.dto.response.SeatLayoutSeat;
+import com.tripgo.backend.dto.response.SeatMapSeat;
+import com.tripgo.backend.model.entities.RouteSchedule;
+import com.tripgo.backend.model.entities.Seat;
+import com.tripgo.backend.model.entities.SeatLock;
+import com.tripgo.backend.repository.SeatLockRepository;
+import com.tripgo.backend.repository.SeatRepository;
+import com.tripgo.backend.util.SingleFlight;
+import io.micrometer.core.instrument.MeterRegistry;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Service;
+
+import java.nio.charset.StandardCharsets;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.time.Instant;
+import java.time.LocalDate;
+import java.util.ArrayList;
+import java.util.Base64;
+import java.util.BitSet;
+import java.util.Comparator;
+import java.util.HashSet;
+import java.util.HexFormat;
+import java.util.List;
+import java.util.Set;
+import java.util.UUID;
+
+/**
+ * Builds the seat map of a schedule for one travel date and stop pair. The requested stops
+ * are resolved to segment positions once, locks overlapping them are indexed by seat number
+ * once and confirmed seats come from the occupancy bitmaps, so each seat is a couple of
+ * hash lookups. Concurrent requests for the same schedule, date and segment range share
+ * one build.
+ * A layout is the bus's seats in a fixed order with their static attributes; its id is the
+ * bus id followed by a hash of that content, so clients can cache it and fetch only the
+ * availability bits. Layouts are kept in a bounded cache and rebuilt from the bus's seats on
+ * a miss, so an id stays valid across restarts and instances until the seats change.
+ */
+@Service
+public class SeatMapService {
+
+    private final SeatRepository seatRepository;
+    private final SeatLockRepository lockRepo;
+    private final StopService stopService;
+    private final RouteIndexService routeIndexService;
+    private final OccupancyService occupancyService;
+    private final SingleFlight<SeatMapKey, SeatMap> builds;
+
+    private record SeatMapKey(UUID scheduleId, LocalDate travelDate, int fromIdx, int toIdx) {}
+
+    // layout id -> layout; content-addressed, so entries never change
+    private final Cache<String, SeatLayoutResponse> layouts;
+
+    public SeatMapService(SeatRepository seatRepository,
+                          SeatLockRepository lockRepo,
+                          StopService stopService,
+                          RouteIndexService routeIndexService,
+                          OccupancyService occupancyService,
+                          MeterRegistry meterRegistry,
+                          @Value("${app.seatmap.layout-cache-size:1000}") long layoutCacheSize) {
+        this.seatRepository = seatRepository;
+        this.lockRepo = lockRepo;
+        this.stopService = stopService;
+        this.routeIndexService = routeIndexService;
+        this.occupancyService = occupancyService;
+        this.builds = new SingleFlight<>("seat-map", meterRegistry);
+        this.layouts = Caffeine.newBuilder().maximumSize(layoutCacheSize).build();
+    }
+
+    public SeatMap build(RouteSchedule schedule, LocalDate travelDate, String from, String to) {
+        UUID routeId = schedule.getRoute().getId();
+        int segmentCount = routeIndexService.segmentCount(routeId);
+        int reqStart = from == null || from.isBlank() ? 0 : routeIndexService.position(routeId, stopService.resolve(from));
+        int reqEnd = to == null || to.isBlank() ? segmentCount : routeIndexService.position(routeId, stopService.resolve(to));
+        // Stops not on the route: anything held anywhere on it counts as taken
+        if (reqStart == -1 || reqEnd == -1) {
+            reqStart = 0;
+            reqEnd = segmentCount;
+        }
+
+        int fromIdx = reqStart, toIdx = reqEnd;
+        return builds.execute(new SeatMapKey(schedule.getId(), travelDate, fromIdx, toIdx),
+                () -> build(schedule, travelDate, fromIdx, toIdx));
+    }
+
+    private SeatMap build(RouteSchedule schedule, LocalDate travelDate, int reqStart, int reqEnd) {
+        Instant now = Instant.now();
+        Set<String> lockedSeats = new HashSet<>();
+        for (SeatLock lock : lockRepo.findByRouteScheduleIdAndTravelDate(schedule.getId(), travelDate)) {
+            if (lock.getExpiresAt().isAfter(now) && lock.getFromIdx() < reqEnd && lock.getToIdx() > reqStart) {
+                lockedSeats.add(lock.getSeatNumber().toUpperCase());
+            }
+        }
+        OccupancyService.OccupiedSeats bookedSeats = occupancyService.occupancy(schedule, travelDate)
+                .occupied(reqStart, reqEnd);
+
+        List<Seat> seats = sorted(seatRepository.findByBus(schedule.getBus()));
+
+        List<SeatMapSeat> seatMapSeats = new ArrayList<>(seats.size());
+        BitSet available = new BitSet(seats.size());
+        for (int i = 0; i < seats.size(); i++) {
+            Seat seat = seats.get(i);
+            boolean blocked = Boolean.TRUE.equals(seat.getIsBlocked());
+            boolean free = !blocked
+                    && !lockedSeats.contains(seat.getSeatNumber().toUpperCase())
+                    && !bookedSeats.contains(seat.getSeatNumber());
+            if (free) available.set(i);
+            seatMapSeats.add(new SeatMapSeat(
+                    seat.getId(),
+                    seat.getSeatNumber(),
+                    seat.getSeatType(),
+                    Boolean.TRUE.equals(seat.getIsLadiesOnly()),
+                    Boolean.TRUE.equals(seat.getIsWindow()),
+                    Boolean.TRUE.equals(seat.getIsAisle()),
+                    blocked,
+                    free
+            ));
+        }
+        return new SeatMap(register(schedule.getBus().getId(), seats), seatMapSeats, available);
+    }
+
+    public SeatLayoutResponse layout(String layoutId) {
+        SeatLayoutResponse layout = layouts.get(layoutId, this::load);
+        if (layout == null) {
+            throw new RuntimeException("Seat layout not found");
+        }
+        return layout;
+    }
+
+    private String register(UUID busId, List<Seat> seats) {
+        SeatLayoutResponse layout = layout(busId, seats);
+        layouts.asMap().putIfAbsent(layout.layoutId(), layout);
+        return layout.layoutId();
+    }
+
+    // Rebuilds a layout from its bus's current seats; null when they no longer hash to the id
+    private SeatLayoutResponse load(String layoutId) {
+        if (layoutId.length() <= 32) return null;
+        UUID busId;
+        try {
+            busId = UUID.fromString(layoutId.substring(0, 32)
+                    .replaceFirst("(.{8})(.{4})(.{4})(.{4})(.{12})", "$1-$2-$3-$4-$5"));
+        } catch (IllegalArgumentException e) {
+            return null;
+        }
+        SeatLayoutResponse layout = layout(busId, sorted(seatRepository.findByBusIdIn(List.of(busId))));
+        return layout.layoutId().equals(layoutId) ? layout : null;
+    }
+
+    private static SeatLayoutResponse layout(UUID busId, List<Seat> seats) {
+        List<SeatLayoutSeat> layoutSeats = seats.stream()
+                .map(seat -> new SeatLayoutSeat(
+                        seat.getId(),
+                        seat.getSeatNumber(),
+                        seat.getSeatType(),
+                        Boolean.TRUE.equals(seat.getIsLadiesOnly()),
+                        Boolean.TRUE.equals(seat.getIsWindow()),
+                        Boolean.TRUE.equals(seat.getIsAisle())))
+                .toList();
+        String layoutId = busId.toString().replace("-", "") + layoutHash(layoutSeats);
+        return new SeatLayoutResponse(layoutId, layoutSeats);
+    }
+
+    private static List<Seat> sorted(List<Seat> seats) {
+        List<Seat> sorted = new ArrayList<>(seats);
+        sorted.sort(Comparator.comparing(Seat::getSeatNumber, SeatMapService::compareSeatNumbers));
+        return sorted;
+    }
+
+    private static String layoutHash(List<SeatLayoutSeat> seats) {
+        try {
+            MessageDigest digest = MessageDigest.getInstance("SHA-256");
+            for (SeatLayoutSeat seat : seats) {
+                String line = seat.id() + "|" + seat.seatNumber() + "|" + seat.seatType() + "|"
+                        + seat.isLadiesOnly() + "|" + seat.isWindow() + "|" + seat.isAisle() + "\n";
+                digest.update(line.getBytes(StandardCharsets.UTF_8));
+            }
+            return HexFormat.of().formatHex(digest.digest(), 0, 12);
+        } catch (NoSuchAlgorithmException e) {
+            throw new IllegalStateException(e);
+        }
+    }
+
+    // "L2" before "L10", "2A" before "10A"
+    private static int compareSeatNumbers(String a, String b) {
+        int i = 0, j = 0;
+        while (i < a.length() && j < b.length()) {
+            char ca = a.charAt(i), cb = b.charAt(j);
+            if (Character.isDigit(ca) && Character.isDigit(cb)) {
+                int si = i, sj = j;
+                while (i < a.length() && Character.isDigit(a.charAt(i))) i++;
+                while (j < b.length() && Character.isDigit(b.charAt(j))) j++;
+                int cmp = Long.compare(Long.parseLong(a.substring(si, i)), Long.parseLong(b.substring(sj, j)));
+                if (cmp != 0) return cmp;
+            } else {
+                int cmp = Character.compare(Character.toUpperCase(ca), Character.toUpperCase(cb));
+                if (cmp != 0) return cmp;
+                i++;
+                j++;
+            }
+        }
+        int cmp = Integer.compare(a.length() - i, b.length() - j);
+        return cmp != 0 ? cmp : a.compareTo(b);
+    }
+
+    /**
+     * Seats of one schedule in layout order; bit i of {@code available} is seat i.
+     */
+    public record SeatMap(String layoutId, List<SeatMapSeat> seats, BitSet available) {
+
+        public CompactSeatMap compact() {
+            return new CompactSeatMap(layoutId, seats.size(),
+                    Base64.getEncoder().encodeToString(available.toByteArray()));
+        }
+    }
+}
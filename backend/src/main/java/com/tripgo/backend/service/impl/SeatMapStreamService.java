@@ -0,0 +1,147 @@
+package com.tripgo.backend.service.impl;
+
+import com.tripgo.backend.dto.response.SeatMapDelta;
+import com.tripgo.backend.dto.response.SeatMapFrame;
+import com.tripgo.backend.dto.response.SeatMapSnapshot;
+import com.tripgo.backend.dto.response.SeatRange;
+import com.tripgo.backend.event.BookingCancelledEvent;
+import com.tripgo.backend.event.BookingConfirmedEvent;
+import com.tripgo.backend.event.SeatsLockedEvent;
+import com.tripgo.backend.event.SeatsReleasedEvent;
+import com.tripgo.backend.model.entities.BookingSeat;
+import com.tripgo.backend.model.entities.RouteSchedule;
+import com.tripgo.backend.model.entities.RouteSegment;
+import com.tripgo.backend.repository.BookingSeatRepository;
+import com.tripgo.backend.repository.RouteScheduleRepository;
+import com.tripgo.backend.repository.RouteSegmentRepository;
+import com.tripgo.backend.repository.SeatLockRepository;
+import lombok.RequiredArgsConstructor;
+import org.springframework.messaging.simp.SimpMessagingTemplate;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.event.TransactionalEventListener;
+
+import java.time.Instant;
+import java.time.LocalDate;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.UUID;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * Live seat map per (schedule, travel date) over STOMP.
+ * Subscribers get a snapshot once and then frames of deltas on
+ * /topic/seats/{scheduleId}/{travelDate}. Deltas raised by locks, releases, confirmations
+ * and cancellations are buffered per topic and flushed together, so a topic receives at
+ * most one frame per flush interval however busy the schedule is.
+ */
+@Service
+@RequiredArgsConstructor
+public class SeatMapStreamService {
+
+    private final SimpMessagingTemplate messagingTemplate;
+    private final RouteScheduleRepository scheduleRepo;
+    private final RouteSegmentRepository segmentRepo;
+    private final SeatLockRepository lockRepo;
+    private final BookingSeatRepository bookingSeatRepo;
+    private final RouteIndexService routeIndexService;
+    private final OccupancyService occupancyService;
+
+    private final Map<OccupancyService.ScheduleDate, List<SeatMapDelta>> pending = new ConcurrentHashMap<>();
+
+    public static String topic(UUID scheduleId, LocalDate travelDate) {
+        return "/topic/seats/" + scheduleId + "/" + travelDate;
+    }
+
+    public SeatMapSnapshot snapshot(UUID scheduleId, LocalDate travelDate) {
+        RouteSchedule schedule = scheduleRepo.findById(scheduleId)
+                .orElseThrow(() -> new RuntimeException("Schedule not found"));
+
+        List<RouteSegment> segments = segmentRepo.findByRouteOrderBySeq(schedule.getRoute());
+        List<String> stops = new ArrayList<>();
+        segments.forEach(seg -> stops.add(seg.getFromStop()));
+        if (!segments.isEmpty()) stops.add(segments.get(segments.size() - 1).getToStop());
+
+        Instant now = Instant.now();
+        List<SeatRange> locked = lockRepo.findByRouteScheduleIdAndTravelDate(scheduleId, travelDate).stream()
+                .filter(lock -> lock.getExpiresAt().isAfter(now))
+                .map(lock -> new SeatRange(lock.getSeatNumber(), lock.getFromIdx(), lock.getToIdx()))
+                .toList();
+
+        return new SeatMapSnapshot(
+                scheduleId,
+                travelDate,
+                stops,
+                occupancyService.occupancy(schedule, travelDate).bookedRanges(),
+                locked
+        );
+    }
+
+    @TransactionalEventListener(fallbackExecution = true)
+    public void onSeatsLocked(SeatsLockedEvent event) {
+        enqueue(event.scheduleId(), event.travelDate(),
+                deltas(event.seatNumbers(), event.fromIdx(), event.toIdx(), "LOCKED"));
+    }
+
+    @TransactionalEventListener(fallbackExecution = true)
+    public void onSeatsReleased(SeatsReleasedEvent event) {
+        enqueue(event.scheduleId(), event.travelDate(),
+                deltas(event.seatNumbers(), event.fromIdx(), event.toIdx(), "RELEASED"));
+    }
+
+    @TransactionalEventListener(fallbackExecution = true)
+    public void onBookingConfirmed(BookingConfirmedEvent event) {
+        enqueueBooking(event.bookingId(), event.scheduleId(), event.travelDate(), "BOOKED");
+    }
+
+    @TransactionalEventListener(fallbackExecution = true)
+    public void onBookingCancelled(BookingCancelledEvent event) {
+        enqueueBooking(event.bookingId(), event.scheduleId(), event.travelDate(), "CANCELLED");
+    }
+
+    /**
+     * Sends one frame per topic with everything buffered since the last flush.
+     */
+    public void flush() {
+        for (OccupancyService.ScheduleDate key : pending.keySet()) {
+            List<SeatMapDelta> deltas = pending.remove(key);
+            if (deltas == null || deltas.isEmpty()) continue;
+            messagingTemplate.convertAndSend(
+                    topic(key.scheduleId(), key.travelDate()),
+                    new SeatMapFrame(key.scheduleId(), key.travelDate(), deltas));
+        }
+    }
+
+    private void enqueueBooking(UUID bookingId, UUID scheduleId, LocalDate travelDate, String state) {
+        if (travelDate == null) return;
+        UUID routeId = scheduleRepo.findById(scheduleId).map(s -> s.getRoute().getId()).orElse(null);
+        if (routeId == null) return;
+
+        List<SeatMapDelta> deltas = new ArrayList<>();
+        for (BookingSeat bs : bookingSeatRepo.findByBookingId(bookingId)) {
+            int from = routeIndexService.position(routeId, bs.getFromStopId());
+            int to = routeIndexService.position(routeId, bs.getToStopId());
+            if (from == -1 || to == -1 || to <= from) {
+                from = 0;
+                to = routeIndexService.segmentCount(routeId);
+            }
+            deltas.add(new SeatMapDelta(bs.getSeatNumber(), from, to, state));
+        }
+        enqueue(scheduleId, travelDate, deltas);
+    }
+
+    private List<SeatMapDelta> deltas(List<String> seatNumbers, int fromIdx, int toIdx, String state) {
+        return seatNumbers.stream()
+                .map(seat -> new SeatMapDelta(seat, fromIdx, toIdx, state))
+                .toList();
+    }
+
+    private void enqueue(UUID scheduleId, LocalDate travelDate, List<SeatMapDelta> deltas) {
+        if (deltas.isEmpty()) return;
+        pending.merge(new OccupancyService.ScheduleDate(scheduleId, travelDate), deltas, (current, added) -> {
+            List<SeatMapDelta> merged = new ArrayList<>(current);
+            merged.addAll(added);
+            return merged;
+        });
+    }
+}
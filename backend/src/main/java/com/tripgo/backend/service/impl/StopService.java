@@ -0,0 +1,92 @@
+package com.tripgo.backend.service.impl;
+
+import com.tripgo.backend.model.entities.Stop;
+import com.tripgo.backend.model.entities.StopAlias;
+import com.tripgo.backend.repository.StopAliasRepository;
+import com.tripgo.backend.repository.StopRepository;
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.stereotype.Service;
+
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * Canonical stop dictionary. Every known spelling of a stop ("Bangalore", "bengaluru ",
+ * "BENGALURU") resolves to the same integer stop id, so stop comparisons elsewhere
+ * are plain integer equality.
+ */
+@Slf4j
+@Service
+@RequiredArgsConstructor
+public class StopService {
+
+    private final StopRepository stopRepository;
+    private final StopAliasRepository aliasRepository;
+
+    // normalized alias -> stop id
+    private final Map<String, Integer> idsByAlias = new ConcurrentHashMap<>();
+    // stop id -> canonical display name
+    private final Map<Integer, String> namesById = new ConcurrentHashMap<>();
+
+    @EventListener(ApplicationReadyEvent.class)
+    public synchronized void load() {
+        idsByAlias.clear();
+        namesById.clear();
+        for (StopAlias alias : aliasRepository.findAllWithStop()) {
+            idsByAlias.put(alias.getNormalizedAlias(), alias.getStop().getId());
+            namesById.put(alias.getStop().getId(), alias.getStop().getName());
+        }
+        log.info("Stop dictionary loaded: {} stops, {} aliases", namesById.size(), idsByAlias.size());
+    }
+
+    /**
+     * Stop id for any known spelling, or null when the name is blank or unknown.
+     */
+    public Integer resolve(String name) {
+        String key = normalize(name);
+        if (key.isEmpty()) return null;
+        return idsByAlias.get(key);
+    }
+
+    /**
+     * Stop id for a name, registering it as a new stop when nobody has used it before.
+     */
+    public synchronized Integer resolveOrCreate(String name) {
+        String key = normalize(name);
+        if (key.isEmpty()) {
+            throw new RuntimeException("Stop name is required");
+        }
+        Integer id = idsByAlias.get(key);
+        if (id != null) return id;
+
+        Stop stop = aliasRepository.findByNormalizedAlias(key)
+                .map(StopAlias::getStop)
+                .orElseGet(() -> {
+                    Stop created = stopRepository.save(Stop.builder()
+                            .name(name.trim().replaceAll("\\s+", " "))
+                            .normalizedName(key)
+                            .build());
+                    aliasRepository.save(StopAlias.builder()
+                            .stop(created)
+                            .alias(created.getName())
+                            .normalizedAlias(key)
+                            .build());
+                    return created;
+                });
+
+        idsByAlias.put(key, stop.getId());
+        namesById.put(stop.getId(), stop.getName());
+        return stop.getId();
+    }
+
+    public String name(Integer stopId) {
+        return stopId == null ? null : namesById.get(stopId);
+    }
+
+    public static String normalize(String name) {
+        return name == null ? "" : name.trim().replaceAll("\\s+", " ").toLowerCase();
+    }
+}
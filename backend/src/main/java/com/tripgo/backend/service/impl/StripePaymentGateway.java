@@ -0,0 +1,75 @@
+package com.tripgo.backend.service.impl;
+
+import com.stripe.model.PaymentIntent;
+import com.stripe.model.Refund;
+import com.stripe.net.RequestOptions;
+import com.stripe.param.PaymentIntentCreateParams;
+import com.stripe.param.RefundCreateParams;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.stereotype.Service;
+
+import java.util.Map;
+
+@Service
+@ConditionalOnProperty(name = "app.payment.gateway", havingValue = "stripe", matchIfMissing = true)
+public class StripePaymentGateway implements PaymentGateway {
+
+    private final int connectTimeoutMs;
+    private final int readTimeoutMs;
+
+    public StripePaymentGateway(@Value("${app.payment.connect-timeout-ms:2000}") int connectTimeoutMs,
+                                @Value("${app.payment.read-timeout-ms:8000}") int readTimeoutMs) {
+        this.connectTimeoutMs = connectTimeoutMs;
+        this.readTimeoutMs = readTimeoutMs;
+    }
+
+    @Override
+    public String name() {
+        return "stripe";
+    }
+
+    @Override
+    public Intent createIntent(CreateIntent request) throws Exception {
+        PaymentIntentCreateParams params = PaymentIntentCreateParams.builder()
+                .setAmount(request.amountInPaise())
+                .setCurrency(request.currency())
+                .setAutomaticPaymentMethods(
+                        PaymentIntentCreateParams.AutomaticPaymentMethods.builder()
+                                .setEnabled(true)
+                                .build()
+                )
+                .putAllMetadata(request.metadata())
+                .build();
+        return intent(PaymentIntent.create(params, options()
+                .setIdempotencyKey(request.idempotencyKey())
+                .build()));
+    }
+
+    @Override
+    public Intent retrieveIntent(String intentId) throws Exception {
+        return intent(PaymentIntent.retrieve(intentId, options().build()));
+    }
+
+    @Override
+    public void refund(String intentId, long amountInPaise, String idempotencyKey) throws Exception {
+        Refund.create(RefundCreateParams.builder()
+                .setPaymentIntent(intentId)
+                .setAmount(amountInPaise)
+                .build(), options()
+                .setIdempotencyKey(idempotencyKey)
+                .build());
+    }
+
+    private RequestOptions.RequestOptionsBuilder options() {
+        return RequestOptions.builder()
+                .setConnectTimeout(connectTimeoutMs)
+                .setReadTimeout(readTimeoutMs)
+                .setMaxNetworkRetries(1);
+    }
+
+    private static Intent intent(PaymentIntent intent) {
+        Map<String, String> metadata = intent.getMetadata() != null ? intent.getMetadata() : Map.of();
+        return new Intent(intent.getId(), intent.getStatus(), intent.getClientSecret(), metadata);
+    }
+}
@@ -0,0 +1,87 @@
+package com.tripgo.backend.service.impl;
+
+import com.tripgo.backend.model.entities.StripeWebhookEvent;
+import jakarta.annotation.PreDestroy;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Service;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.UUID;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * Works off stored Stripe events on a small pool of single-threaded workers. The claim only
+ * hands out a booking's next event once every earlier one is done or given up, so a booking's
+ * succeeded and failed events are never applied concurrently or out of order, even across
+ * retries; different bookings proceed in parallel. At most {@code workers * QUEUE_PER_WORKER} events are held in memory.
+ */
+@Slf4j
+@Service
+public class StripeWebhookProcessor {
+
+    private static final int QUEUE_PER_WORKER = 25;
+
+    private final StripeWebhookService webhookService;
+    private final BookingConfirmationService bookingConfirmationService;
+    private final List<ExecutorService> workers = new ArrayList<>();
+    private final AtomicInteger queued = new AtomicInteger();
+    private final int capacity;
+
+    public StripeWebhookProcessor(StripeWebhookService webhookService,
+                                  BookingConfirmationService bookingConfirmationService,
+                                  @Value("${app.stripe.webhook-workers:4}") int workerCount) {
+        this.webhookService = webhookService;
+        this.bookingConfirmationService = bookingConfirmationService;
+        for (int i = 0; i < workerCount; i++) {
+            int index = i;
+            workers.add(Executors.newSingleThreadExecutor(r -> new Thread(r, "stripe-webhook-" + index)));
+        }
+        this.capacity = workerCount * QUEUE_PER_WORKER;
+    }
+
+    public void poll() {
+        int free = capacity - queued.get();
+        if (free <= 0) return;
+
+        for (StripeWebhookEvent event : webhookService.claim(free)) {
+            queued.incrementAndGet();
+            worker(event.getBookingId()).execute(() -> {
+                try {
+                    process(event);
+                    webhookService.complete(event.getEventId());
+                } catch (Exception e) {
+                    webhookService.retry(event.getEventId(), e);
+                } finally {
+                    queued.decrementAndGet();
+                }
+            });
+        }
+    }
+
+    @PreDestroy
+    public void shutdown() {
+        workers.forEach(ExecutorService::shutdown);
+    }
+
+    private void process(StripeWebhookEvent event) {
+        if (event.getBookingId() == null) return;
+
+        switch (event.getEventType()) {
+            // Ticket, lock release, notifications and emails go through the outbox
+            case "payment_intent.succeeded" -> bookingConfirmationService.confirm(
+                    event.getBookingId(), event.getPaymentIntentId(), event.getLockToken());
+            case "payment_intent.payment_failed" -> bookingConfirmationService.fail(
+                    event.getBookingId(), event.getPaymentIntentId());
+            default -> { /* ignore other events like charge.succeeded */ }
+        }
+    }
+
+    private ExecutorService worker(UUID bookingId) {
+        int hash = bookingId == null ? 0 : bookingId.hashCode();
+        return workers.get(Math.floorMod(hash, workers.size()));
+    }
+}
@@ -0,0 +1,87 @@
+package com.tripgo.backend.service.impl;
+
+import com.stripe.model.Event;
+import com.stripe.model.PaymentIntent;
+import com.tripgo.backend.model.entities.StripeWebhookEvent;
+import com.tripgo.backend.repository.StripeWebhookEventRepository;
+import jakarta.transaction.Transactional;
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.stereotype.Service;
+
+import java.time.Duration;
+import java.time.Instant;
+import java.util.List;
+
+/**
+ * Durable intake of Stripe webhooks. A verified delivery is one insert keyed by Stripe's
+ * event id, so a redelivered event costs a primary-key probe and nothing else; processing
+ * happens later in StripeWebhookProcessor. Claims, backoff and give-up work like the outbox.
+ */
+@Slf4j
+@Service
+@RequiredArgsConstructor
+public class StripeWebhookService {
+
+    public static final int MAX_ATTEMPTS = 10;
+    private static final Duration LEASE = Duration.ofMinutes(5);
+    private static final Duration FIRST_RETRY = Duration.ofSeconds(5);
+    private static final Duration MAX_RETRY = Duration.ofHours(1);
+
+    private final StripeWebhookEventRepository eventRepo;
+
+    /**
+     * Stores a verified event. Returns false when Stripe already delivered it.
+     */
+    @Transactional
+    public boolean ingest(Event event, String payload) {
+        String bookingId = null;
+        String intentId = null;
+        String lockToken = null;
+        if (event.getDataObjectDeserializer().getObject().orElse(null) instanceof PaymentIntent intent) {
+            intentId = intent.getId();
+            if (intent.getMetadata() != null) {
+                bookingId = intent.getMetadata().get("bookingId");
+                lockToken = intent.getMetadata().get("lockToken");
+            }
+        }
+        return eventRepo.insertIfAbsent(event.getId(), event.getType(), bookingId, intentId, lockToken, payload) == 1;
+    }
+
+    @Transactional
+    public List<StripeWebhookEvent> claim(int limit) {
+        Instant now = Instant.now();
+        List<StripeWebhookEvent> due = eventRepo.lockDue(now, limit);
+        for (StripeWebhookEvent event : due) {
+            event.setAttempts(event.getAttempts() + 1);
+            event.setNextAttemptAt(now.plus(LEASE));
+        }
+        return eventRepo.saveAll(due);
+    }
+
+    @Transactional
+    public void complete(String eventId) {
+        eventRepo.findById(eventId).ifPresent(event -> {
+            event.setStatus("DONE");
+            event.setProcessedAt(Instant.now());
+            event.setLastError(null);
+        });
+    }
+
+    @Transactional
+    public void retry(String eventId, Exception error) {
+        eventRepo.findById(eventId).ifPresent(event -> {
+            event.setLastError(String.valueOf(error.getMessage()));
+            if (event.getAttempts() >= MAX_ATTEMPTS) {
+                event.setStatus("FAILED");
+                log.error("Stripe event {} ({}) failed after {} attempts", event.getEventId(), event.getEventType(),
+                        event.getAttempts(), error);
+                return;
+            }
+            Duration backoff = FIRST_RETRY.multipliedBy(1L << Math.min(event.getAttempts() - 1, 20));
+            event.setNextAttemptAt(Instant.now().plus(backoff.compareTo(MAX_RETRY) > 0 ? MAX_RETRY : backoff));
+            log.warn("Stripe event {} ({}) attempt {} failed: {}", event.getEventId(), event.getEventType(),
+                    event.getAttempts(), error.getMessage());
+        });
+    }
+}
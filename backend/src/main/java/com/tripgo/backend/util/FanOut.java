@@ -0,0 +1,119 @@
+package com.tripgo.backend.util;
+
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.Semaphore;
+import java.util.function.Supplier;
+
+/**
+ * Runs independent pieces of one request either one after another on the calling thread
+ * or each on its own virtual thread, depending on a switch. The calling request thread may
+ * already hold a pooled connection (open-in-view) while it waits for its tasks, so the
+ * connection budget passed in is split in two: every parallel task holds one of the task
+ * permits while it runs, and only the remaining budget's worth of callers may wait on tasks
+ * at once; a caller that finds no caller permit free runs its tasks itself, one after
+ * another. This bounds fan-out among search callers only. Connections are not reserved:
+ * other requests and the schedulers draw from the same pool, so under load a task can still
+ * wait for a connection and fail after Hikari's connection-timeout.
+ * Tasks run without the caller's persistence context: they must only call repositories or
+ * services and must not touch lazy associations of entities the caller loaded.
+ * Latency is published as "fanout.latency" tagged with the fan-out name and
+ * mode=sequential|parallel, so both modes can be compared per call site.
+ */
+public class FanOut implements AutoCloseable {
+
+    private final boolean parallel;
+    private final Semaphore permits;
+    private final Semaphore callers;
+    private final MeterRegistry meterRegistry;
+    private final ExecutorService executor = Executors.newVirtualThreadPerTaskExecutor();
+
+    public record Both<A, B>(A first, B second) {}
+
+    public FanOut(boolean parallel, int poolSize, int maxConcurrency, MeterRegistry meterRegistry) {
+        if (parallel && poolSize < 2) {
+            throw new IllegalArgumentException("Parallel fan-out needs a connection pool of at least 2");
+        }
+        int taskPermits = Math.max(1, Math.min(maxConcurrency, poolSize - 1));
+        this.parallel = parallel;
+        this.permits = new Semaphore(taskPermits, true);
+        this.callers = new Semaphore(Math.max(1, poolSize - taskPermits));
+        this.meterRegistry = meterRegistry;
+        Gauge.builder("fanout.permits.available", permits, Semaphore::availablePermits)
+                .register(meterRegistry);
+        Gauge.builder("fanout.callers.available", callers, Semaphore::availablePermits)
+                .register(meterRegistry);
+    }
+
+    /**
+     * Results of all tasks, in task order. The first failure is rethrown and the remaining
+     * tasks are cancelled.
+     */
+    public <T> List<T> all(String name, List<Supplier<T>> tasks) {
+        boolean concurrent = parallel && tasks.size() > 1 && callers.tryAcquire();
+        Timer.Sample sample = Timer.start(meterRegistry);
+        try {
+            if (!concurrent) {
+                List<T> results = new ArrayList<>(tasks.size());
+                for (Supplier<T> task : tasks) results.add(task.get());
+                return results;
+            }
+            List<Future<T>> futures = new ArrayList<>(tasks.size());
+            for (Supplier<T> task : tasks) futures.add(executor.submit(() -> withPermit(task)));
+            try {
+                List<T> results = new ArrayList<>(tasks.size());
+                for (Future<T> future : futures) results.add(await(future));
+                return results;
+            } finally {
+                futures.forEach(future -> future.cancel(true));
+            }
+        } finally {
+            if (concurrent) callers.release();
+            sample.stop(Timer.builder("fanout.latency")
+                    .tag("name", name)
+                    .tag("mode", concurrent ? "parallel" : "sequential")
+                    .register(meterRegistry));
+        }
+    }
+
+    @SuppressWarnings("unchecked")
+    public <A, B> Both<A, B> both(String name, Supplier<A> first, Supplier<B> second) {
+        List<Object> results = all(name, List.of(first::get, second::get));
+        return new Both<>((A) results.get(0), (B) results.get(1));
+    }
+
+    @Override
+    public void close() {
+        executor.close();
+    }
+
+    private <T> T withPermit(Supplier<T> task) throws InterruptedException {
+        permits.acquire();
+        try {
+            return task.get();
+        } finally {
+            permits.release();
+        }
+    }
+
+    private static <T> T await(Future<T> future) {
+        try {
+            return future.get();
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new IllegalStateException("Interrupted while waiting for parallel work", e);
+        } catch (ExecutionException e) {
+            if (e.getCause() instanceof RuntimeException cause) throw cause;
+            if (e.getCause() instanceof Error cause) throw cause;
+            throw new IllegalStateException(e.getCause());
+        }
+    }
+}
@@ -0,0 +1,5 @@
+-- Search resolves routes from the in-memory route index and then loads schedules by route id
+CREATE INDEX IF NOT EXISTS idx_route_schedules_route ON route_schedules (route_id);
+
+-- Per-route segment reloads when a route's stops change
+CREATE INDEX IF NOT EXISTS idx_route_segments_route_seq ON route_segments (route_id, seq);
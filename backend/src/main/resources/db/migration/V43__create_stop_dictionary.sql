@@ -0,0 +1,122 @@
+-- Canonical stop dictionary: every spelling of a stop resolves to one integer id
+CREATE TABLE stops (
+  id SERIAL PRIMARY KEY,
+  name VARCHAR(255) NOT NULL,
+  normalized_name VARCHAR(255) NOT NULL UNIQUE,
+  created_at TIMESTAMP WITH TIME ZONE DEFAULT now()
+);
+
+-- Spellings that resolve to a stop (the stop's own name is an alias too)
+CREATE TABLE stop_aliases (
+  id SERIAL PRIMARY KEY,
+  stop_id INT NOT NULL REFERENCES stops(id) ON DELETE CASCADE,
+  alias VARCHAR(255) NOT NULL,
+  normalized_alias VARCHAR(255) NOT NULL UNIQUE
+);
+
+CREATE INDEX idx_stop_aliases_stop ON stop_aliases(stop_id);
+
+-- Well-known renamed cities
+INSERT INTO stops (name, normalized_name) VALUES
+  ('Bengaluru', 'bengaluru'),
+  ('Mumbai', 'mumbai'),
+  ('Chennai', 'chennai'),
+  ('Kolkata', 'kolkata'),
+  ('Mysuru', 'mysuru'),
+  ('Mangaluru', 'mangaluru'),
+  ('Belagavi', 'belagavi'),
+  ('Hubballi', 'hubballi'),
+  ('Kalaburagi', 'kalaburagi'),
+  ('Vijayapura', 'vijayapura'),
+  ('Puducherry', 'puducherry'),
+  ('Thiruvananthapuram', 'thiruvananthapuram'),
+  ('Kochi', 'kochi'),
+  ('Gurugram', 'gurugram'),
+  ('Prayagraj', 'prayagraj'),
+  ('Vadodara', 'vadodara');
+
+INSERT INTO stop_aliases (stop_id, alias, normalized_alias)
+SELECT s.id, a.alias, lower(a.alias)
+FROM (VALUES
+  ('bengaluru', 'Bangalore'),
+  ('bengaluru', 'Bengalooru'),
+  ('mumbai', 'Bombay'),
+  ('chennai', 'Madras'),
+  ('kolkata', 'Calcutta'),
+  ('mysuru', 'Mysore'),
+  ('mangaluru', 'Mangalore'),
+  ('belagavi', 'Belgaum'),
+  ('hubballi', 'Hubli'),
+  ('kalaburagi', 'Gulbarga'),
+  ('vijayapura', 'Bijapur'),
+  ('puducherry', 'Pondicherry'),
+  ('thiruvananthapuram', 'Trivandrum'),
+  ('kochi', 'Cochin'),
+  ('gurugram', 'Gurgaon'),
+  ('prayagraj', 'Allahabad'),
+  ('vadodara', 'Baroda')
+) AS a(stop_key, alias)
+JOIN stops s ON s.normalized_name = a.stop_key;
+
+-- Backfill every stop name already in use (trimmed, whitespace collapsed, case-insensitive)
+INSERT INTO stops (name, normalized_name)
+SELECT DISTINCT ON (n.normalized) n.name, n.normalized
+FROM (
+  SELECT regexp_replace(trim(name), '\s+', ' ', 'g') AS name,
+         lower(regexp_replace(trim(name), '\s+', ' ', 'g')) AS normalized
+  FROM (
+    SELECT from_stop AS name FROM route_segments
+    UNION ALL SELECT to_stop FROM route_segments
+    UNION ALL SELECT origin FROM routes
+    UNION ALL SELECT destination FROM routes
+    UNION ALL SELECT from_stop FROM booking_seats
+    UNION ALL SELECT to_stop FROM booking_seats
+    UNION ALL SELECT from_stop FROM seat_locks
+    UNION ALL SELECT to_stop FROM seat_locks
+  ) raw
+  WHERE name IS NOT NULL AND trim(name) <> ''
+) n
+WHERE NOT EXISTS (SELECT 1 FROM stop_aliases a WHERE a.normalized_alias = n.normalized)
+ORDER BY n.normalized, n.name
+ON CONFLICT (normalized_name) DO NOTHING;
+
+INSERT INTO stop_aliases (stop_id, alias, normalized_alias)
+SELECT id, name, normalized_name FROM stops
+ON CONFLICT (normalized_alias) DO NOTHING;
+
+-- Stop references
+ALTER TABLE route_segments
+ADD COLUMN from_stop_id INT REFERENCES stops(id),
+ADD COLUMN to_stop_id INT REFERENCES stops(id);
+
+ALTER TABLE booking_seats
+ADD COLUMN from_stop_id INT REFERENCES stops(id),
+ADD COLUMN to_stop_id INT REFERENCES stops(id);
+
+ALTER TABLE seat_locks
+ADD COLUMN from_stop_id INT REFERENCES stops(id),
+ADD COLUMN to_stop_id INT REFERENCES stops(id);
+
+UPDATE route_segments t SET from_stop_id = a.stop_id
+FROM stop_aliases a WHERE a.normalized_alias = lower(regexp_replace(trim(t.from_stop), '\s+', ' ', 'g'));
+UPDATE route_segments t SET to_stop_id = a.stop_id
+FROM stop_aliases a WHERE a.normalized_alias = lower(regexp_replace(trim(t.to_stop), '\s+', ' ', 'g'));
+
+UPDATE booking_seats t SET from_stop_id = a.stop_id
+FROM stop_aliases a WHERE a.normalized_alias = lower(regexp_replace(trim(t.from_stop), '\s+', ' ', 'g'));
+UPDATE booking_seats t SET to_stop_id = a.stop_id
+FROM stop_aliases a WHERE a.normalized_alias = lower(regexp_replace(trim(t.to_stop), '\s+', ' ', 'g'));
+
+UPDATE seat_locks t SET from_stop_id = a.stop_id
+FROM stop_aliases a WHERE a.normalized_alias = lower(regexp_replace(trim(t.from_stop), '\s+', ' ', 'g'));
+UPDATE seat_locks t SET to_stop_id = a.stop_id
+FROM stop_aliases a WHERE a.normalized_alias = lower(regexp_replace(trim(t.to_stop), '\s+', ' ', 'g'));
+
+ALTER TABLE route_segments
+ALTER COLUMN from_stop_id SET NOT NULL,
+ALTER COLUMN to_stop_id SET NOT NULL;
+
+CREATE INDEX idx_route_segments_from_stop ON route_segments(from_stop_id);
+CREATE INDEX idx_route_segments_to_stop ON route_segments(to_stop_id);
+CREATE INDEX idx_booking_seats_stops ON booking_seats(from_stop_id, to_stop_id);
+CREATE INDEX idx_seat_locks_schedule_date_stops ON seat_locks(route_schedule_id, travel_date, from_stop_id, to_stop_id);
@@ -0,0 +1,71 @@
+-- Seat locks cover a range of segment positions [from_idx, to_idx) on the route.
+-- Overlapping locks on the same seat are rejected by the database itself.
+CREATE EXTENSION IF NOT EXISTS btree_gist;
+
+DELETE FROM seat_locks WHERE expires_at < now();
+
+ALTER TABLE seat_locks
+ADD COLUMN from_idx INT,
+ADD COLUMN to_idx INT;
+
+-- Positions of each live lock's stops, as RouteIndexService computes them: a stop is at the
+-- index of the first segment leaving it, or one past the first segment arriving at it
+WITH seg AS (
+  SELECT seg.route_id, seg.from_stop_id, seg.to_stop_id,
+         row_number() OVER (PARTITION BY seg.route_id ORDER BY seg.seq) - 1 AS idx
+  FROM route_segments seg
+),
+pos AS (
+  SELECT route_id, stop_id, min(idx) AS idx
+  FROM (
+    SELECT route_id, from_stop_id AS stop_id, idx, 0 AS pass FROM seg
+    UNION ALL
+    SELECT route_id, to_stop_id, idx + 1, 1 FROM seg
+  ) p
+  WHERE stop_id IS NOT NULL
+    AND NOT (pass = 1 AND EXISTS (SELECT 1 FROM seg s2 WHERE s2.route_id = p.route_id AND s2.from_stop_id = p.stop_id))
+  GROUP BY route_id, stop_id
+)
+UPDATE seat_locks sl
+SET from_idx = f.idx,
+    to_idx = t.idx
+FROM route_schedules rs, pos f, pos t
+WHERE rs.id = sl.route_schedule_id
+  AND f.route_id = rs.route_id AND f.stop_id = sl.from_stop_id
+  AND t.route_id = rs.route_id AND t.stop_id = sl.to_stop_id
+  AND f.idx < t.idx;
+
+-- Locks without resolvable stops cover the whole route
+UPDATE seat_locks sl
+SET from_idx = 0,
+    to_idx = GREATEST((SELECT count(*) FROM route_segments seg
+                       JOIN route_schedules rs ON rs.route_id = seg.route_id
+                       WHERE rs.id = sl.route_schedule_id), 1)
+WHERE sl.from_idx IS NULL OR sl.to_idx IS NULL;
+
+-- Whatever still overlaps (e.g. a whole-route fallback against a segment lock) keeps only the
+-- oldest lock; the others are short-lived holds that the clients re-acquire
+DELETE FROM seat_locks sl
+WHERE EXISTS (
+  SELECT 1 FROM seat_locks other
+  WHERE other.route_schedule_id = sl.route_schedule_id
+    AND other.travel_date = sl.travel_date
+    AND other.seat_number = sl.seat_number
+    AND int4range(other.from_idx, other.to_idx) && int4range(sl.from_idx, sl.to_idx)
+    AND (COALESCE(other.created_at, '-infinity'), other.id) < (COALESCE(sl.created_at, '-infinity'), sl.id)
+);
+
+ALTER TABLE seat_locks
+ALTER COLUMN from_idx SET NOT NULL,
+ALTER COLUMN to_idx SET NOT NULL;
+
+ALTER TABLE seat_locks
+DROP CONSTRAINT IF EXISTS uq_route_schedule_seat_lock;
+
+ALTER TABLE seat_locks
+ADD CONSTRAINT ex_seat_locks_overlap EXCLUDE USING gist (
+  route_schedule_id WITH =,
+  travel_date WITH =,
+  seat_number WITH =,
+  int4range(from_idx, to_idx) WITH &&
+);
@@ -0,0 +1,3 @@
+-- Lock validation and release look locks up by token; expiry cleanup by expires_at
+CREATE INDEX IF NOT EXISTS idx_seat_locks_lock_token ON seat_locks(lock_token, locked_by_user_id);
+CREATE INDEX IF NOT EXISTS idx_seat_locks_expires_at ON seat_locks(expires_at);
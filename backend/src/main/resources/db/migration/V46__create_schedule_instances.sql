@@ -0,0 +1,44 @@
+-- One row per schedule and travel date. Recurring schedules are expanded over a rolling
+-- horizon by ScheduleInstanceService; searches scan (route_id, travel_date) directly.
+CREATE TABLE IF NOT EXISTS schedule_instances (
+  id UUID PRIMARY KEY DEFAULT gen_random_uuid(),
+  schedule_id UUID NOT NULL REFERENCES route_schedules(id) ON DELETE CASCADE,
+  route_id UUID NOT NULL REFERENCES routes(id) ON DELETE CASCADE,
+  travel_date DATE NOT NULL,
+  departure_time TIMESTAMP WITH TIME ZONE NOT NULL,
+  arrival_time TIMESTAMP WITH TIME ZONE NOT NULL,
+  status VARCHAR(20) NOT NULL DEFAULT 'SCHEDULED',
+  delay_minutes INT,
+  delay_reason VARCHAR(255),
+  actual_departure_time TIMESTAMP WITH TIME ZONE,
+  actual_arrival_time TIMESTAMP WITH TIME ZONE,
+  created_at TIMESTAMP WITH TIME ZONE DEFAULT now(),
+  updated_at TIMESTAMP WITH TIME ZONE DEFAULT now(),
+  CONSTRAINT uq_schedule_instance UNIQUE (schedule_id, travel_date)
+);
+
+CREATE INDEX IF NOT EXISTS idx_schedule_instances_route_date ON schedule_instances(route_id, travel_date);
+CREATE INDEX IF NOT EXISTS idx_schedule_instances_open_arrival ON schedule_instances(arrival_time)
+  WHERE status NOT IN ('COMPLETED', 'CANCELLED');
+
+-- One-off schedules keep their single departure and trip status
+INSERT INTO schedule_instances (schedule_id, route_id, travel_date, departure_time, arrival_time,
+                                status, delay_minutes, delay_reason, actual_departure_time, actual_arrival_time)
+SELECT id, route_id, (departure_time AT TIME ZONE 'UTC')::date, departure_time, arrival_time,
+       COALESCE(trip_status, 'SCHEDULED'), delay_minutes, delay_reason, actual_departure_time, actual_arrival_time
+FROM route_schedules
+WHERE frequency IS NULL OR frequency = 'ONCE'
+ON CONFLICT (schedule_id, travel_date) DO NOTHING;
+
+-- Active recurring schedules: the next 60 days at the schedule's UTC time of day
+INSERT INTO schedule_instances (schedule_id, route_id, travel_date, departure_time, arrival_time)
+SELECT rs.id, rs.route_id, d::date,
+       (d::date + (rs.departure_time AT TIME ZONE 'UTC')::time) AT TIME ZONE 'UTC',
+       ((d::date + (rs.departure_time AT TIME ZONE 'UTC')::time) AT TIME ZONE 'UTC') + (rs.arrival_time - rs.departure_time)
+FROM route_schedules rs
+CROSS JOIN generate_series(CURRENT_DATE, CURRENT_DATE + 59, INTERVAL '1 day') AS d
+WHERE rs.active = true
+  AND rs.frequency IS NOT NULL AND rs.frequency <> 'ONCE'
+  AND (rs.frequency <> 'WEEKDAYS' OR EXTRACT(ISODOW FROM d) < 6)
+  AND (rs.frequency <> 'WEEKENDS' OR EXTRACT(ISODOW FROM d) >= 6)
+ON CONFLICT (schedule_id, travel_date) DO NOTHING;
@@ -0,0 +1,24 @@
+-- Service calendar of recurring schedules: weekday bitmask (bit 0 = Monday .. bit 6 = Sunday),
+-- an optional validity window and per-date exceptions
+ALTER TABLE route_schedules ADD COLUMN IF NOT EXISTS weekday_mask INT;
+ALTER TABLE route_schedules ADD COLUMN IF NOT EXISTS valid_from DATE;
+ALTER TABLE route_schedules ADD COLUMN IF NOT EXISTS valid_to DATE;
+
+UPDATE route_schedules
+SET weekday_mask = CASE frequency
+                       WHEN 'WEEKDAYS' THEN 31
+                       WHEN 'WEEKENDS' THEN 96
+                       ELSE 127
+                   END
+WHERE frequency IS NOT NULL AND frequency <> 'ONCE' AND weekday_mask IS NULL;
+
+-- runs = false: no service that day (holiday, cancelled run); runs = true: extra run
+CREATE TABLE IF NOT EXISTS schedule_calendar_exceptions (
+  id UUID PRIMARY KEY DEFAULT gen_random_uuid(),
+  schedule_id UUID NOT NULL REFERENCES route_schedules(id) ON DELETE CASCADE,
+  service_date DATE NOT NULL,
+  runs BOOLEAN NOT NULL,
+  note VARCHAR(255),
+  created_at TIMESTAMP WITH TIME ZONE DEFAULT now(),
+  CONSTRAINT uq_schedule_calendar_exception UNIQUE (schedule_id, service_date)
+);
@@ -0,0 +1,22 @@
+-- Each amenity owns one bit; a bus's amenities are also kept as a bitmask so search can
+-- filter with (amenity_mask & wanted) = wanted
+ALTER TABLE amenity_master ADD COLUMN IF NOT EXISTS bit_index SMALLINT UNIQUE;
+
+WITH numbered AS (
+  SELECT id, ROW_NUMBER() OVER (ORDER BY code) - 1 AS idx
+  FROM amenity_master
+)
+UPDATE amenity_master a
+SET bit_index = n.idx
+FROM numbered n
+WHERE a.id = n.id AND n.idx < 63 AND a.bit_index IS NULL;
+
+ALTER TABLE buses ADD COLUMN IF NOT EXISTS amenity_mask BIGINT NOT NULL DEFAULT 0;
+
+UPDATE buses b
+SET amenity_mask = COALESCE((
+  SELECT bit_or(CAST(1 AS BIGINT) << a.bit_index)
+  FROM bus_amenities ba
+  JOIN amenity_master a ON a.id = ba.amenity_id
+  WHERE ba.bus_id = b.id AND a.bit_index IS NOT NULL
+), 0);
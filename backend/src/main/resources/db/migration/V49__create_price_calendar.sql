@@ -0,0 +1,13 @@
+-- Cheapest open fare per stop pair and travel date, kept up to date by PriceCalendarService
+-- whenever fares, schedules or bookings change. A missing row means no trip that day.
+CREATE TABLE IF NOT EXISTS price_calendar (
+  id UUID PRIMARY KEY DEFAULT gen_random_uuid(),
+  from_stop_id INT NOT NULL REFERENCES stops(id) ON DELETE CASCADE,
+  to_stop_id INT NOT NULL REFERENCES stops(id) ON DELETE CASCADE,
+  travel_date DATE NOT NULL,
+  min_fare NUMERIC(10,2),
+  available_seats INT NOT NULL DEFAULT 0,
+  trips INT NOT NULL DEFAULT 0,
+  updated_at TIMESTAMP WITH TIME ZONE DEFAULT now(),
+  CONSTRAINT uq_price_calendar UNIQUE (from_stop_id, to_stop_id, travel_date)
+);
@@ -0,0 +1,19 @@
+-- Raw Stripe webhook deliveries keyed by Stripe's event id. A redelivery hits the primary
+-- key and is dropped by ON CONFLICT DO NOTHING; StripeWebhookProcessor works the rest off.
+CREATE TABLE IF NOT EXISTS stripe_webhook_events (
+  event_id VARCHAR(255) PRIMARY KEY,
+  event_type VARCHAR(100) NOT NULL,
+  booking_id UUID,
+  payment_intent_id VARCHAR(255),
+  lock_token VARCHAR(64),
+  payload TEXT NOT NULL,
+  status VARCHAR(20) NOT NULL DEFAULT 'PENDING',
+  attempts INT NOT NULL DEFAULT 0,
+  next_attempt_at TIMESTAMP WITH TIME ZONE NOT NULL DEFAULT now(),
+  last_error TEXT,
+  received_at TIMESTAMP WITH TIME ZONE NOT NULL DEFAULT now(),
+  processed_at TIMESTAMP WITH TIME ZONE
+);
+
+CREATE INDEX IF NOT EXISTS idx_stripe_webhook_events_due ON stripe_webhook_events(next_attempt_at)
+  WHERE status = 'PENDING';
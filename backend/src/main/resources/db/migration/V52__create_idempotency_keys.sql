@@ -0,0 +1,17 @@
+-- Results of requests sent with an Idempotency-Key header, per user and key. A row is
+-- IN_PROGRESS while the first request runs (until locked_until) and COMPLETED with the
+-- stored response afterwards; repeats with the same request hash get that response back.
+CREATE TABLE IF NOT EXISTS idempotency_keys (
+  id VARCHAR(320) PRIMARY KEY,
+  user_id UUID NOT NULL,
+  idempotency_key VARCHAR(255) NOT NULL,
+  request_hash VARCHAR(64) NOT NULL,
+  status VARCHAR(20) NOT NULL,
+  response_status INT,
+  response_body TEXT,
+  locked_until TIMESTAMP WITH TIME ZONE NOT NULL,
+  created_at TIMESTAMP WITH TIME ZONE NOT NULL DEFAULT now(),
+  expires_at TIMESTAMP WITH TIME ZONE NOT NULL
+);
+
+CREATE INDEX IF NOT EXISTS idx_idempotency_keys_expires ON idempotency_keys(expires_at);
@@ -0,0 +1,43 @@
+-- Amenities added after V48 get the lowest free bit when they are inserted, so every
+-- amenity can be filtered on. A 64th amenity needs a wider mask and is rejected.
+CREATE OR REPLACE FUNCTION assign_amenity_bit() RETURNS trigger AS $$
+BEGIN
+  IF NEW.bit_index IS NULL THEN
+    LOCK TABLE amenity_master IN SHARE ROW EXCLUSIVE MODE;
+    SELECT min(i) INTO NEW.bit_index
+    FROM generate_series(0, 62) AS i
+    WHERE NOT EXISTS (SELECT 1 FROM amenity_master a WHERE a.bit_index = i);
+    IF NEW.bit_index IS NULL THEN
+      RAISE EXCEPTION 'No free amenity bit for %', NEW.code;
+    END IF;
+  END IF;
+  RETURN NEW;
+END;
+$$ LANGUAGE plpgsql;
+
+CREATE TRIGGER trg_amenity_master_bit
+BEFORE INSERT ON amenity_master
+FOR EACH ROW EXECUTE FUNCTION assign_amenity_bit();
+
+-- Amenities that exist without a bit (added after V48, or beyond the first 63 then)
+DO $$
+DECLARE
+  amenity RECORD;
+  free_bit INT;
+BEGIN
+  FOR amenity IN SELECT id, code FROM amenity_master WHERE bit_index IS NULL ORDER BY code LOOP
+    SELECT min(i) INTO free_bit
+    FROM generate_series(0, 62) AS i
+    WHERE NOT EXISTS (SELECT 1 FROM amenity_master a WHERE a.bit_index = i);
+    EXIT WHEN free_bit IS NULL;
+    UPDATE amenity_master SET bit_index = free_bit WHERE id = amenity.id;
+  END LOOP;
+END $$;
+
+UPDATE buses b
+SET amenity_mask = COALESCE((
+  SELECT bit_or(CAST(1 AS BIGINT) << a.bit_index)
+  FROM bus_amenities ba
+  JOIN amenity_master a ON a.id = ba.amenity_id
+  WHERE ba.bus_id = b.id AND a.bit_index IS NOT NULL
+), 0);
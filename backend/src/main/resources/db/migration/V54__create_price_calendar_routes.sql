@@ -0,0 +1,7 @@
+-- Stops each route had when its price calendar pairs were last recomputed, so pairs a route
+-- no longer serves can be cleared after a restart as well (comma-separated stop ids in order)
+CREATE TABLE IF NOT EXISTS price_calendar_routes (
+  route_id UUID PRIMARY KEY,
+  stop_ids TEXT NOT NULL,
+  updated_at TIMESTAMP WITH TIME ZONE NOT NULL DEFAULT now()
+);
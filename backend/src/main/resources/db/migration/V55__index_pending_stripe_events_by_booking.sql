@@ -0,0 +1,4 @@
+-- Claiming a Stripe event checks for an earlier pending event of the same booking
+CREATE INDEX IF NOT EXISTS idx_stripe_webhook_events_pending_booking
+  ON stripe_webhook_events(booking_id, received_at)
+  WHERE status = 'PENDING';
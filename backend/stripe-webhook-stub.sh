@@ -0,0 +1,38 @@
+#!/bin/bash
+
+# Sends a signed Stripe payment_intent event to a locally running backend.
+# Usage: ./stripe-webhook-stub.sh <bookingId> <paymentIntentId> [lockToken] [succeeded|payment_failed] [repeat]
+# The event uses the API version stripe-java is pinned to. Repeating the same event id exercises webhook deduplication.
+
+export $(grep -v '^#' .env | xargs)
+
+BOOKING_ID=$1
+INTENT_ID=$2
+LOCK_TOKEN=${3:-}
+OUTCOME=${4:-succeeded}
+REPEAT=${5:-1}
+URL=${WEBHOOK_URL:-http://localhost:8080/payments/webhook}
+
+if [ -z "$BOOKING_ID" ] || [ -z "$INTENT_ID" ]; then
+  echo "Usage: $0 <bookingId> <paymentIntentId> [lockToken] [succeeded|payment_failed] [repeat]"
+  exit 1
+fi
+
+METADATA="\"bookingId\":\"$BOOKING_ID\""
+[ -n "$LOCK_TOKEN" ] && METADATA="$METADATA,\"lockToken\":\"$LOCK_TOKEN\""
+
+EVENT_ID="evt_stub_$(date +%s%N)"
+TS=$(date +%s)
+PAYLOAD=$(cat <<JSON
+{"id":"$EVENT_ID","object":"event","api_version":"2023-08-16","created":$TS,"type":"payment_intent.$OUTCOME","data":{"object":{"id":"$INTENT_ID","object":"payment_intent","metadata":{$METADATA}}}}
+JSON
+)
+SIGNATURE=$(printf '%s' "$TS.$PAYLOAD" | openssl dgst -sha256 -hmac "$STRIPE_WEBHOOK_SECRET" | sed 's/^.*= //')
+
+for i in $(seq 1 "$REPEAT"); do
+  curl -s -X POST "$URL" \
+    -H "Content-Type: application/json" \
+    -H "Stripe-Signature: t=$TS,v1=$SIGNATURE" \
+    --data "$PAYLOAD"
+  echo
+done